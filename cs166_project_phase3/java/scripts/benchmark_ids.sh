@@ -0,0 +1,10 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+
+# compile the java program and the benchmark
+javac -d $DIR/../classes $DIR/../src/AirlineManagement.java $DIR/../src/ReservationIdBenchmark.java
+
+#run the benchmark, the number of rows can be passed as the first argument
+#Use your database name, port number and login
+java $JAVA_OPTS -cp $DIR/../classes:$DIR/../lib/pg73jdbc3.jar ReservationIdBenchmark $USER"_project_phase_3_DB" $PGPORT $USER $1
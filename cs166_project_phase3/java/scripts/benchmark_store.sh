@@ -0,0 +1,10 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+
+# compile the java program and the benchmark
+javac -d $DIR/../classes $DIR/../src/AirlineManagement.java $DIR/../src/StoreBenchmark.java
+
+#run the booking and repair features on the in-memory store, the number of runs can be passed as the first argument
+#No database needed, the CSV files are read from data/
+java $JAVA_OPTS -cp $DIR/../classes StoreBenchmark $DIR/../../data $1
@@ -7,5 +7,6 @@ javac -d $DIR/../classes $DIR/../src/AirlineManagement.java
 
 #run the java program
 #Use your database name, port number and login
-java -cp $DIR/../classes:$DIR/../lib/pg73jdbc3.jar AirlineManagement $USER"_project_phase_3_DB" $PGPORT $USER
+#Extra JVM options (ex: JAVA_OPTS="-Dairline.replica=true") are passed through JAVA_OPTS
+java $JAVA_OPTS -cp $DIR/../classes:$DIR/../lib/pg73jdbc3.jar AirlineManagement $USER"_project_phase_3_DB" $PGPORT $USER
 
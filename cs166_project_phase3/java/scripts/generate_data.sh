@@ -0,0 +1,10 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+
+# compile the data generator
+javac -d $DIR/../classes $DIR/../src/DataGenerator.java
+
+#write the CSV files: <output directory> <scale> [seed]
+#ex: source java/scripts/generate_data.sh data/scale10 10
+java $JAVA_OPTS -cp $DIR/../classes DataGenerator $1 $2 $3
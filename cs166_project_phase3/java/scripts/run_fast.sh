@@ -0,0 +1,27 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# same program as compile.sh, started for a short run:
+#  - it is only compiled again when the source changed
+#  - the classes are mapped from a class data sharing (AppCDS) archive instead of being loaded and checked one by one
+#  - the database connection is made while the menu is shown, and the startup time is broken down when it is ready
+CLASSES=$DIR/../classes
+JAR=$DIR/../AirlineManagement.jar
+ARCHIVE=$DIR/../AirlineManagement.jsa
+CP=$JAR:$DIR/../lib/pg73jdbc3.jar
+ARGS="$USER"_project_phase_3_DB" $PGPORT $USER"
+
+# the archive can only hold classes that come from jars, so the classes are packed into one
+if [ ! -f $JAR ] || [ $DIR/../src/AirlineManagement.java -nt $JAR ]; then
+   javac -d $CLASSES $DIR/../src/AirlineManagement.java
+   jar cf $JAR -C $CLASSES .
+   rm -f $ARCHIVE
+fi
+
+# the archive is recorded once from a run that opens the main menu and exits (Java 13 or later)
+if [ ! -f $ARCHIVE ]; then
+   echo "Building the class data sharing archive..."
+   echo 9 | java -XX:ArchiveClassesAtExit=$ARCHIVE -cp $CP AirlineManagement $ARGS > /dev/null
+fi
+
+java -XX:SharedArchiveFile=$ARCHIVE $JAVA_OPTS -Dairline.fastStart=true -Dairline.startupTimes=true -cp $CP AirlineManagement $ARGS
@@ -0,0 +1,10 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+
+# compile the java program and the tests
+javac -d $DIR/../classes $DIR/../src/AirlineManagement.java $DIR/../src/StoreTest.java
+
+#run the menu features on the in-memory store and check what they change, prints the checks that failed
+#No database needed, the CSV files are read from data/ and not written
+java $JAVA_OPTS -cp $DIR/../classes StoreTest $DIR/../../data
@@ -20,11 +20,72 @@ import java.sql.SQLException;
 import java.io.File;
 import java.io.FileReader;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.PrintWriter;
 import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 import java.lang.Math;
-import java.util.UUID;
 
 /**
  * This class defines a simple embedded SQL utility class that is designed to
@@ -36,10 +97,141 @@ public class AirlineManagement {
    // reference to physical database connection.
    private Connection _connection = null;
 
+   // where the features read and write: the database, or the CSV files in memory (-Dairline.store=memory, no connection then)
+   private AirlineStore _store = null;
+   private static final String NO_DATABASE = "This needs the database, the program is running on the in-memory store";
+
+   // connection settings, kept so that extra connections can be opened (ex: parallel exports)
+   private String _url = null;
+   private String _user = null;
+   private String _passwd = null;
+
+   // when set, the next executeQueryAndPrintResult call writes its rows to this CSV file instead of the screen
+   private String _exportFile = null;
+   private boolean _exportGzip = false;
+
+   // number of rows pulled from the server per FETCH when exporting, so the heap stays the same size for any extract
+   private static final int EXPORT_FETCH_SIZE = 1000;
+
+   // optional in memory copy of the flight tables used by the customer searches (null when turned off)
+   private FlightReplica _replica = null;
+   private volatile long _replicaRefreshedAt = 0;
+
+   // repair history by plane for features 9, 15 and 16 (loaded on first use)
+   private volatile RepairHistory _repairHistory = null;
+   private volatile long _repairHistoryRefreshedAt = 0;
+   private static final long REPAIR_HISTORY_REFRESH_MILLIS = Long.getLong("airline.repairs.refresh", 30) * 1000;
+
+   // connections and threads of the fleet dashboard (opened on first use), the sections run DASHBOARD_CONNECTIONS at a time
+   private static final int DASHBOARD_CONNECTIONS = Integer.getInteger("airline.dashboard.connections", 4);
+   private final BlockingQueue<Connection> _dashboardConnections = new LinkedBlockingQueue<Connection>();
+   private ExecutorService _dashboardPool = null;
+
+   // today's and tomorrow's operations board for feature4 (built when a manager logs in)
+   private volatile OperationsBoard _board = null;
+   private CompletableFuture<OperationsBoard> _boardBuilding = null;
+
+   // maintenance requests with no repair yet (loaded on first use, refreshed like the repair history)
+   private volatile MaintenanceBacklog _backlog = null;
+   private volatile long _backlogRefreshedAt = 0;
+
+   // memory mapped customer directory used for name and phone searches (opened on first use)
+   private CustomerDirectory _customerDirectory = null;
+   private static final String CUSTOMER_DIRECTORY_FILE = System.getProperty("airline.customerdir", "customers.dir");
+
+   // Bloom filters of the key columns, so a key that doesn't exist is turned away without a query
+   private final Map<String, BloomFilter> _keyFilters = new HashMap<String, BloomFilter>();
+   private final Map<String, Long> _keyFiltersBuiltAt = new HashMap<String, Long>();
+
+   // how long a key filter is trusted before it is rebuilt, to pick up rows added by other programs
+   private static final long KEY_FILTER_REFRESH_MILLIS = Long.getLong("airline.bloom.refresh", 300) * 1000;
+
+   // off by default: a miss is trusted, -Dairline.bloom.confirm=true looks a miss up in the database before turning it away
+   private static final boolean KEY_FILTER_CONFIRM_MISSES = Boolean.getBoolean("airline.bloom.confirm");
+
+   // hands out new ReservationIDs in time order, the node keeps programs running together from handing out the same ID:
+   // -Dairline.node, or else the next value of the database's ReservationNode sequence, drawn when connecting
+   static volatile ReservationIdGenerator RESERVATION_IDS = new ReservationIdGenerator(Integer.getInteger("airline.node", 0));
+
+   // how long the in memory copy is used before new flight instances and seat counts are pulled in again
+   private static final long REPLICA_REFRESH_MILLIS = Long.getLong("airline.replica.refresh", 30) * 1000;
+
+   // read replicas of the database (set with -Dairline.readReplicas=port,host:port,...), read only features are sent to them
+   private final List<Connection> _readReplicas = new ArrayList<Connection>();
+   private AtomicIntegerArray _readReplicaLoad = null;
+   private int _nextReadReplica = 0;
+   private boolean _routeReads = false;
+
+   // WAL position of this session's last write, a replica only serves reads once it has replayed up to it
+   private volatile String _lastWriteLsn = null;
+   private boolean[] _readReplicaCaughtUp = null;
+
+   // a replica that failed a query is left out until this time, and for how long
+   private long[] _readReplicaDownUntil = null;
+   private static final long REPLICA_DOWN_MILLIS = Long.getLong("airline.readReplicas.retry", 30) * 1000;
+
+   // roundrobin (default) takes the replicas in turn, leastloaded takes the one running the fewest queries
+   private static final boolean LEAST_LOADED = "leastloaded".equalsIgnoreCase(System.getProperty("airline.readReplicas.policy"));
+
+   // menu choices that only read, these can be answered by a replica
+   private static final Set<Integer> READ_ONLY_CHOICES = new HashSet<Integer>(Arrays.asList(
+      1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 15, 16, 17, 19, 21, 22, 23, 24, 26, 27, 29));
+
+   // flight instance generation: worker threads, rows per INSERT, and the seats of a plane that has never flown
+   private static final int GENERATE_WORKERS = Integer.getInteger("airline.generate.workers", 4);
+   private static final int GENERATE_BATCH_SIZE = 1000;
+   private static final int GENERATE_DEFAULT_SEATS = Integer.getInteger("airline.generate.seats", 150);
+
+   // booking shards (set with -Dairline.shards=db,host:port/db,...), FlightInstance and Reservation rows live on the shard of their FlightNumber
+   private final List<Connection> _shards = new ArrayList<Connection>();
+   private final List<String> _shardUrls = new ArrayList<String>();
+   private ExecutorService _shardPool = null;
+
+   // seat maps of the flight instances booked by this program (loaded on the first booking of each instance)
+   private final ConcurrentHashMap<Integer, SeatMap> _seatMaps = new ConcurrentHashMap<Integer, SeatMap>();
+
+   // write behind journal for bookings (set with -Dairline.journal=file), feature14 returns once the booking is on disk
+   private ReservationJournal _journal = null;
+
+   // traces the statements sent by each menu action (set with -Dairline.trace=file), null when tracing is off
+   static final Tracer TRACER = openTracer(System.getProperty("airline.trace"));
+
+   // sessions of the logged in users, a session ends on log out or after airline.sessions.ttl seconds without use
+   static final SessionStore SESSIONS = new SessionStore(Integer.getInteger("airline.sessions.max", 10000),
+      Long.getLong("airline.sessions.ttl", 1800) * 1000);
+
+   // listens for the changes other programs make (set with -Dairline.listen=true), null when not listening
+   private static final boolean LISTEN = Boolean.getBoolean("airline.listen");
+   private ChangeListener _changeListener = null;
+
+   // the application_name of this program's connections, the change triggers log it so the listener can skip its own writes
+   static final String INSTANCE_NAME = "airline-" + ProcessHandle.current().pid();
+
+   // fast startup (set by java/scripts/run_fast.sh): connect while the menu is shown, and print where the startup time went
+   private static final boolean FAST_START = Boolean.getBoolean("airline.fastStart");
+   private static final boolean STARTUP_TIMES = Boolean.getBoolean("airline.startupTimes");
+   private static volatile long _driverMillis = 0;
+   private static volatile long _connectMillis = 0;
+   private static volatile long _initMillis = 0;
+   private static volatile long _connectedAt = 0;
+
    // handling the keyboard inputs through a BufferedReader
    // This variable can be global for convenience.
    static BufferedReader in = new BufferedReader(
-                                new InputStreamReader(System.in));
+                                new InputStreamReader(System.in)) {
+      // time spent waiting for the user is not counted against the action being traced
+      @Override
+      public String readLine() throws IOException {
+         long start = System.nanoTime();
+         try {
+            return super.readLine();
+         } finally {
+            if (TRACER != null) {
+               TRACER.waited(System.nanoTime() - start);
+            }
+         }
+      }
+   };
 
    /**
     * Creates a new instance of AirlineManagement
@@ -52,14 +244,47 @@ public class AirlineManagement {
     */
    public AirlineManagement(String dbname, String dbport, String user, String passwd) throws SQLException {
 
+      this._store = new JdbcStore(this);
       System.out.print("Connecting to database...");
       try{
          // constructs the connection URL
          String url = "jdbc:postgresql://localhost:" + dbport + "/" + dbname;
          System.out.println ("Connection URL: " + url + "\n");
+         this._url = url;
+         this._user = user;
+         this._passwd = passwd;
 
          // obtain a physical connection
-         this._connection = DriverManager.getConnection(url, user, passwd);
+         this._connection = open(url);
+
+         // connect to the read replicas, they hold the same database under the same login
+         String replicas = System.getProperty("airline.readReplicas", "").trim();
+         for (String endpoint : replicas.isEmpty() ? new String[0] : replicas.split(",")) {
+            endpoint = endpoint.trim();
+            String replicaUrl = "jdbc:postgresql://" + (endpoint.contains(":") ? endpoint : "localhost:" + endpoint) + "/" + dbname;
+            System.out.println ("Read Replica URL: " + replicaUrl);
+            this._readReplicas.add(open(replicaUrl));
+         }
+         this._readReplicaLoad = new AtomicIntegerArray(Math.max(1, this._readReplicas.size()));
+         this._readReplicaCaughtUp = new boolean[this._readReplicas.size()];
+         this._readReplicaDownUntil = new long[this._readReplicas.size()];
+
+         // connect to the booking shards, a plain name is a database on the same server
+         String shards = System.getProperty("airline.shards", "").trim();
+         for (String endpoint : shards.isEmpty() ? new String[0] : shards.split(",")) {
+            endpoint = endpoint.trim();
+            String shardUrl = "jdbc:postgresql://" + (endpoint.contains("/") ? endpoint : "localhost:" + dbport + "/" + endpoint);
+            System.out.println ("Shard URL: " + shardUrl);
+            this._shards.add(open(shardUrl));
+            this._shardUrls.add(shardUrl);
+         }
+         if (!this._shards.isEmpty()) {
+            this._shardPool = Executors.newFixedThreadPool(this._shards.size());
+         }
+
+         if (System.getProperty("airline.node") == null) {
+            RESERVATION_IDS = new ReservationIdGenerator(drawNode());
+         }
          System.out.println("Done");
       }catch (Exception e){
          System.err.println("Error - Unable to Connect to Database: " + e.getMessage() );
@@ -68,6 +293,60 @@ public class AirlineManagement {
       }//end catch
    }//end AirlineManagement
 
+   /*
+    * Takes the next ReservationID node from a cycling sequence on the main
+    * database, so two programs only share a node when 1024 others started
+    * in between
+    **/
+   private int drawNode() throws SQLException {
+      Statement stmt = this._connection.createStatement();
+      try {
+         try {
+            stmt.executeUpdate("CREATE SEQUENCE IF NOT EXISTS ReservationNode MINVALUE 0 MAXVALUE " +
+               ReservationIdGenerator.MAX_NODE + " START 0 CYCLE;");
+         } catch (SQLException e) {
+            // another program created it at the same moment
+         }
+         ResultSet rs = stmt.executeQuery("SELECT nextval('ReservationNode');");
+         rs.next();
+         return rs.getInt(1);
+      } finally {
+         stmt.close();
+      }
+   }
+
+   /**
+    * Creates an instance of AirlineManagement with no database, running the
+    * features on the given store.  The features the store does not cover
+    * report that they need the database.
+    *
+    * @param store the store the features use
+    */
+   public AirlineManagement(AirlineStore store) {
+      this._store = store;
+   }
+
+   /**
+    * Turns away a feature that only runs on the database when the program
+    * runs on the in-memory store, before it has touched anything.
+    *
+    * @throws java.sql.SQLException when there is no database
+    */
+   public void requireDatabase() throws SQLException {
+      if (this._connection == null) {
+         throw new SQLException(NO_DATABASE);
+      }
+   }
+
+   /**
+    * Returns where the features read and write.
+    *
+    * @return the store
+    */
+   public AirlineStore store() {
+      return this._store;
+   }
+
    /**
     * Method to execute an update SQL statement.  Update SQL instructions
     * includes CREATE, INSERT, UPDATE, DELETE, and DROP.
@@ -77,15 +356,153 @@ public class AirlineManagement {
     */
    public void executeUpdate (String sql) throws SQLException {
       // creates a statement object
-      Statement stmt = this._connection.createStatement ();
+      Statement stmt = readConnection(-1).createStatement ();
 
       // issues the update instruction
       stmt.executeUpdate (sql);
 
+      // remember where the write is in the WAL so this session doesn't read from a replica that hasn't seen it yet
+      if (!this._readReplicas.isEmpty()) {
+         ResultSet rs = stmt.executeQuery ("SELECT pg_current_wal_lsn();");
+         if (rs.next()) {
+            wroteAt(rs.getString(1));
+         }
+      }
+
       // close the instruction
       stmt.close ();
    }//end executeUpdate
 
+   /*
+    * Remembers a write made on another connection to the primary (the
+    * journal's), so reads wait for the replicas to replay it too
+    **/
+   void wroteAt(Connection conn) throws SQLException {
+      if (!this._readReplicas.isEmpty()) {
+         List<List<String>> lsn = executeQueryAndReturnResult(conn, "SELECT pg_current_wal_lsn();");
+         if (!lsn.isEmpty()) {
+            wroteAt(lsn.get(0).get(0));
+         }
+      }
+   }
+
+   private synchronized void wroteAt(String lsn) {
+      Arrays.fill(this._readReplicaCaughtUp, false);
+      this._lastWriteLsn = lsn;
+   }
+
+   /**
+    * Starts a unit of work: updates added to it are held back and sent
+    * together on commit, so a menu action that changes several rows is one
+    * transaction instead of one per statement.
+    *
+    * @return the unit of work, on the main database
+    */
+   public UnitOfWork beginWork() {
+      return new UnitOfWork(this, -1);
+   }
+
+   /**
+    * Starts a unit of work on one of the booking shards.
+    *
+    * @param shard the shard number, -1 for the main database
+    * @return the unit of work
+    */
+   public UnitOfWork beginWork(int shard) {
+      return new UnitOfWork(this, shard);
+   }
+
+   /**
+    * Turns read routing on or off for the next menu action.  When on, the
+    * query methods send their statements to a read replica; when off (for
+    * actions that write) everything goes to the primary.
+    *
+    * @param readOnly true if the next action only reads
+    */
+   public void routeReads(boolean readOnly) {
+      this._routeReads = readOnly && !this._readReplicas.isEmpty();
+   }
+
+   /*
+    * Picks the replica for the next read, or -1 for the primary.  A replica
+    * is skipped until it has replayed this session's last write.
+    **/
+   private synchronized int acquireReadReplica() {
+      if (!this._routeReads) {
+         return -1;
+      }
+      int count = this._readReplicas.size();
+      int start = this._nextReadReplica;
+      this._nextReadReplica = (start + 1) % count;
+
+      int chosen = -1;
+      long now = System.currentTimeMillis();
+      for (int i = 0; i < count; i++) {
+         int r = (start + i) % count;
+         if (this._readReplicaDownUntil[r] > now || !caughtUp(r)) {
+            continue;
+         }
+         if (!LEAST_LOADED) {
+            chosen = r;
+            break;
+         }
+         if (chosen < 0 || this._readReplicaLoad.get(r) < this._readReplicaLoad.get(chosen)) {
+            chosen = r;
+         }
+      }
+      if (chosen >= 0) {
+         this._readReplicaLoad.incrementAndGet(chosen);
+      }
+      return chosen;
+   }
+
+   /*
+    * Takes a replica that failed a query out of the rotation for a while, the primary answers in its place
+    **/
+   private synchronized void replicaFailed(int replica) {
+      this._readReplicaDownUntil[replica] = System.currentTimeMillis() + REPLICA_DOWN_MILLIS;
+   }
+
+   private void releaseReadReplica(int replica) {
+      if (replica >= 0) {
+         this._readReplicaLoad.decrementAndGet(replica);
+      }
+   }
+
+   private Connection readConnection(int replica) throws SQLException {
+      if (this._connection == null) {
+         throw new SQLException(NO_DATABASE);
+      }
+      return replica < 0 ? this._connection : this._readReplicas.get(replica);
+   }
+
+   /*
+    * Checks once per write whether a replica has replayed up to it
+    **/
+   private boolean caughtUp(int replica) {
+      String lsn = this._lastWriteLsn;
+      if (lsn == null || this._readReplicaCaughtUp[replica]) {
+         return true;
+      }
+      boolean caughtUp;
+      try {
+         Statement stmt = this._readReplicas.get(replica).createStatement ();
+         ResultSet rs = stmt.executeQuery (String.format(
+            "SELECT pg_last_wal_replay_lsn() >= '%s'::pg_lsn;", lsn));
+         caughtUp = rs.next() && ("t".equals(rs.getString(1)) || "true".equals(rs.getString(1)));
+         stmt.close ();
+      } catch (SQLException e) {
+         return false;
+      }
+      //the journal may have written again meanwhile, then this only answers for the older write
+      synchronized (this) {
+         if (lsn.equals(this._lastWriteLsn)) {
+            this._readReplicaCaughtUp[replica] = caughtUp;
+         }
+      }
+      return caughtUp;
+   }
+
    /**
     * Method to execute an input query SQL instruction (i.e. SELECT).  This
     * method issues the query to the DBMS and outputs the results to
@@ -96,8 +513,46 @@ public class AirlineManagement {
     * @throws java.sql.SQLException when failed to execute the query
     */
    public int executeQueryAndPrintResult (String query) throws SQLException {
+      // a pending export takes this report and sends it to a file instead of the screen
+      String exportFile = this._exportFile;
+      this._exportFile = null;
+      int replica = acquireReadReplica();
+      try {
+         if (replica < 0) {
+            return executeQueryAndPrintResult(readConnection(replica), query, exportFile, System.out);
+         }
+         // a replica's rows are held back until it has answered, so a retry on the primary doesn't print them twice
+         ByteArrayOutputStream held = new ByteArrayOutputStream();
+         PrintStream out = new PrintStream(held, true);
+         int rowCount = executeQueryAndPrintResult(readConnection(replica), query, exportFile, out);
+         out.flush();
+         System.out.print(held.toString());
+         return rowCount;
+      } catch (SQLException e) {
+         if (replica < 0) {
+            throw e;
+         }
+         // the replica is down or failed the query, the primary can always answer a read
+         replicaFailed(replica);
+         return executeQueryAndPrintResult(this._connection, query, exportFile, System.out);
+      } finally {
+         releaseReadReplica(replica);
+      }
+   }
+
+   private int executeQueryAndPrintResult (Connection conn, String query, String exportFile, PrintStream out) throws SQLException {
+      if (exportFile != null) {
+         try {
+            int rowCount = exportCSV(conn, query, exportFile, this._exportGzip);
+            out.println("Exported " + rowCount + " rows to " + exportFile);
+            return rowCount;
+         } catch (IOException e) {
+            throw new SQLException("Unable to write " + exportFile + ": " + e.getMessage());
+         }
+      }
+
       // creates a statement object
-      Statement stmt = this._connection.createStatement ();
+      Statement stmt = conn.createStatement ();
 
       // issues the query instruction
       ResultSet rs = stmt.executeQuery (query);
@@ -115,14 +570,14 @@ public class AirlineManagement {
       while (rs.next()){
 		 if(outputHeader){
 			for(int i = 1; i <= numCol; i++){
-			System.out.print(rsmd.getColumnName(i) + "\t");
+			out.print(rsmd.getColumnName(i) + "\t");
 			}
-			System.out.println();
+			out.println();
 			outputHeader = false;
 		 }
          for (int i=1; i<=numCol; ++i)
-            System.out.print (rs.getString (i) + "\t");
-         System.out.println ();
+            out.print (rs.getString (i) + "\t");
+         out.println ();
          ++rowCount;
       }//end while
       stmt.close();
@@ -139,8 +594,23 @@ public class AirlineManagement {
     * @throws java.sql.SQLException when failed to execute the query
     */
    public List<List<String>> executeQueryAndReturnResult (String query) throws SQLException {
+      int replica = acquireReadReplica();
+      try {
+         return executeQueryAndReturnResult(readConnection(replica), query);
+      } catch (SQLException e) {
+         if (replica < 0) {
+            throw e;
+         }
+         replicaFailed(replica);
+         return executeQueryAndReturnResult(this._connection, query);
+      } finally {
+         releaseReadReplica(replica);
+      }
+   }
+
+   private List<List<String>> executeQueryAndReturnResult (Connection conn, String query) throws SQLException {
       // creates a statement object
-      Statement stmt = this._connection.createStatement ();
+      Statement stmt = conn.createStatement ();
 
       // issues the query instruction
       ResultSet rs = stmt.executeQuery (query);
@@ -175,8 +645,23 @@ public class AirlineManagement {
     * @throws java.sql.SQLException when failed to execute the query
     */
    public int executeQuery (String query) throws SQLException {
+      int replica = acquireReadReplica();
+      try {
+         return executeQuery(readConnection(replica), query);
+      } catch (SQLException e) {
+         if (replica < 0) {
+            throw e;
+         }
+         replicaFailed(replica);
+         return executeQuery(this._connection, query);
+      } finally {
+         releaseReadReplica(replica);
+      }
+   }
+
+   private int executeQuery (Connection conn, String query) throws SQLException {
        // creates a statement object
-       Statement stmt = this._connection.createStatement ();
+       Statement stmt = conn.createStatement ();
 
        // issues the query instruction
        ResultSet rs = stmt.executeQuery (query);
@@ -201,7 +686,7 @@ public class AirlineManagement {
     * @throws java.sql.SQLException when failed to execute the query
     */
    public int getCurrSeqVal(String sequence) throws SQLException {
-	Statement stmt = this._connection.createStatement ();
+	Statement stmt = readConnection(-1).createStatement ();
 
 	ResultSet rs = stmt.executeQuery (String.format("Select currval('%s')", sequence));
 	if (rs.next())
@@ -210,1039 +695,6477 @@ public class AirlineManagement {
    }
 
    /**
-    * Method to close the physical connection if it is open.
+    * @return true if FlightInstance and Reservation are split across shards
     */
-   public void cleanup(){
-      try{
-         if (this._connection != null){
-            this._connection.close ();
-         }//end if
-      }catch (SQLException e){
-         // ignored.
-      }//end try
-   }//end cleanup
+   public boolean isSharded() {
+      return !this._shards.isEmpty();
+   }
 
    /**
-    * The main execution method
+    * Returns the shard that holds a flight's instances and reservations.
+    * It is the Java hashCode of the FlightNumber modulo the number of
+    * shards, the same as flight_shard() in sql/src/shard_data.sql.
     *
-    * @param args the command line arguments this inclues the <mysql|pgsql> <login file>
+    * @param flightNumber the flight number
+    * @return the shard index
     */
-   public static void main (String[] args) {
-      if (args.length != 3) {
-         System.err.println (
-            "Usage: " +
-            "java [-classpath <classpath>] " +
-            AirlineManagement.class.getName () +
-            " <dbname> <port> <user>");
-         return;
-      }//end if
-
-      Greeting();
-      AirlineManagement esql = null;
-      try{
-         // use postgres JDBC driver.
-         Class.forName ("org.postgresql.Driver").newInstance ();
-         // instantiate the AirlineManagement object and creates a physical
-         // connection.
-         String dbname = args[0];
-         String dbport = args[1];
-         String user = args[2];
-         esql = new AirlineManagement (dbname, dbport, user, "");
-
-         boolean keepon = true;
-         while(keepon) {
-            // These are sample SQL statements
-            System.out.println("MAIN MENU");
-            System.out.println("---------");
-            System.out.println("1. Create user");
-            System.out.println("2. Log in");
-            System.out.println("9. < EXIT");
-            String authorisedUser = null;
-            switch (readChoice()){
-               case 1: CreateUser(esql); break;
-               case 2: authorisedUser = LogIn(esql); break;
-               case 9: keepon = false; break;
-               default : System.out.println("Unrecognized choice!"); break;
-            }//end switch
-            if (authorisedUser != null) {
-              boolean usermenu = true;
-              while(usermenu) {
-                System.out.println("MAIN MENU");
-                System.out.println("---------");
-               
-                if (authorisedUser.equals("Manager")) {
-                //**the following functionalities should only be able to be used by Management**
-                System.out.println("1. View Flights");
-                System.out.println("2. View Flight Seats");
-                System.out.println("3. View Flight Status");
-                System.out.println("4. View Flights of the day");  
-                System.out.println("5. View Full Order ID History");
-                System.out.println("6. View Traveler Information");
-                System.out.println("7. View Plane Information");
-                System.out.println("8. View Technician Repairs");
-                System.out.println("9. View Plane Repair History");
-                System.out.println("10. View Flight Statistics");
+   public int shardOf(String flightNumber) {
+      return Math.floorMod(flightNumber.trim().hashCode(), this._shards.size());
+   }
 
-                } else if (authorisedUser.equals("Customer")) {
-                //**the following functionalities should only be able to be used by customers**
-                System.out.println("11. Search Flights");
-                System.out.println("12. View Ticket Costs");
-                System.out.println("13. View Airplane Type for Flight");
-                System.out.println("14. Reserve a Flight (Waitlist if Needed)");
-                System.out.println("19. Extra Feature: Reservation History");
-                System.out.println("21. Extra Feature: Popular Flights");
+   /**
+    * Method to execute a query on one shard and return its rows.
+    *
+    * @param shard the shard index
+    * @param query the input query string
+    * @return the query result as a list of records
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public List<List<String>> executeShardQuery(int shard, String query) throws SQLException {
+      Connection conn = this._shards.get(shard);
+      synchronized (conn) {
+         return executeQueryAndReturnResult(conn, query);
+      }
+   }
 
-                } else if (authorisedUser.equals("Pilot")) {
-                //**the following functionalities should ony be able to be used by Pilots**
-                System.out.println("15. View Pilot Maintenance Requests");
+   /**
+    * Method to execute an update on one shard.
+    *
+    * @param shard the shard index
+    * @param sql the input SQL string
+    * @throws java.sql.SQLException when update failed
+    */
+   public int executeShardUpdate(int shard, String sql) throws SQLException {
+      Connection conn = this._shards.get(shard);
+      synchronized (conn) {
+         Statement stmt = conn.createStatement ();
+         try {
+            return stmt.executeUpdate (sql);
+         } finally {
+            stmt.close ();
+         }
+      }
+   }
 
-                } else if (authorisedUser.equals("Technician")) {
-                //**the following functionalities should ony be able to be used by Technicians**
-                System.out.println("16. View Plane Repair History");
-                System.out.println("17. View Maintenace Requests");
-                System.out.println("18. View Repair Information");
-                System.out.println("22. Extra Feature: View Maintenance Staff");
+   /**
+    * Runs a query on every shard at the same time and returns each shard's
+    * rows, in shard order.
+    *
+    * @param query the input query string
+    * @return one result per shard
+    * @throws java.sql.SQLException when failed to execute the query on any shard
+    */
+   public List<List<List<String>>> executeQueryOnEachShard(final String query) throws SQLException {
+      List<CompletableFuture<List<List<String>>>> futures = new ArrayList<CompletableFuture<List<List<String>>>>();
+      for (int shard = 0; shard < this._shards.size(); shard++) {
+         final int s = shard;
+         futures.add(CompletableFuture.supplyAsync(() -> {
+            try {
+               return executeShardQuery(s, query);
+            } catch (SQLException e) {
+               throw new RuntimeException("Shard " + s + ": " + e.getMessage());
+            }
+         }, this._shardPool));
+      }
+      List<List<List<String>>> results = new ArrayList<List<List<String>>>();
+      try {
+         for (CompletableFuture<List<List<String>>> future : futures) {
+            results.add(future.join());
+         }
+      } catch (RuntimeException e) {
+         throw new SQLException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+      }
+      return results;
+   }
 
-                }
+   /**
+    * Runs a query on every shard at the same time and puts the rows together.
+    *
+    * @param query the input query string
+    * @return the rows of all shards
+    * @throws java.sql.SQLException when failed to execute the query on any shard
+    */
+   public List<List<String>> executeQueryOnAllShards(String query) throws SQLException {
+      List<List<String>> merged = new ArrayList<List<String>>();
+      for (List<List<String>> rows : executeQueryOnEachShard(query)) {
+         merged.addAll(rows);
+      }
+      return merged;
+   }
 
-                System.out.println("20. Log out");
+   /**
+    * Opens another physical connection to the same database.  Used by work
+    * that runs on its own thread, since a single connection can only run one
+    * statement at a time.
+    *
+    * @return a new connection, the caller is responsible for closing it
+    * @throws java.sql.SQLException when failed to make a connection.
+    */
+   public Connection openConnection() throws SQLException {
+      if (this._url == null) {
+         throw new SQLException(NO_DATABASE);
+      }
+      return open(this._url);
+   }
 
-                switch (readChoice()){
-                   case 1: if (authorisedUser.equals("Manager")) feature1(esql); break;
-                   case 2: if (authorisedUser.equals("Manager")) feature2(esql); break;
-                   case 3: if (authorisedUser.equals("Manager")) feature3(esql); break;
-                   case 4: if (authorisedUser.equals("Manager")) feature4(esql); break;
-                   case 5: if (authorisedUser.equals("Manager")) feature5(esql); break;
-                   case 6: if (authorisedUser.equals("Manager")) feature6(esql); break;
-                   case 7: if (authorisedUser.equals("Manager")) feature7(esql); break;
-                   case 8: if (authorisedUser.equals("Manager")) feature8(esql); break;
-                   case 9: if (authorisedUser.equals("Manager")) feature9(esql); break;
-                   case 10: if (authorisedUser.equals("Manager")) feature10(esql); break;
-
-                   case 11: if (authorisedUser.equals("Customer")) feature11(esql); break;
-                   case 12: if (authorisedUser.equals("Customer")) feature12(esql); break;
-                   case 13: if (authorisedUser.equals("Customer")) feature13(esql); break;
-                   case 14: if (authorisedUser.equals("Customer")) feature14(esql); break;
-                   case 19: if (authorisedUser.equals("Customer")) feature19(esql); break;
-                   case 21: if (authorisedUser.equals("Customer")) feature21(esql); break;
-
-                   case 15: if (authorisedUser.equals("Pilot")) feature15(esql); break; 
-
-                   case 16: if (authorisedUser.equals("Technician")) feature16(esql); break; 
-                   case 17: if (authorisedUser.equals("Technician")) feature17(esql); break;
-                   case 18: if (authorisedUser.equals("Technician")) feature18(esql); break;
-                   case 22: if (authorisedUser.equals("Technician")) feature22(esql); break;
-
-                   case 20: usermenu = false; break;
-                   default : System.out.println("Unrecognized choice!"); break;
-                }
-              }
-            }
-         }//end while
-      }catch(Exception e) {
-         System.err.println (e.getMessage ());
-      }finally{
-         // make sure to cleanup the created table and close the connection.
-         try{
-            if(esql != null) {
-               System.out.print("Disconnecting from database...");
-               esql.cleanup ();
-               System.out.println("Done\n\nBye !");
-            }//end if
-         }catch (Exception e) {
+   /**
+    * Opens new connections to the databases that hold FlightInstance and
+    * Reservation: one to each booking shard, or one to the main database
+    * when not sharded.
+    *
+    * @return the connections, the caller is responsible for closing them
+    * @throws java.sql.SQLException when failed to make a connection.
+    */
+   public List<Connection> openBookingConnections() throws SQLException {
+      List<Connection> conns = new ArrayList<Connection>();
+      try {
+         if (this._shardUrls.isEmpty()) {
+            conns.add(openConnection());
+         }
+         for (String url : this._shardUrls) {
+            conns.add(open(url));
+         }
+      } catch (SQLException e) {
+         closeAll(conns);
+         throw e;
+      }
+      return conns;
+   }
+
+   static void closeAll(List<Connection> conns) {
+      for (Connection conn : conns) {
+         try {
+            conn.close();
+         } catch (SQLException e) {
             // ignored.
-         }//end try
-      }//end try
-   }//end main
+         }
+      }
+   }
 
-   public static void Greeting(){
-      System.out.println(
-         "\n\n*******************************************************\n" +
-         "              User Interface      	               \n" +
-         "*******************************************************\n");
-   }//end Greeting
+   /*
+    * Connects to a database, naming the connection after this program when listening for changes
+    **/
+   private Connection open(String url) throws SQLException {
+      Connection conn = DriverManager.getConnection(url, this._user, this._passwd);
+      if (LISTEN) {
+         Statement stmt = conn.createStatement();
+         try {
+            stmt.executeUpdate("SET application_name = '" + INSTANCE_NAME + "';");
+         } finally {
+            stmt.close();
+         }
+      }
+      return traced(conn);
+   }
 
    /*
-    * Reads the users choice given from the keyboard
-    * @int
+    * Wraps a new connection for the tracer when tracing is on
     **/
-   public static int readChoice() {
-      int input;
-      // returns only if a correct value is given.
-      do {
-         System.out.print("Please make your choice: ");
-         try { // read the integer, parse it and break.
-            input = Integer.parseInt(in.readLine());
-            break;
-         }catch (Exception e) {
-            System.out.println("Your input is invalid!");
-            continue;
-         }//end try
-      }while (true);
-      return input;
-   }//end readChoice
+   private static Connection traced(Connection conn) {
+      return TRACER == null ? conn : TRACER.wrap(conn);
+   }
 
-   //HELPER FUNCTION 
-   public static boolean isValidPassword(String password) {
-      if (password.length() < 6) {
-         System.out.println("The password must be at least 6 characters long.");
-         return false; 
+   /*
+    * Opens the trace file, tracing stays off if it can't be opened
+    **/
+   private static Tracer openTracer(String fileName) {
+      if (fileName == null) {
+         return null;
       }
+      try {
+         return new Tracer(fileName);
+      } catch (IOException e) {
+         System.err.println("Tracing is off: " + e.getMessage());
+         return null;
+      }
+   }
 
-      if (!password.matches(".*[A-Z].*")) {
-         System.out.println("The password must contain at least one uppercase letter.");
-         return false;
+   /**
+    * Sends the rows of the next report printed by executeQueryAndPrintResult
+    * to a CSV file instead of the screen.
+    *
+    * @param fileName the output file
+    * @param gzip true to gzip compress the file
+    */
+   public void exportNextResult(String fileName, boolean gzip) {
+      this._exportFile = fileName;
+      this._exportGzip = gzip;
+   }
+
+   /**
+    * Method to execute an input query SQL instruction (i.e. SELECT) and
+    * write the results to a CSV file with a header row.  The rows are read
+    * through a server side cursor a batch at a time and written through a
+    * FileChannel, so large extracts do not have to fit in memory.
+    *
+    * @param query the input query string
+    * @param fileName the output file
+    * @param gzip true to gzip compress the file
+    * @return the number of rows written
+    * @throws java.sql.SQLException when failed to execute the query
+    * @throws java.io.IOException when failed to write the file
+    */
+   public int executeQueryAndExportCSV (String query, String fileName, boolean gzip) throws SQLException, IOException {
+      int replica = acquireReadReplica();
+      try {
+         return exportCSV(readConnection(replica), query, fileName, gzip);
+      } catch (SQLException e) {
+         if (replica < 0) {
+            throw e;
+         }
+         // the file is written again from the start
+         replicaFailed(replica);
+         return exportCSV(this._connection, query, fileName, gzip);
+      } finally {
+         releaseReadReplica(replica);
       }
+   }
 
-      if (!password.matches(".*[!@#$%^&*()].*")) {
-         System.out.println("The password must contain at least one special character (!@#$%^&*()).");
-         return false;
+   /*
+    * Streams the result of a query on the given connection into a CSV file.
+    **/
+   private static int exportCSV(Connection conn, String query, String fileName, boolean gzip) throws SQLException, IOException {
+      return exportCSV(Collections.singletonList(conn), query, fileName, gzip);
+   }
+
+   /*
+    * Streams the results of a query on each connection in turn (ex: the
+    * booking shards) into one CSV file with one header.
+    **/
+   private static int exportCSV(List<Connection> conns, String query, String fileName, boolean gzip) throws SQLException, IOException {
+      CsvWriter writer = new CsvWriter(fileName, gzip);
+      try {
+         int rowCount = 0;
+         for (Connection conn : conns) {
+            rowCount += streamQuery(conn, query, writer);
+         }
+         writer.flush();
+         return rowCount;
+      } finally {
+         writer.close();
       }
-      return true;
    }
 
-   public static void CreateUser(AirlineManagement esql) {
+   /*
+    * Writes rows already in memory (ex: a report of the in-memory store)
+    * into a CSV file, through the same writer as a query's rows.
+    **/
+   private static int exportCSV(String[] columns, List<List<String>> rows, String fileName, boolean gzip) throws IOException {
+      CsvWriter writer = new CsvWriter(fileName, gzip);
       try {
-         String userName, password, role;
+         writer.write(Arrays.asList(columns));
+         for (List<String> row : rows) {
+            writer.write(row);
+         }
+         writer.flush();
+         return rows.size();
+      } finally {
+         writer.close();
+      }
+   }
 
-         //figure out what type of role the user is 
-         do {
-            System.out.println("Please enter your role (Customer, Pilot, Technician, Manager): ");
-            role = in.readLine().trim();
-            role = role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
-            if (!(role.equals("Customer") || role.equals("Pilot") || role.equals("Technician") || role.equals("Manager"))) {
-               System.out.println("This is an invalid role. Please correctly enter Customer, Pilot, Technician, or Manager.");
-               role = "";
-            }
-         } while (role.isEmpty());
+   /*
+    * The CSV file of an export, written through a FileChannel a buffer at a
+    * time.  As a RowHandler it writes the header from the columns of the
+    * first fetch, so an empty result still gets one, and then each row.
+    **/
+   private static class CsvWriter implements RowHandler {
+
+      private final FileOutputStream file;
+      private final WritableByteChannel out;
+      private final ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+      private final StringBuilder line = new StringBuilder();
+      private boolean outputHeader = true;
+
+      CsvWriter(String fileName, boolean gzip) throws IOException {
+         this.file = new FileOutputStream(fileName);
+         FileChannel channel = this.file.getChannel();
+         this.out = gzip
+            ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), 65536))
+            : channel;
+      }
 
-         //now getting the userName and password 
-         do {
-            System.out.println("Please enter a username: "); 
-            userName = in.readLine().trim();
-         } while (userName.isEmpty()); 
+      public void start(ResultSetMetaData rsmd) throws SQLException, IOException {
+         if (!this.outputHeader) {
+            return;
+         }
+         this.outputHeader = false;
+         List<String> columns = new ArrayList<String>();
+         for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+            columns.add(rsmd.getColumnName(i));
+         }
+         write(columns);
+      }
 
-         do {
-            System.out.println("Please enter your password: "); 
-            password = in.readLine().trim(); 
-         } while (!isValidPassword(password)); 
+      public void handle(ResultSet rs) throws SQLException, IOException {
+         int numCol = rs.getMetaData().getColumnCount();
+         List<String> values = new ArrayList<String>(numCol);
+         for (int i = 1; i <= numCol; i++) {
+            values.add(rs.getString(i));
+         }
+         write(values);
+      }
 
-         String userID = ""; 
+      void write(List<String> values) throws IOException {
+         this.line.setLength(0);
+         for (int i = 0; i < values.size(); i++) {
+            if (i > 0) this.line.append(',');
+            this.line.append(csvField(values.get(i)));
+         }
+         this.line.append('\n');
+         writeBuffered(this.out, this.buffer, this.line.toString().getBytes(StandardCharsets.UTF_8));
+      }
 
-         if (role.equals("Customer")) {
-            //extra information needed for customer 
-            String firstName, lastName, gender, dob, address, phoneNumber, zipcode;
-            
-            do {
-               System.out.print("Please Enter Your First Name: ");
-               firstName = in.readLine().trim();
-            } while (firstName.isEmpty());
-            
-            do {
-               System.out.print("Please Enter Your Last Name: ");
-               lastName = in.readLine().trim();
-            } while (lastName.isEmpty());
-            
-            do {
-               System.out.print("Please Enter Your Gender (M/F): ");
-               gender = in.readLine().trim().toUpperCase();
-               if (!gender.equals("M") && !gender.equals("F")) {
-                  System.out.println("This is an Invalid gender. Please enter M or F.");
-                  gender = "";
-               }
-            } while (gender.isEmpty());
-            
-            do {
-               System.out.print("Please Enter DOB (YYYY-MM-DD): ");
-               dob = in.readLine().trim();
-               if (!dob.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                  System.out.println("This is an Invalid date format. Use YYYY-MM-DD.");
-                  dob = "";
-               }
-            } while (dob.isEmpty());
+      void flush() throws IOException {
+         this.buffer.flip();
+         while (this.buffer.hasRemaining()) {
+            this.out.write(this.buffer);
+         }
+         this.buffer.clear();
+      }
 
-            do {
-               System.out.print("Please Enter Your Address: ");
-               address = in.readLine().trim();
-            } while (address.isEmpty());
+      void close() throws IOException {
+         this.out.close();
+         this.file.close();
+      }
+   }
 
-            do {
-               System.out.print("Please Enter Your Phone Number: ");
-               phoneNumber = in.readLine().trim();
-               if (!phoneNumber.matches("[0-9()+\\-\\.x ]{7,30}")) {
-                  System.out.println("This is an Invalid phone number format.");
-                  phoneNumber = "";
-               }
-            } while (phoneNumber.isEmpty());
+   /**
+    * Called once per row by streamQuery, with the ResultSet positioned on the row.
+    */
+   interface RowHandler {
+      void handle(ResultSet rs) throws SQLException, IOException;
 
-            do {
-                  System.out.print("Please Enter Your Zipcode: ");
-                  zipcode = in.readLine().trim();
-                  if (!zipcode.matches("\\d{5}")) {
-                     System.out.println("The Zipcode must be exactly 5 digits.");
-                     zipcode = "";
-                  }
-            } while (zipcode.isEmpty());
+      /**
+       * Called once with the columns of the result before the first row,
+       * also when there are no rows.
+       */
+      default void start(ResultSetMetaData rsmd) throws SQLException, IOException {
+      }
+   }
 
-            String query = "SELECT MAX(CustomerID) FROM Customer;";
-            List<List<String>> resultList = esql.executeQueryAndReturnResult(query);
-            
-            //Creating Unqiue CustomerID
-            int nextCustomerID = 1;
-            if (!resultList.isEmpty() && resultList.get(0).get(0) != null) {
-                  nextCustomerID = Integer.parseInt(resultList.get(0).get(0)) + 1;
-               }
+   /*
+    * Runs a query through a server side cursor, pulling EXPORT_FETCH_SIZE rows
+    * at a time, and hands each row to the handler.  Cursors only live inside a
+    * transaction, so autocommit is turned off while the cursor is open and
+    * restored after.
+    **/
+   private static int streamQuery(Connection conn, String query, RowHandler handler) throws SQLException, IOException {
+      // cursors can't be declared over a statement that ends with a semicolon
+      query = query.trim();
+      if (query.endsWith(";")) {
+         query = query.substring(0, query.length() - 1);
+      }
 
-            userID = Integer.toString(nextCustomerID);
-            
-            //New User Intersertion 
-            String insertCustomerQuery = String.format(
-               "INSERT INTO Customer (CustomerID, FirstName, LastName, Gender, DOB, Address, Phone, Zip) " + 
-               "VALUES (%d, '%s', '%s', '%s', '%s', '%s', '%s', '%s');", 
-               nextCustomerID, firstName, lastName, gender, dob, address, phoneNumber, zipcode);
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      Statement stmt = conn.createStatement();
+      int rowCount = 0;
+      try {
+         stmt.execute("DECLARE stream_cursor NO SCROLL CURSOR FOR " + query);
+         boolean more = true;
+         boolean started = false;
+         while (more) {
+            ResultSet rs = stmt.executeQuery("FETCH FORWARD " + EXPORT_FETCH_SIZE + " FROM stream_cursor");
+            if (!started) {
+               handler.start(rs.getMetaData());
+               started = true;
+            }
+            more = false;
+            while (rs.next()) {
+               more = true;
+               handler.handle(rs);
+               ++rowCount;
+            }
+            rs.close();
+         }
+         stmt.execute("CLOSE stream_cursor");
+         conn.commit();
+      } catch (SQLException | IOException e) {
+         conn.rollback();
+         throw e;
+      } finally {
+         stmt.close();
+         conn.setAutoCommit(autoCommit);
+      }
+      return rowCount;
+   }
 
-            esql.executeUpdate(insertCustomerQuery);
+   /*
+    * Copies bytes into the buffer, handing it to the channel each time it fills up
+    **/
+   private static void writeBuffered(WritableByteChannel out, ByteBuffer buffer, byte[] bytes) throws IOException {
+      int offset = 0;
+      while (offset < bytes.length) {
+         int n = Math.min(buffer.remaining(), bytes.length - offset);
+         buffer.put(bytes, offset, n);
+         offset += n;
+         if (!buffer.hasRemaining()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+               out.write(buffer);
+            }
+            buffer.clear();
+         }
+      }
+   }
 
-         } else if (role.equals("Pilot")) {
-            //checking if there is an existing pilotID (validiation)
-            do {
-               System.out.println("Please enter the existing Pilot ID: "); 
-               String pilotID = in.readLine().trim(); 
+   /*
+    * Quotes a CSV value when it has a comma, quote, or newline in it (ex: Customer addresses)
+    **/
+   private static String csvField(String value) {
+      if (value == null) {
+         return "";
+      }
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+         return value;
+      }
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+   }
 
-               if (pilotID.isEmpty()) {
-                  System.out.println("The pilot ID can't be empty");
-                  continue; 
-               }
+   /**
+    * Opens the booking journal, applying any bookings a previous run left in
+    * it, and starts the thread that writes new bookings to the database.
+    *
+    * @param fileName the journal file, created if it does not exist
+    * @throws java.io.IOException when failed to map the file
+    * @throws java.sql.SQLException when failed to connect the writer thread
+    */
+   public void openJournal(String fileName) throws IOException, SQLException {
+      long size = Long.getLong("airline.journal.size", 64) * 1024 * 1024;
+      this._journal = new ReservationJournal(this, new File(fileName), size);
+   }
 
-               String query = String.format("SELECT * FROM Pilot WHERE PilotID = '%s';", pilotID);
-               if (esql.executeQuery(query) > 0) {
-                  userID = pilotID;
-                  break;
-               } else {
-                  System.out.println("This is an invalid Pilot ID.");
-               }
-            } while (true);
-         } else if (role.equals("Technician")) {
-            //check if there is an existing technician id
-            do {
-               System.out.println("Please enter tthe existing technician ID: "); 
-               String technicianID = in.readLine().trim();
+   /**
+    * Turns on the in memory copy of the flight tables so customer searches
+    * (features 2, 11, 12, 13, 26) are answered without a query.  The tables
+    * are loaded by the first search that uses it, not at startup.
+    */
+   public void enableReplica() {
+      this._replica = new FlightReplica();
+      this._replicaRefreshedAt = 0;
+   }
 
-               if (technicianID.isEmpty()) {
-                  System.out.println("The technician ID can't be empty.");
-                  continue;
-               }
+   /**
+    * Returns the in memory copy of the flight tables, pulling in any new
+    * flight instances and seat counts first if it is older than the refresh
+    * interval.
+    *
+    * @return the replica, or null when it is turned off
+    * @throws java.sql.SQLException when failed to refresh the replica
+    */
+   public synchronized FlightReplica getReplica() throws SQLException {
+      if (this._replica != null && System.currentTimeMillis() - this._replicaRefreshedAt > REPLICA_REFRESH_MILLIS) {
+         this._replica.refresh(this);
+         this._replicaRefreshedAt = System.currentTimeMillis();
+      }
+      return this._replica;
+   }
+
+   /**
+    * Returns the seat map of a flight instance, loading the seats of its
+    * reservations on first use.
+    *
+    * @param flightInstanceID the flight instance
+    * @param flightDate its FlightDate
+    * @param shard the booking shard it is on, -1 when not sharded
+    * @param seatsTotal its SeatsTotal
+    * @param seatsSold its SeatsSold
+    * @return the seat map
+    * @throws java.sql.SQLException when failed to load the seats
+    */
+   public SeatMap getSeatMap(int flightInstanceID, String flightDate, int shard, int seatsTotal, int seatsSold) throws SQLException {
+      SeatMap seatMap = this._seatMaps.get(flightInstanceID);
+      if (seatMap != null) {
+         return seatMap;
+      }
+      String query = String.format(
+         "SELECT SeatNumber FROM Reservation " +
+         "WHERE FlightInstanceID = %d AND FlightDate = '%s' AND Status = 'reserved' AND SeatNumber IS NOT NULL;",
+         flightInstanceID, flightDate);
+      List<Integer> taken = new ArrayList<Integer>();
+      for (List<String> row : shard >= 0 ? executeShardQuery(shard, query) : executeQueryAndReturnResult(query)) {
+         taken.add(Integer.parseInt(row.get(0).trim()));
+      }
+      //seats sold before there were seat numbers still take up seats
+      int unassigned = seatsSold - taken.size();
+      if (this._journal != null) {
+         List<Integer> journaled = this._journal.pendingSeatNumbers(flightInstanceID);
+         unassigned += this._journal.pendingSeats(flightInstanceID) - journaled.size();
+         taken.addAll(journaled);
+      }
+      SeatMap loaded = new SeatMap(seatsTotal, taken, unassigned);
+      seatMap = this._seatMaps.putIfAbsent(flightInstanceID, loaded);
+      return seatMap != null ? seatMap : loaded;
+   }
+
+   /**
+    * Returns the threads the fleet dashboard runs its sections on, one per
+    * pooled connection.
+    *
+    * @return the thread pool
+    */
+   public synchronized ExecutorService dashboardPool() {
+      if (this._dashboardPool == null) {
+         this._dashboardPool = Executors.newFixedThreadPool(DASHBOARD_CONNECTIONS);
+      }
+      return this._dashboardPool;
+   }
+
+   /**
+    * Runs one dashboard section, on its shard or on a pooled connection,
+    * and records its rows, column names and time in the section.
+    *
+    * @param section the section to run
+    */
+   public void runSection(DashboardSection section) {
+      long started = System.currentTimeMillis();
+      Connection conn = null;
+      try {
+         if (section.shard >= 0) {
+            conn = this._shards.get(section.shard);
+            synchronized (conn) {
+               readSection(conn, section);
+            }
+            conn = null;
+         } else {
+            //connections are opened as they are needed and kept for the next dashboard
+            conn = this._dashboardConnections.poll();
+            if (conn == null) {
+               conn = openConnection();
+            }
+            readSection(conn, section);
+         }
+      } catch (Exception e) {
+         //a section that fails is reported on its own, the others still print
+         section.error = e.getMessage() != null ? e.getMessage() : e.toString();
+      } finally {
+         if (conn != null) {
+            this._dashboardConnections.offer(conn);
+         }
+         section.millis = System.currentTimeMillis() - started;
+      }
+   }
+
+   /*
+    * Reads a section's rows and column names
+    **/
+   private static void readSection(Connection conn, DashboardSection section) throws SQLException {
+      Statement stmt = conn.createStatement ();
+      try {
+         ResultSet rs = stmt.executeQuery (section.query);
+         ResultSetMetaData rsmd = rs.getMetaData ();
+         int numCol = rsmd.getColumnCount ();
+         section.columns = new String[numCol];
+         for (int i = 1; i <= numCol; ++i) {
+            section.columns[i - 1] = rsmd.getColumnName (i);
+         }
+         List<List<String>> rows = new ArrayList<List<String>>();
+         while (rs.next()) {
+            List<String> row = new ArrayList<String>();
+            for (int i = 1; i <= numCol; ++i) {
+               row.add(rs.getString (i));
+            }
+            rows.add(row);
+         }
+         section.rows = rows;
+      } finally {
+         stmt.close ();
+      }
+   }
+
+   /**
+    * Starts building the operations board in the background, so it is
+    * ready by the time feature4 asks for it.
+    */
+   public synchronized void startBoard() {
+      if (this._boardBuilding == null && this._connection != null) {
+         this._boardBuilding = CompletableFuture.supplyAsync(() -> {
+            try {
+               return new OperationsBoard(this);
+            } catch (SQLException e) {
+               throw new CompletionException(e);
+            }
+         });
+      }
+   }
+
+   /**
+    * Returns the operations board, waiting for it if it is still being built.
+    *
+    * @return the board
+    * @throws java.sql.SQLException when failed to build the board
+    */
+   public OperationsBoard getBoard() throws SQLException {
+      if (this._connection == null) {
+         throw new SQLException(NO_DATABASE);
+      }
+      startBoard();
+      if (this._board == null) {
+         try {
+            this._board = this._boardBuilding.join();
+         } catch (CompletionException e) {
+            //try again next time
+            this._boardBuilding = null;
+            throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getMessage());
+         }
+      }
+      return this._board;
+   }
+
+   /**
+    * Returns the repair history, loading it on first use and pulling in
+    * repairs added by other sessions if it is older than the refresh
+    * interval.
+    *
+    * @return the repair history
+    * @throws java.sql.SQLException when failed to load the new repairs
+    */
+   public synchronized RepairHistory getRepairHistory() throws SQLException {
+      if (this._repairHistory == null) {
+         this._repairHistory = new RepairHistory();
+      }
+      if (System.currentTimeMillis() - this._repairHistoryRefreshedAt > REPAIR_HISTORY_REFRESH_MILLIS) {
+         this._repairHistory.refresh(this);
+         this._repairHistoryRefreshedAt = System.currentTimeMillis();
+      }
+      return this._repairHistory;
+   }
+
+   /**
+    * Returns the open maintenance backlog, loading it on first use and
+    * pulling in new requests and repairs if it is older than the refresh
+    * interval.
+    *
+    * @return the backlog
+    * @throws java.sql.SQLException when failed to load the new rows
+    */
+   public synchronized MaintenanceBacklog getBacklog() throws SQLException {
+      if (this._backlog == null) {
+         this._backlog = new MaintenanceBacklog();
+      }
+      if (System.currentTimeMillis() - this._backlogRefreshedAt > REPAIR_HISTORY_REFRESH_MILLIS) {
+         this._backlog.refresh(this);
+         this._backlogRefreshedAt = System.currentTimeMillis();
+      }
+      return this._backlog;
+   }
+
+   /**
+    * Returns the customer directory, opening the file from the last build or
+    * building it if there is none yet.
+    *
+    * @param rebuild true to rebuild the file from the Customer table first
+    * @return the customer directory
+    * @throws java.sql.SQLException when failed to read the Customer table
+    * @throws java.io.IOException when failed to read or write the file
+    */
+   public CustomerDirectory getCustomerDirectory(boolean rebuild) throws SQLException, IOException {
+      //the directory is built from the Customer table, an existing file is not truncated without one
+      requireDatabase();
+      if (rebuild || (this._customerDirectory == null && !new File(CUSTOMER_DIRECTORY_FILE).exists())) {
+         this._customerDirectory = null;
+         System.out.println("Building the customer directory...");
+         CustomerDirectory.build(this._connection, CUSTOMER_DIRECTORY_FILE);
+      }
+      if (this._customerDirectory == null) {
+         this._customerDirectory = CustomerDirectory.open(CUSTOMER_DIRECTORY_FILE);
+      }
+      return this._customerDirectory;
+   }
+
+   /**
+    * Starts listening for the changes other programs make to the main
+    * database and the shards.  Needs the triggers of
+    * sql/src/create_change_triggers.sql, the caches only go by their
+    * refresh intervals without them.
+    */
+   public void startChangeListener() {
+      List<String> urls = new ArrayList<String>();
+      urls.add(this._url);
+      urls.addAll(this._shardUrls);
+      try {
+         this._changeListener = new ChangeListener(this, urls);
+      } catch (SQLException e) {
+         System.err.println("Not listening for changes (run sql/src/create_change_triggers.sql first): " + e.getMessage());
+      }
+   }
+
+   /**
+    * Drops or patches what this program has cached of a row that another
+    * program changed.  Called by the change listener.
+    *
+    * @param table the table of the row
+    * @param key the row's key (a reservation gives its FlightInstanceID)
+    * @param op I, U or D for an insert, update or delete
+    */
+   public synchronized void applyChange(String table, String key, char op) {
+      key = key == null ? null : key.trim();
+      OperationsBoard board = this._board;
+      if (table.equals("FlightInstance") || table.equals("Reservation")) {
+         //the seats are loaded again on the next booking of the flight instance
+         if (key != null) {
+            this._seatMaps.remove(Integer.parseInt(key));
+         }
+         this._replicaRefreshedAt = 0;
+         if (board != null) {
+            board.changed(false);
+         }
+      } else if (table.equals("Flight") || table.equals("Schedule") || table.equals("Plane")) {
+         this._replicaRefreshedAt = 0;
+         if (board != null) {
+            board.changed(true);
+         }
+         if (table.equals("Plane") && op == 'I' && key != null) {
+            addKey(table, key);
+         }
+      } else if (table.equals("Repair") || table.equals("MaintenanceRequest")) {
+         //the refreshes only pull in new IDs, a changed or deleted row means loading it all again
+         if (table.equals("Repair")) {
+            this._repairHistoryRefreshedAt = 0;
+            if (op != 'I') {
+               this._repairHistory = null;
+            }
+         }
+         this._backlogRefreshedAt = 0;
+         if (op != 'I') {
+            this._backlog = null;
+         }
+      } else if (table.equals("Customer") || table.equals("Pilot") || table.equals("Technician")) {
+         if (op == 'I' && key != null) {
+            addKey(table, key);
+         }
+      } else if (table.equals("Login")) {
+         //a changed password or role logs the user out
+         if (op != 'I' && key != null) {
+            SESSIONS.revokeUser(key);
+         }
+         //the Login filter is of userNames, which the change doesn't carry
+         if (this._keyFiltersBuiltAt.containsKey(table)) {
+            this._keyFiltersBuiltAt.put(table, 0L);
+         }
+      }
+   }
+
+   /**
+    * Checks a key against the Bloom filter of its table.  A false answer
+    * means the key is definitely not in the table, a true answer means it
+    * probably is and the database should be asked.
+    *
+    * The filter knows this program's own inserts (see addKey), and the
+    * rows of other programs once the change listener adds them or the
+    * filter is rebuilt.  Until then a key another program just added is
+    * turned away; with -Dairline.bloom.confirm=true (and no listener) a
+    * miss is looked up in the database, and added, instead.
+    *
+    * @param table one of Login, Pilot, Technician, Customer, Plane
+    * @param key the userName or ID to look for
+    * @return false if the key is definitely not in the table
+    * @throws java.sql.SQLException when failed to build the filter
+    */
+   public synchronized boolean mightExist(String table, String key) throws SQLException {
+      BloomFilter filter = this._keyFilters.get(table);
+      Long builtAt = this._keyFiltersBuiltAt.get(table);
+      if (filter == null || System.currentTimeMillis() - builtAt > KEY_FILTER_REFRESH_MILLIS) {
+         filter = buildKeyFilter(table);
+         this._keyFilters.put(table, filter);
+         this._keyFiltersBuiltAt.put(table, System.currentTimeMillis());
+      }
+      key = normalizeKey(key);
+      if (filter.mightContain(key)) {
+         return true;
+      }
+      if (!KEY_FILTER_CONFIRM_MISSES || this._changeListener != null) {
+         return false;
+      }
+      //CustomerID is an integer column, anything else can't be in it
+      if (table.equals("Customer") && !key.matches("[0-9]+")) {
+         return false;
+      }
+      String query = String.format("SELECT 1 FROM %s WHERE %s = '%s' LIMIT 1;", table, keyColumn(table), key.replace("'", "''"));
+      if (executeQuery(query) == 0) {
+         return false;
+      }
+      filter.add(key);
+      return true;
+   }
+
+   /**
+    * Adds a key that this program just inserted to its table's filter.
+    *
+    * @param table one of Login, Pilot, Technician, Customer, Plane
+    * @param key the userName or ID that was inserted
+    */
+   public synchronized void addKey(String table, String key) {
+      BloomFilter filter = this._keyFilters.get(table);
+      if (filter != null) {
+         filter.add(normalizeKey(key));
+      }
+   }
+
+   /*
+    * Keys are hashed trimmed and with the leading zeros of a number dropped,
+    * so "042" finds customer 42 the way the SQL comparison does
+    **/
+   private static String normalizeKey(String key) {
+      key = key.trim();
+      return key.matches("[0-9]+") ? key.replaceFirst("^0+(?=.)", "") : key;
+   }
+
+   private static String keyColumn(String table) throws SQLException {
+      if (table.equals("Login")) return "userName";
+      if (table.equals("Pilot")) return "PilotID";
+      if (table.equals("Technician")) return "TechnicianID";
+      if (table.equals("Customer")) return "CustomerID";
+      if (table.equals("Plane")) return "PlaneID";
+      throw new SQLException("There is no key filter for " + table);
+   }
+
+   /*
+    * Streams the key column of a table into a new filter sized for its row count
+    **/
+   private BloomFilter buildKeyFilter(String table) throws SQLException {
+      String column = keyColumn(table);
+
+      List<List<String>> count = executeQueryAndReturnResult("SELECT COUNT(*) FROM " + table + ";");
+      final BloomFilter filter = new BloomFilter(Integer.parseInt(count.get(0).get(0)) + 1000, 0.01);
+      try {
+         streamQuery(this._connection, "SELECT " + column + " FROM " + table, new RowHandler() {
+            public void handle(ResultSet rs) throws SQLException {
+               String key = rs.getString(1);
+               if (key != null) {
+                  filter.add(normalizeKey(key));
+               }
+            }
+         });
+      } catch (IOException e) {
+         throw new SQLException(e.getMessage());
+      }
+      return filter;
+   }
+
+   /**
+    * Prints rows that were not read straight from a ResultSet in the same
+    * layout as executeQueryAndPrintResult.
+    *
+    * @param columns the column names
+    * @param rows the rows to print
+    * @return the number of rows printed
+    */
+   public static int printResult(String[] columns, List<List<String>> rows) {
+      if (rows.isEmpty()) {
+         return 0;
+      }
+      for (String column : columns) {
+         System.out.print(column + "\t");
+      }
+      System.out.println();
+      for (List<String> row : rows) {
+         for (String value : row) {
+            System.out.print(value + "\t");
+         }
+         System.out.println();
+      }
+      return rows.size();
+   }
+
+   /**
+    * Prints the rows of a report like printResult, or writes them to the
+    * CSV file of a pending export (see exportNextResult) instead.  The
+    * query of a QueryRows is streamed into the file by exportCSV, the same
+    * as executeQueryAndPrintResult does, instead of being read into memory.
+    *
+    * @param columns the column names
+    * @param rows the rows of the report
+    * @return the number of rows
+    * @throws java.sql.SQLException when failed to execute the query of a QueryRows
+    * @throws java.io.IOException when failed to write the file
+    */
+   public int printReport(String[] columns, List<List<String>> rows) throws SQLException, IOException {
+      if (this._exportFile == null) {
+         return printResult(columns, rows);
+      }
+      if (rows instanceof QueryRows && ((QueryRows) rows).shard < 0) {
+         //with the read replica fallback
+         return executeQueryAndPrintResult(((QueryRows) rows).query);
+      }
+      String fileName = this._exportFile;
+      this._exportFile = null;
+      int rowCount;
+      if (rows instanceof QueryRows) {
+         Connection shard = this._shards.get(((QueryRows) rows).shard);
+         synchronized (shard) {
+            rowCount = exportCSV(shard, ((QueryRows) rows).query, fileName, this._exportGzip);
+         }
+      } else {
+         rowCount = exportCSV(columns, rows, fileName, this._exportGzip);
+      }
+      System.out.println("Exported " + rowCount + " rows to " + fileName);
+      return rowCount;
+   }
+
+   /**
+    * Whether the next report goes to a CSV file (see exportNextResult).
+    *
+    * @return true when an export is pending
+    */
+   public boolean isExportPending() {
+      return this._exportFile != null;
+   }
+
+   /**
+    * The report of a query the JDBC store has not run because an export is
+    * pending, for printReport to stream into the file.  It has no rows.
+    */
+   static class QueryRows extends AbstractList<List<String>> {
+
+      final String query;
+      // the shard to run the query on, -1 for the main database
+      final int shard;
+
+      QueryRows(String query, int shard) {
+         this.query = query;
+         this.shard = shard;
+      }
+
+      public List<String> get(int index) {
+         throw new IndexOutOfBoundsException("The rows of an export are streamed into its file");
+      }
+
+      public int size() {
+         return 0;
+      }
+   }
+
+   /**
+    * Method to close the physical connection if it is open.
+    */
+   public void cleanup(){
+      try{
+         if (this._changeListener != null) {
+            this._changeListener.close();
+         }
+         if (this._connection != null){
+            this._connection.close ();
+         }//end if
+         for (Connection replica : this._readReplicas) {
+            replica.close ();
+         }
+         for (Connection shard : this._shards) {
+            shard.close ();
+         }
+         if (this._journal != null) {
+            this._journal.close();
+         }
+         if (this._board != null) {
+            this._board.close();
+         }
+         if (this._dashboardPool != null) {
+            this._dashboardPool.shutdown();
+         }
+         for (Connection conn : this._dashboardConnections) {
+            conn.close ();
+         }
+         if (this._shardPool != null) {
+            this._shardPool.shutdown();
+         }
+      }catch (SQLException e){
+         // ignored.
+      }//end try
+   }//end cleanup
+
+   /**
+    * The main execution method
+    *
+    * @param args the command line arguments this inclues the <mysql|pgsql> <login file>
+    */
+   public static void main (String[] args) {
+      if (args.length != 3) {
+         System.err.println (
+            "Usage: " +
+            "java [-classpath <classpath>] " +
+            AirlineManagement.class.getName () +
+            " <dbname> <port> <user>");
+         return;
+      }//end if
+
+      long mainStarted = System.currentTimeMillis();
+      Greeting();
+      AirlineManagement esql = null;
+      try{
+         String dbname = args[0];
+         String dbport = args[1];
+         String user = args[2];
+
+         // in fast startup the connection is made on another thread while the menu is shown and the first choice,
+         // the user name and the password are typed, it is only waited for when the database is first needed
+         CompletableFuture<AirlineManagement> connecting = CompletableFuture.supplyAsync(() -> connect(dbname, dbport, user));
+         AirlineManagement[] connected = new AirlineManagement[1];
+         Supplier<AirlineManagement> database = () -> {
+            if (connected[0] == null) {
+               long waitStarted = System.currentTimeMillis();
+               connected[0] = connecting.join();
+               printStartupTimes(mainStarted, System.currentTimeMillis() - waitStarted);
+            }
+            return connected[0];
+         };
+         if (!FAST_START) {
+            connected[0] = connecting.join();
+            esql = connected[0];
+            printStartupTimes(mainStarted, 0);
+         }
+
+         boolean keepon = true;
+         while(keepon) {
+            // These are sample SQL statements
+            System.out.println("MAIN MENU");
+            System.out.println("---------");
+            System.out.println("1. Create user");
+            System.out.println("2. Log in");
+            System.out.println("9. < EXIT");
+            String session = null;
+            int mainChoice = readChoice();
+            if (esql != null) {
+               esql.routeReads(false);
+            }
+            if (TRACER != null) {
+               TRACER.begin(mainChoice == 1 ? "CreateUser" : mainChoice == 2 ? "LogIn" : "menu " + mainChoice);
+            }
+            switch (mainChoice){
+               case 1: CreateUser(database); break;
+               case 2: session = LogIn(database); break;
+               case 9: keepon = false; break;
+               default : System.out.println("Unrecognized choice!"); break;
+            }//end switch
+            // a connection that failed ends the program as it did before the menu
+            if (esql == null && connecting.isCompletedExceptionally()) {
+               connecting.join();
+            }
+            esql = connected[0];
+            if (TRACER != null) {
+               TRACER.end();
+            }
+            if (session != null) {
+              boolean usermenu = true;
+              while(usermenu) {
+                // each step is authorised by its session, so a revoked or expired session ends the menu
+                // and a feature only runs while the session still holds its role
+                SessionStore.Session current = SESSIONS.lookup(session);
+                if (current == null) {
+                   System.out.println("Your session has ended, please log in again.");
+                   break;
+                }
+                String authorisedUser = current.role;
+                System.out.println("MAIN MENU");
+                System.out.println("---------");
+               
+                if (authorisedUser.equals("Manager")) {
+                //**the following functionalities should only be able to be used by Management**
+                esql.startBoard();
+                System.out.println("1. View Flights");
+                System.out.println("2. View Flight Seats");
+                System.out.println("3. View Flight Status");
+                System.out.println("4. View Flights of the day");  
+                System.out.println("5. View Full Order ID History");
+                System.out.println("6. View Traveler Information");
+                System.out.println("7. View Plane Information");
+                System.out.println("8. View Technician Repairs");
+                System.out.println("9. View Plane Repair History");
+                System.out.println("10. View Flight Statistics");
+                System.out.println("23. Export Data to CSV");
+                System.out.println("24. Search Travelers by Name or Phone");
+                System.out.println("25. Manage Date Partitions");
+                System.out.println("28. Generate Flight Instances from Schedule");
+                System.out.println("29. Fleet Dashboard");
+
+                } else if (authorisedUser.equals("Customer")) {
+                //**the following functionalities should only be able to be used by customers**
+                System.out.println("11. Search Flights");
+                System.out.println("12. View Ticket Costs");
+                System.out.println("13. View Airplane Type for Flight");
+                System.out.println("14. Reserve a Flight (Waitlist if Needed)");
+                System.out.println("19. Extra Feature: Reservation History");
+                System.out.println("21. Extra Feature: Popular Flights");
+                System.out.println("26. Fare Calendar (Flexible Dates)");
+
+                } else if (authorisedUser.equals("Pilot")) {
+                //**the following functionalities should ony be able to be used by Pilots**
+                System.out.println("15. View Pilot Maintenance Requests");
+
+                } else if (authorisedUser.equals("Technician")) {
+                //**the following functionalities should ony be able to be used by Technicians**
+                System.out.println("16. View Plane Repair History");
+                System.out.println("17. View Maintenace Requests");
+                System.out.println("18. View Repair Information");
+                System.out.println("22. Extra Feature: View Maintenance Staff");
+                System.out.println("27. View Open Maintenance Backlog");
+
+                }
+
+                System.out.println("20. Log out");
+
+                int choice = readChoice();
+                esql.routeReads(READ_ONLY_CHOICES.contains(choice));
+                if (TRACER != null) {
+                   TRACER.begin("feature" + choice);
+                }
+                switch (choice){
+                   case 1: if (SESSIONS.authorise(session, "Manager")) feature1(esql); break;
+                   case 2: if (SESSIONS.authorise(session, "Manager")) feature2(esql); break;
+                   case 3: if (SESSIONS.authorise(session, "Manager")) feature3(esql); break;
+                   case 4: if (SESSIONS.authorise(session, "Manager")) feature4(esql); break;
+                   case 5: if (SESSIONS.authorise(session, "Manager")) feature5(esql); break;
+                   case 6: if (SESSIONS.authorise(session, "Manager")) feature6(esql); break;
+                   case 7: if (SESSIONS.authorise(session, "Manager")) feature7(esql); break;
+                   case 8: if (SESSIONS.authorise(session, "Manager")) feature8(esql); break;
+                   case 9: if (SESSIONS.authorise(session, "Manager")) feature9(esql); break;
+                   case 10: if (SESSIONS.authorise(session, "Manager")) feature10(esql); break;
+                   case 23: if (SESSIONS.authorise(session, "Manager")) feature23(esql); break;
+                   case 24: if (SESSIONS.authorise(session, "Manager")) feature24(esql); break;
+                   case 25: if (SESSIONS.authorise(session, "Manager")) feature25(esql); break;
+                   case 28: if (SESSIONS.authorise(session, "Manager")) feature28(esql); break;
+                   case 29: if (SESSIONS.authorise(session, "Manager")) feature29(esql); break;
+
+                   case 11: if (SESSIONS.authorise(session, "Customer")) feature11(esql); break;
+                   case 12: if (SESSIONS.authorise(session, "Customer")) feature12(esql); break;
+                   case 13: if (SESSIONS.authorise(session, "Customer")) feature13(esql); break;
+                   case 14: if (SESSIONS.authorise(session, "Customer")) feature14(esql); break;
+                   case 19: if (SESSIONS.authorise(session, "Customer")) feature19(esql); break;
+                   case 21: if (SESSIONS.authorise(session, "Customer")) feature21(esql); break;
+                   case 26: if (SESSIONS.authorise(session, "Customer")) feature26(esql); break;
+
+                   case 15: if (SESSIONS.authorise(session, "Pilot")) feature15(esql); break; 
+
+                   case 16: if (SESSIONS.authorise(session, "Technician")) feature16(esql); break; 
+                   case 17: if (SESSIONS.authorise(session, "Technician")) feature17(esql); break;
+                   case 18: if (SESSIONS.authorise(session, "Technician")) feature18(esql); break;
+                   case 22: if (SESSIONS.authorise(session, "Technician")) feature22(esql); break;
+                   case 27: if (SESSIONS.authorise(session, "Technician")) feature27(esql); break;
+
+                   case 20: SESSIONS.revoke(session); usermenu = false; break;
+                   default : System.out.println("Unrecognized choice!"); break;
+                }
+                if (TRACER != null) {
+                   TRACER.end();
+                }
+              }
+            }
+         }//end while
+      }catch(Exception e) {
+         System.err.println (e.getMessage ());
+      }finally{
+         // make sure to cleanup the created table and close the connection.
+         try{
+            if(esql != null) {
+               System.out.print("Disconnecting from database...");
+               esql.cleanup ();
+               System.out.println("Done\n\nBye !");
+            }//end if
+         }catch (Exception e) {
+            // ignored.
+         }//end try
+      }//end try
+   }//end main
+
+   /*
+    * Loads the driver, connects and opens what the -D options ask for, timing each step for the startup breakdown
+    **/
+   private static AirlineManagement connect(String dbname, String dbport, String user) {
+      try {
+         long started = System.currentTimeMillis();
+         // run with -Dairline.store=memory to run the features on the CSV files in data/ (or -Dairline.data=<dir>) without Postgres
+         if ("memory".equalsIgnoreCase(System.getProperty("airline.store"))) {
+            String dataDir = System.getProperty("airline.data", "data");
+            System.out.print("Loading " + dataDir + " into memory...");
+            AirlineManagement esql = new AirlineManagement(new MemoryStore(new File(dataDir)));
+            System.out.println("Done");
+            _initMillis = System.currentTimeMillis() - started;
+            _connectedAt = System.currentTimeMillis();
+            return esql;
+         }
+
+         // use postgres JDBC driver, loading the class registers it
+         Class.forName ("org.postgresql.Driver");
+         _driverMillis = System.currentTimeMillis() - started;
+
+         // instantiate the AirlineManagement object and creates a physical
+         // connection.
+         started = System.currentTimeMillis();
+         AirlineManagement esql = new AirlineManagement (dbname, dbport, user, "");
+         _connectMillis = System.currentTimeMillis() - started;
+
+         started = System.currentTimeMillis();
+         // run with -Dairline.replica=true to answer the customer searches from memory
+         if (Boolean.getBoolean("airline.replica")) {
+            esql.enableReplica();
+         }
+
+         // run with -Dairline.journal=file to book seats through the write behind journal
+         if (System.getProperty("airline.journal") != null) {
+            esql.openJournal(System.getProperty("airline.journal"));
+         }
+         // run with -Dairline.listen=true to drop cached rows that other programs change
+         if (LISTEN) {
+            esql.startChangeListener();
+         }
+         _initMillis = System.currentTimeMillis() - started;
+         _connectedAt = System.currentTimeMillis();
+         return esql;
+      } catch (Exception e) {
+         throw new CompletionException(e);
+      }
+   }
+
+   /*
+    * Prints how long each part of startup took, when run with -Dairline.startupTimes=true
+    **/
+   private static void printStartupTimes(long mainStarted, long waitedMillis) {
+      if (!STARTUP_TIMES) {
+         return;
+      }
+      long jvmMillis = ProcessHandle.current().info().startInstant()
+         .map(start -> mainStarted - start.toEpochMilli()).orElse(-1L);
+      System.out.println(String.format(
+         "Startup: JVM %d ms, driver %d ms, connect %d ms, options %d ms, connected %d ms after launch, the menu waited %d ms for it",
+         jvmMillis, _driverMillis, _connectMillis, _initMillis,
+         _connectedAt - mainStarted + Math.max(0, jvmMillis), waitedMillis));
+   }
+
+   public static void Greeting(){
+      System.out.println(
+         "\n\n*******************************************************\n" +
+         "              User Interface      	               \n" +
+         "*******************************************************\n");
+   }//end Greeting
+
+   /*
+    * Reads the users choice given from the keyboard
+    * @int
+    **/
+   public static int readChoice() {
+      int input;
+      // returns only if a correct value is given.
+      do {
+         System.out.print("Please make your choice: ");
+         try { // read the integer, parse it and break.
+            input = Integer.parseInt(in.readLine());
+            break;
+         }catch (Exception e) {
+            System.out.println("Your input is invalid!");
+            continue;
+         }//end try
+      }while (true);
+      return input;
+   }//end readChoice
+
+   //HELPER FUNCTION 
+   public static boolean isValidPassword(String password) {
+      if (password.length() < 6) {
+         System.out.println("The password must be at least 6 characters long.");
+         return false; 
+      }
+
+      if (!password.matches(".*[A-Z].*")) {
+         System.out.println("The password must contain at least one uppercase letter.");
+         return false;
+      }
+
+      if (!password.matches(".*[!@#$%^&*()].*")) {
+         System.out.println("The password must contain at least one special character (!@#$%^&*()).");
+         return false;
+      }
+      return true;
+   }
+
+   public static void CreateUser(AirlineManagement esql) {
+      CreateUser(() -> esql);
+   }
+
+   /*
+    * Creates a user, asking for the database (waiting for the connection in fast startup) only when it is needed
+    **/
+   private static void CreateUser(Supplier<AirlineManagement> database) {
+      try {
+         String userName, password, role;
+
+         //figure out what type of role the user is 
+         do {
+            System.out.println("Please enter your role (Customer, Pilot, Technician, Manager): ");
+            role = in.readLine().trim();
+            role = role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
+            if (!(role.equals("Customer") || role.equals("Pilot") || role.equals("Technician") || role.equals("Manager"))) {
+               System.out.println("This is an invalid role. Please correctly enter Customer, Pilot, Technician, or Manager.");
+               role = "";
+            }
+         } while (role.isEmpty());
+
+         //now getting the userName and password 
+         do {
+            System.out.println("Please enter a username: "); 
+            userName = in.readLine().trim();
+
+            if (!userName.isEmpty() && database.get().store().userNameTaken(userName)) {
+               System.out.println("This username is already taken.");
+               userName = "";
+            }
+         } while (userName.isEmpty()); 
+
+         do {
+            System.out.println("Please enter your password: "); 
+            password = in.readLine().trim(); 
+         } while (!isValidPassword(password)); 
+
+         String userID = ""; 
+         List<String> customer = null;
+
+         if (role.equals("Customer")) {
+            //extra information needed for customer 
+            String firstName, lastName, gender, dob, address, phoneNumber, zipcode;
+            
+            do {
+               System.out.print("Please Enter Your First Name: ");
+               firstName = in.readLine().trim();
+            } while (firstName.isEmpty());
+            
+            do {
+               System.out.print("Please Enter Your Last Name: ");
+               lastName = in.readLine().trim();
+            } while (lastName.isEmpty());
+            
+            do {
+               System.out.print("Please Enter Your Gender (M/F): ");
+               gender = in.readLine().trim().toUpperCase();
+               if (!gender.equals("M") && !gender.equals("F")) {
+                  System.out.println("This is an Invalid gender. Please enter M or F.");
+                  gender = "";
+               }
+            } while (gender.isEmpty());
+            
+            do {
+               System.out.print("Please Enter DOB (YYYY-MM-DD): ");
+               dob = in.readLine().trim();
+               if (!dob.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                  System.out.println("This is an Invalid date format. Use YYYY-MM-DD.");
+                  dob = "";
+               }
+            } while (dob.isEmpty());
+
+            do {
+               System.out.print("Please Enter Your Address: ");
+               address = in.readLine().trim();
+            } while (address.isEmpty());
+
+            do {
+               System.out.print("Please Enter Your Phone Number: ");
+               phoneNumber = in.readLine().trim();
+               if (!phoneNumber.matches("[0-9()+\\-\\.x ]{7,30}")) {
+                  System.out.println("This is an Invalid phone number format.");
+                  phoneNumber = "";
+               }
+            } while (phoneNumber.isEmpty());
+
+            do {
+                  System.out.print("Please Enter Your Zipcode: ");
+                  zipcode = in.readLine().trim();
+                  if (!zipcode.matches("\\d{5}")) {
+                     System.out.println("The Zipcode must be exactly 5 digits.");
+                     zipcode = "";
+                  }
+            } while (zipcode.isEmpty());
+
+            //Creating Unqiue CustomerID
+            userID = Integer.toString(database.get().store().nextCustomerID());
+            
+            //New User Intersertion 
+            customer = Arrays.asList(firstName, lastName, gender, dob, address, phoneNumber, zipcode);
+
+         } else if (role.equals("Pilot")) {
+            //checking if there is an existing pilotID (validiation)
+            do {
+               System.out.println("Please enter the existing Pilot ID: "); 
+               String pilotID = in.readLine().trim(); 
+
+               if (pilotID.isEmpty()) {
+                  System.out.println("The pilot ID can't be empty");
+                  continue; 
+               }
+
+               if (database.get().store().pilotExists(pilotID)) {
+                  userID = pilotID;
+                  break;
+               } else {
+                  System.out.println("This is an invalid Pilot ID.");
+               }
+            } while (true);
+         } else if (role.equals("Technician")) {
+            //check if there is an existing technician id
+            do {
+               System.out.println("Please enter tthe existing technician ID: "); 
+               String technicianID = in.readLine().trim();
+
+               if (technicianID.isEmpty()) {
+                  System.out.println("The technician ID can't be empty.");
+                  continue;
+               }
+
+               if (database.get().store().technicianExists(technicianID)) {
+                  userID = technicianID; 
+                  break; 
+               } else {
+                  System.out.println("This is an invalid technician ID.");
+               }
+            } while (true);
+
+         } else if (role.equals("Manager")) {
+            //manager has just a pretend id 
+            userID = database.get().store().nextManagerID();
+         }
+      
+      //putting information into LOGIN table (and the Customer table for a customer)
+      database.get().store().createUser(userID, userName, password, role, customer);
+
+
+      //inserting this customer 
+      System.out.println("User was successfully created with role: " + role);
+      
+      } catch (Exception e) {
+         System.err.println("There Was An Error in CreateUser: " + e.getMessage());
+      }
+   }
+   
+   /*
+    * Check log in credentials for an existing user and start a session
+    * @return the session token of the user or null is the user does not exist
+    **/
+   public static String LogIn(AirlineManagement esql){
+      return LogIn(() -> esql);
+   }
+
+   /*
+    * Logs in with the user name and password typed before the database is asked for
+    **/
+   private static String LogIn(Supplier<AirlineManagement> database) {
+      try {
+         System.out.print("Please Enter Your Username: ");
+         String userName = in.readLine();
+
+         System.out.print("Please Enter Your Password: ");
+         String password = in.readLine();
+
+         List<String> login = database.get().store().login(userName, password);
+
+         if (login != null) {
+            String userID = login.get(0);
+            String role = login.get(1);
+            System.out.println("The Login Was Successful! Successfully logged in as: " + role);
+            return SESSIONS.issue(userID, role);
+         } else {
+            System.out.println("The Login Was Not Successful. Wrong username or password");
+            return null;
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+         return null;
+      }
+   }//end
+
+   // Rest of the functions definition go in here
+
+   //given the flight number, get the flight's schedule for for the week
+   //using Schedule Table
+   public static void feature1(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Your Flight Number: ");
+         String flightNum = in.readLine();
+
+         // gets the day of the week, departure time, and arrival time of the flight, ordered from Monday to Sunday
+         int rowCount = esql.printReport(new String[] {"dayofweek", "departuretime", "arrivaltime"},
+            esql.store().schedule(flightNum));
+
+         if (rowCount == 0) {
+            System.out.println("There is no schedule for this flight number.");
+         }
+      } catch (Exception e){
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given the flight and date, get the number of seats still available and the number of seats sold
+   //using FlightInstance Table
+   public static void feature2(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Flight Number: ");
+         String flightNum = in.readLine();
+
+         System.out.print("Please Enter the Date of your Flight (MM/DD/YY): ");
+         String flightDate = in.readLine();
+
+         int rowCount = esql.printReport(new String[] {"seatsavailable", "seatssold"}, esql.store().seats(flightNum, flightDate));
+
+         if (rowCount == 0) {
+            System.out.println("There is no flight instance found for this flight number and date.");
+         }
+         
+      } catch (Exception e){
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given the flight and date, find whether the flight departed on time and arrived on time
+   //using FlightInstance Table
+   public static void feature3(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Flight Number: ");
+         String flightNum = in.readLine();
+
+         System.out.print("Please Enter the Date of your Flight (MM/DD/YY): ");
+         String flightDate = in.readLine();
+
+         int rowCount = esql.printReport(new String[] {"departedontime", "arrivedontime"}, esql.store().status(flightNum, flightDate));
+
+         if (rowCount == 0) {
+            System.out.println("There is no flight instance found for this flight number and date.");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a date, get all flight scheduled on that day, with their times, cities, plane, load factor and status
+   //using FlightInstance, Flight, Plane and Schedule Tables
+   public static void feature4(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Flight Date (MM/DD/YY): ");
+         String flightDate = in.readLine();
+
+         LocalDate date = parseDate(flightDate);
+         if (date == null) {
+            System.out.println("This is an invalid date.");
+            return;
+         }
+
+         int rowCount = printResult(OperationsBoard.COLUMNS, esql.store().board(date));
+
+         if (rowCount == 0) {
+            System.out.println("There is no flights scheduled for this flight date.");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a fight and date, get a list of passengers who made reservations, are on the waiting list, actually flew, on the flight (for flights already completed)
+   //using Reservation Table and Customer Table
+   public static void feature5(AirlineManagement esql) {
+      try {
+         System.out.println("Please Enter Reservation ID: ");
+         String reserveID = in.readLine();
+
+            int rowCount = esql.printReport(new String[] {"firstname", "lastname", "gender", "dob", "address", "phone", "zip"}, esql.store().travelers(reserveID));
+
+            if (rowCount == 0) {
+            System.out.println("There are no reservations found for this ReservationID.");
+            }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+
+   //Given a reservation number, retrieve information about the traverlers under that number (First/last name, geneder, dob, address, phone number, zipcode)
+   //Using Reservation and Customer Table 
+   public static void feature6(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter reservation ID: "); 
+         String reserveID = in.readLine(); 
+
+         int rowCount = esql.printReport(new String[] {"firstname", "lastname", "gender", "dob", "address", "phone", "zip"}, esql.store().travelers(reserveID));
+
+         if (rowCount == 0) {
+            System.out.println("There is no information found for this Reservation ID");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage()); 
+      }
+   }
+
+   //given a plane number, get its make, model, age, last repair date 
+   //Use Plane Table
+   public static void feature7(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter Plane ID: ");
+         String planeID = in.readLine(); 
+
+         int rowCount = esql.printReport(new String[] {"make", "model", "age", "lastrepairdate"}, esql.store().plane(planeID));
+
+         if (rowCount == 0) {
+            System.out.println("There is no information found for this Reservation ID");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a maintanence technician id, list all repairs made by that person 
+   //Use Repair Table 
+   public static void feature8(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter technician ID: "); 
+         String techID = in.readLine();
+
+         int rowCount = esql.printReport(new String[] {"planeid", "repaircode", "repairdate"}, esql.store().technicianRepairs(techID));
+
+         if (rowCount == 0) {
+            System.out.println("There is no repairs found for this Technician ID");
+         }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a plane id and date range, list all the dates and codes for repairs performed 
+   //Use Repair Table
+   public static void feature9(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter Plane ID: "); 
+         String planeID = in.readLine();
+
+         System.out.println("Please enter start date (YYYY-MM-DD): ");
+         String startDate = in.readLine(); 
+
+         System.out.println("Please enter end date (YYYY-MM-DD): ");
+         String endDate = in.readLine(); 
+
+         int rowCount = printRepairHistory(esql, planeID, startDate, endDate);
+
+         if (rowCount == 0) {
+            System.out.println("There is no repairs found for this Plane ID and date range");
+         }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+
+   //given a flight and range of date (start date and end date), show the statistics of the flight 
+   //number of days the flight departed and arrived, number of sold and unsold tickets
+   //Use FlightInstance Table
+   public static void feature10(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter flight number: "); 
+         String flightNum = in.readLine();
+
+         System.out.println("Please enter start date (MM/DD/YY): ");
+         String startDate = in.readLine(); 
+
+         System.out.println("Please enter end date (MM/DD/YY): ");
+         String endDate = in.readLine(); 
+
+         int rowCount = esql.printReport(new String[] {"departedontimecount", "arrivedontimecount", "totalseatssold", "totalseatsunsold"},
+            esql.store().flightStatistics(flightNum, startDate, endDate));
+
+         if (rowCount == 0) {
+            System.out.println("There is no flight instantances found for this Flight Number and date range");
+         }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //new york, miami, 5/5/25
+   //given a destination and a departure city, find all fights on a given date 
+   //(must return departure and arrival time, number of stops scheduled and ontimerecord as a percentage)
+   //using Flight table and FlightInstance table and Schedule Table
+   public static void feature11(AirlineManagement esql) {
+      try {
+      System.out.print("Please Enter Departure City: ");
+      String departureCity = in.readLine();
+
+      System.out.print("Please Enter Arrival City: ");
+      String arrivalCity = in.readLine();
+
+      System.out.print("Please  Flight Date (MM/DD/YY): ");
+      String flightDate = in.readLine();
+
+      // gets all flights between two cities on a specific date
+      // for each flight, it returns: departure time, arrival time, number of stops,
+      // and the on-time percentage (how often the flight departed and arrived on time)
+         int rowCount = esql.printReport(new String[] {"departuretime", "arrivaltime", "numofstops", "ontimepercentage"},
+            esql.store().searchFlights(departureCity, arrivalCity, flightDate));
+
+            if (rowCount == 0) {
+            System.out.println("There are no flights found for this city and date.");
+            }
+            
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a flight number find the ticket cost 
+   //Use FlightInstance Table 
+   public static void feature12(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter flight number: "); 
+         String flightNum = in.readLine(); 
+
+         int rowCount = esql.printReport(new String[] {"ticketcost"}, esql.store().ticketCosts(flightNum));
+
+         if (rowCount == 0) {
+            System.out.println("There is no ticket costs found for this Flight Number");
+         }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a flight number, find the airplane type (make, model)
+   //Use Flight and Plane Table
+   public static void feature13(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Flight Number: ");
+         String flightNum = in.readLine();
+
+         int rowCount = esql.printReport(new String[] {"make", "model"}, esql.store().planeType(flightNum));
+
+         if (rowCount == 0) {
+            System.out.println("There are no planes found for this Flight Number.");
+            }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a make reservation for a flight, get on the waitlist for a flight if the flight is full
+   //Use Reservation and FlightInstance Table
+   public static void feature14(AirlineManagement esql) {
+      try {
+         System.out.print("Please enter Customer ID: ");
+         String customID = in.readLine();
+
+         if (!esql.store().customerExists(customID)) {
+            System.out.println("This is an invalid Customer ID.");
+            return;
+         }
+
+         System.out.println("Please enter Flight Instance ID: ");
+         String flightInstantceID = in.readLine(); 
+
+         //a group gets seats next to each other in one row when there is room
+         System.out.print("Please Enter Number of Seats (1-" + SeatMap.SEATS_PER_ROW + "): ");
+         String partyInput = in.readLine().trim();
+         int partySize = partyInput.isEmpty() ? 1 : Integer.parseInt(partyInput);
+         if (partySize < 1 || partySize > SeatMap.SEATS_PER_ROW) {
+            System.out.println("Please book between 1 and " + SeatMap.SEATS_PER_ROW + " seats at a time.");
+            return;
+         }
+
+         List<List<String>> booked = esql.store().book(customID.trim(), flightInstantceID.trim(), partySize);
+         if (booked.isEmpty()) {
+            System.out.println("Thi is the wrong flight instance ID.");
+            return;
+         }
+
+         for (List<String> reservation : booked) {
+            System.out.println("Reservation " + (reservation.get(1).equals("reserved") ? "confirmed, seat " + SeatMap.label(Integer.parseInt(reservation.get(2))) : "waitlisted") +
+               ". Your Reservation ID is: " + reservation.get(0));
+         }
+         
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //give a plane id and a date range, list all the dates and the codes for repairs performed
+   //using Repair Table
+   public static void feature15(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Plane ID: ");
+         String planeID = in.readLine();
+
+         System.out.print("Please Enter Start Date (YYYY-MM-DD): ");
+         String startDate = in.readLine();
+
+         System.out.print("Please Enter End Date (YYYY-MM-DD): ");
+         String endDate = in.readLine();
+
+         int rowCount = printRepairHistory(esql, planeID, startDate, endDate);
+
+         if (rowCount == 0) {
+            System.out.println("There are no repairs found for this planeID and and date range.");
+            }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a plane Id and date range , list all the dates and the codes for repairs performed 
+   //Use Repair Table
+   public static void feature16(AirlineManagement esql) {
+      try {
+         System.out.println("Please enter Plane ID: "); 
+         String planeID = in.readLine();
+
+         System.out.println("Please enter start date (YYYY-MM-DD): ");
+         String startDate = in.readLine(); 
+
+         System.out.println("Please enter end date (YYYY-MM-DD): ");
+         String endDate = in.readLine(); 
+
+         int rowCount = printRepairHistory(esql, planeID, startDate, endDate);
+
+         if (rowCount == 0) {
+            System.out.println("There is no repairs found for this Plane ID and date range");
+         }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a pilot ID, list all maintenance request made by that pilot 
+   //Use MaintenanceRequest Table 
+   public static void feature17(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Pilot ID: ");
+         String pilotID = in.readLine();
+
+         //the status says which requests are still waiting for a repair
+         int rowCount = esql.printReport(new String[] {"planeid", "repaircode", "requestdate", "status"},
+            esql.store().pilotRequests(pilotID));
+
+         if (rowCount == 0) {
+            System.out.println("There are no maintenance requests found for this Plane ID.");
+            }
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //try, PL005, RC555, 2025-06-10, T003
+   //after each repair, make an entry showing planeID, repair code, and date of repair
+   //Use Repair Table 
+   public static void feature18(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Plane ID: ");
+         String planeID = in.readLine();
+
+         System.out.print("Please Enter Repair Code: ");
+         String repairCode = in.readLine();
+
+         System.out.print("Please Enter Repair Date (YYYY-MM-DD): ");
+         String repairDate = in.readLine();
+
+         System.out.print("Please Enter Technician Id: ");
+         String technicianID = in.readLine();
+
+         if (!esql.store().planeExists(planeID)) {
+            System.out.println("This is an invalid Plane ID.");
+            return;
+         }
+         if (!esql.store().technicianExists(technicianID)) {
+            System.out.println("This is an invalid technician ID.");
+            return;
+         }
+
+         int newRepairID = esql.store().addRepair(planeID, repairCode, repairDate, technicianID);
+
+         System.out.println("The repair entry was added successfully with the RepairID: " + newRepairID);
+
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      } 
+   }
+
+   //given the CustomerID, show all reservations (both the past and the present) for that customer
+   //using the Reservations Table and FlightInstance Table
+   public static void feature19(AirlineManagement esql) {
+      try {
+         System.out.print("Please enter your CustomerID: ");
+         String customerID = in.readLine();
+         
+         int rowCount = esql.printReport(new String[] {"reservationid", "flightnumber", "flightdate", "departurecity", "arrivalcity", "status"},
+            esql.store().customerReservations(customerID));
+         
+         if (rowCount == 0) {
+            System.out.println("No reservations found for this Customer ID.");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //listing the top 5 popular flights (using number of reservations)
+   //using Flight Table, FlightInstance Table, and Reservation Table
+   public static void feature21(AirlineManagement esql) {
+      try {
+         int rowCount = esql.printReport(new String[] {"flightnumber", "numreservations"}, esql.store().popularFlights(5));
+
+         if (rowCount == 0) {
+            System.out.println("There are no reservations found to determine popular flights.");
+         } else {
+            System.out.println("Of Course! Here are the top 5 most popular flights based on reservations!");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //this feature lists the maintenance staff's work (number of repairs per Technician)
+   //Using Repairs Table
+   public static void feature22(AirlineManagement esql) {
+      try {
+         int rowCount = esql.printReport(new String[] {"technicianid", "repaircount"}, esql.store().technicianRanking());
+         if (rowCount == 0) {
+            System.out.println("No repair records found.");
+         } else {
+            System.out.println("Technicians ranked by number of repairs completed.");
+         }
+      } catch (Exception e) {
+        System.err.println(e.getMessage());
+      }
+   }
+
+   //exports a whole table, a table split up by date, or the next report to a CSV file
+   //using Reservation, FlightInstance, and Repair Tables
+   public static void feature23(AirlineManagement esql) {
+      try {
+         System.out.println("1. Export a whole table (Reservation, FlightInstance, Repair)");
+         System.out.println("2. Export a table with one file per date (runs in parallel)");
+         System.out.println("3. Export the next report you run");
+         int choice = readChoice();
+
+         System.out.print("Gzip the output? (Y/N): ");
+         boolean gzip = in.readLine().trim().equalsIgnoreCase("Y");
+         String extension = gzip ? ".csv.gz" : ".csv";
+
+         if (choice == 3) {
+            System.out.print("Please Enter the File Name: ");
+            String fileName = in.readLine().trim();
+            esql.exportNextResult(fileName, gzip);
+            System.out.println("The next report you run will be written to " + fileName);
+            return;
+         }
+         esql.requireDatabase();
+
+         System.out.print("Please Enter the Table Name: ");
+         String table = exportTableName(in.readLine());
+         if (table == null) {
+            System.out.println("Only Reservation, FlightInstance, and Repair can be exported.");
+            return;
+         }
+
+         if (choice == 1) {
+            String fileName = table + extension;
+            int rowCount;
+            if (esql.isSharded() && !table.equals("Repair")) {
+               //the bookings are on the shards, each one's rows go into the same file
+               List<Connection> conns = esql.openBookingConnections();
+               try {
+                  rowCount = exportCSV(conns, "SELECT * FROM " + table, fileName, gzip);
+               } finally {
+                  closeAll(conns);
+               }
+            } else {
+               rowCount = esql.executeQueryAndExportCSV("SELECT * FROM " + table, fileName, gzip);
+            }
+            System.out.println("Exported " + rowCount + " rows to " + fileName);
+         } else if (choice == 2) {
+            exportByDate(esql, table, extension, gzip);
+         } else {
+            System.out.println("Unrecognized choice!");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //find a traveler by the start of their last name, first name, or phone number
+   //using the customer directory file, plus the Customer Table for anyone added since it was built
+   public static void feature24(AirlineManagement esql) {
+      try {
+         esql.requireDatabase();
+         System.out.println("1. Search by Last Name");
+         System.out.println("2. Search by First Name");
+         System.out.println("3. Search by Phone Number");
+         System.out.println("4. Rebuild the Customer Directory");
+         int choice = readChoice();
+
+         if (choice == 4) {
+            CustomerDirectory directory = esql.getCustomerDirectory(true);
+            System.out.println("The customer directory has " + directory.size() + " customers.");
+            return;
+         }
+         if (choice < 1 || choice > 3) {
+            System.out.println("Unrecognized choice!");
+            return;
+         }
+
+         System.out.print("Please Enter the Start of the Name or Phone Number: ");
+         String prefix = in.readLine().trim();
+         if (choice == 3) {
+            prefix = CustomerDirectory.digits(prefix);
+         }
+         if (prefix.isEmpty()) {
+            System.out.println("The search can't be empty.");
+            return;
+         }
+
+         CustomerDirectory directory = esql.getCustomerDirectory(false);
+         int field = choice == 1 ? CustomerDirectory.LAST_NAME_KEY
+                   : choice == 2 ? CustomerDirectory.FIRST_NAME_KEY
+                   : CustomerDirectory.PHONE_KEY;
+         List<List<String>> rows = directory.search(field, prefix, CustomerDirectory.MAX_RESULTS);
+
+         //customers created after the directory was built are only in the table
+         String column = choice == 1 ? "UPPER(LastName)" : choice == 2 ? "UPPER(FirstName)" : "regexp_replace(Phone, '[^0-9]', '', 'g')";
+         String query = String.format(
+            "SELECT CustomerID, FirstName, LastName, Gender, DOB, Address, Phone, Zip " +
+            "FROM Customer " +
+            "WHERE CustomerID > %d AND %s LIKE '%s%%' " +
+            "ORDER BY CustomerID;",
+            directory.maxCustomerID(), column, prefix.toUpperCase(Locale.ROOT).replace("'", "''"));
+         rows.addAll(esql.executeQueryAndReturnResult(query));
+
+         int rowCount = printResult(new String[] {"customerid", "firstname", "lastname", "gender", "dob", "address", "phone", "zip"}, rows);
+
+         if (rowCount == 0) {
+            System.out.println("There are no travelers found for this search.");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //creates the monthly partitions of FlightInstance and Reservation for the coming months
+   //and archives the partitions of months that are over (only for databases made with create_partitioned_tables.sql)
+   public static void feature25(AirlineManagement esql) {
+      try {
+         esql.requireDatabase();
+         if (esql.executeQuery("SELECT 1 FROM pg_proc WHERE proname = 'create_flight_partitions';") == 0) {
+            System.out.println("This database is not partitioned. Create it with PARTITIONED=1 source sql/scripts/create_db.sh");
+            return;
+         }
+
+         System.out.print("Please Enter How Many Months Ahead to Create: ");
+         int months = Integer.parseInt(in.readLine().trim());
+
+         System.out.print("Please Enter the Archive Cutoff Date, months before it are archived (YYYY-MM-DD): ");
+         String cutoff = in.readLine().trim();
+
+         List<List<String>> created = esql.executeQueryAndReturnResult(String.format(
+            "SELECT create_flight_partitions(date_trunc('month', CURRENT_DATE)::date, %d);", months));
+         System.out.println("Created " + created.get(0).get(0) + " new partitions.");
+
+         List<List<String>> archived = esql.executeQueryAndReturnResult(String.format(
+            "SELECT archive_flight_partitions('%s');", cutoff));
+
+         //VACUUM can't run inside the function, so the archived partitions are packed here one at a time
+         for (List<String> row : archived) {
+            esql.executeUpdate(String.format("VACUUM (FULL, FREEZE, ANALYZE) %s;", row.get(0)));
+            System.out.println("Archived " + row.get(0));
+         }
+         System.out.println("Archived " + archived.size() + " partitions.");
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a departure city, arrival city and a travel date, get the cheapest flight with seats left for each day around that date
+   //the days are either N days before and after the date, or the whole month of the date
+   //using Flight and FlightInstance Tables
+   public static void feature26(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Departure City: ");
+         String departureCity = in.readLine();
+
+         System.out.print("Please Enter Arrival City: ");
+         String arrivalCity = in.readLine();
+
+         System.out.print("Please Enter Travel Date (MM/DD/YY): ");
+         LocalDate date = parseDate(in.readLine());
+         if (date == null) {
+            System.out.println("This is an invalid date.");
+            return;
+         }
+
+         System.out.print("Please Enter How Many Days Before/After You Can Travel (M for the whole month): ");
+         String window = in.readLine().trim();
+         LocalDate firstDay, lastDay;
+         if (window.equalsIgnoreCase("M")) {
+            firstDay = date.withDayOfMonth(1);
+            lastDay = date.withDayOfMonth(date.lengthOfMonth());
+         } else if (window.matches("\\d{1,3}")) {
+            firstDay = date.minusDays(Integer.parseInt(window));
+            lastDay = date.plusDays(Integer.parseInt(window));
+         } else {
+            System.out.println("Please enter a number of days or M.");
+            return;
+         }
+
+         int rowCount = esql.printReport(new String[] {"flightdate", "flightnumber", "ticketcost", "seatsleft", "numofstops"},
+            esql.store().fareCalendar(departureCity, arrivalCity, firstDay, lastDay));
+
+         if (rowCount == 0) {
+            System.out.println("There are no flights with seats left between " + firstDay + " and " + lastDay + ".");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a plane ID or a technician ID (or nothing for all planes), get the maintenance requests that no repair has covered yet
+   //using the maintenance backlog kept from the MaintenanceRequest and Repair Tables
+   public static void feature27(AirlineManagement esql) {
+      try {
+         System.out.print("Please Enter Plane ID or Technician ID (leave empty for all planes): ");
+         String id = in.readLine().trim();
+
+         MaintenanceBacklog backlog = esql.store().backlog();
+         String[] planeColumns = {"planeid", "openrequests", "oldestrequest", "lastrepairdate", "technicianid"};
+         int rowCount;
+         if (id.isEmpty()) {
+            rowCount = printResult(planeColumns, backlog.planes(null));
+         } else if (esql.store().technicianExists(id)) {
+            //a technician who has not repaired anything yet has no planes, and no open work
+            System.out.println("Open requests on this technician's planes: " + backlog.openOfTechnician(id));
+            rowCount = printResult(planeColumns, backlog.planes(id));
+         } else if (esql.store().planeExists(id)) {
+            System.out.println("Open requests on this plane: " + backlog.openOfPlane(id));
+            rowCount = printResult(new String[] {"requestid", "repaircode", "requestdate", "pilotid"}, backlog.requests(id));
+         } else {
+            System.out.println("There is no plane or technician with this ID.");
+            return;
+         }
+
+         if (rowCount == 0) {
+            System.out.println("There are no open maintenance requests.");
+         }
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //given a start date and a number of days, create the FlightInstance rows the weekly Schedule calls for in those days
+   //seat totals come from the plane the flight uses (through Flight.PlaneID), stops and ticket cost from the flight's latest instance
+   //using Schedule, Flight and FlightInstance Tables
+   public static void feature28(AirlineManagement esql) {
+      try {
+         esql.requireDatabase();
+         System.out.print("Please Enter the First Date to Generate (YYYY-MM-DD): ");
+         LocalDate start = parseDate(in.readLine());
+         if (start == null) {
+            System.out.println("This is an invalid date.");
+            return;
+         }
+
+         System.out.print("Please Enter How Many Days to Generate: ");
+         int days = Integer.parseInt(in.readLine().trim());
+         if (days <= 0) {
+            System.out.println("The number of days must be more than 0.");
+            return;
+         }
+
+         //a partitioned database gets the partitions of the months first, so the rows don't pile up in the default partition
+         LocalDate end = start.plusDays(days - 1);
+         if (!esql.isSharded() && esql.executeQuery("SELECT 1 FROM pg_proc WHERE proname = 'create_flight_partitions';") > 0) {
+            int months = (end.getYear() * 12 + end.getMonthValue()) - (start.getYear() * 12 + start.getMonthValue()) + 1;
+            esql.executeQueryAndReturnResult(String.format("SELECT create_flight_partitions('%s', %d);", start, months));
+         }
+
+         long started = System.currentTimeMillis();
+         int created = generateFlightInstances(esql, start, end);
+         System.out.println("Created " + created + " flight instances in " + (System.currentTimeMillis() - started) + " ms.");
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //HELPER FUNCTION
+   //expands the Schedule into FlightInstance rows from firstDay to lastDay, skipping the flight dates that already have one
+   //each worker takes flights off a shared queue and writes them on its own connection, GENERATE_BATCH_SIZE rows per INSERT
+   //the IDs come from FlightInstanceID_seq and UNIQUE (FlightNumber, FlightDate) drops a date another program created meanwhile
+   private static int generateFlightInstances(final AirlineManagement esql, LocalDate firstDay, LocalDate lastDay) throws Exception {
+      if (esql.executeQuery("SELECT 1 FROM pg_class WHERE relname = 'flightinstanceid_seq';") == 0) {
+         throw new SQLException("FlightInstanceID_seq is missing, recreate the database with sql/scripts/create_db.sh");
+      }
+      //FlightInstance lives on the shards when the bookings are sharded, Flight and Schedule are on every database
+      String existingQuery = String.format(
+         "SELECT FlightNumber, FlightDate FROM FlightInstance WHERE FlightDate BETWEEN '%s' AND '%s';", firstDay, lastDay);
+      String latestQuery =
+         "SELECT DISTINCT ON (FlightNumber) FlightNumber, NumOfStops, TicketCost " +
+         "FROM FlightInstance ORDER BY FlightNumber, FlightDate DESC;";
+      String seatsQuery =
+         "SELECT F.PlaneID, MAX(FI.SeatsTotal) FROM Flight F " +
+         "JOIN FlightInstance FI ON F.FlightNumber = FI.FlightNumber GROUP BY F.PlaneID;";
+      List<List<String>> existing, latest, planeSeats;
+      if (esql.isSharded()) {
+         existing = esql.executeQueryOnAllShards(existingQuery);
+         latest = esql.executeQueryOnAllShards(latestQuery);
+         planeSeats = esql.executeQueryOnAllShards(seatsQuery);
+      } else {
+         existing = esql.executeQueryAndReturnResult(existingQuery);
+         latest = esql.executeQueryAndReturnResult(latestQuery);
+         planeSeats = esql.executeQueryAndReturnResult(seatsQuery);
+      }
+      List<List<String>> flights = esql.executeQueryAndReturnResult("SELECT FlightNumber, PlaneID FROM Flight ORDER BY FlightNumber;");
+      List<List<String>> schedules = esql.executeQueryAndReturnResult("SELECT FlightNumber, DayOfWeek FROM Schedule;");
+
+      Set<String> alreadyThere = new HashSet<String>();
+      for (List<String> row : existing) {
+         alreadyThere.add(row.get(0).trim() + "\t" + row.get(1));
+      }
+      Map<String, List<String>> latestOfFlight = new HashMap<String, List<String>>();
+      for (List<String> row : latest) {
+         latestOfFlight.put(row.get(0).trim(), row);
+      }
+      //the Plane table has no seat count, so a plane seats what its flights have been sold with
+      Map<String, Integer> seatsOfPlane = new HashMap<String, Integer>();
+      for (List<String> row : planeSeats) {
+         if (row.get(0) != null && row.get(1) != null) {
+            seatsOfPlane.merge(row.get(0).trim(), Integer.parseInt(row.get(1).trim()), Math::max);
+         }
+      }
+      Map<String, Set<DayOfWeek>> daysOfFlight = new HashMap<String, Set<DayOfWeek>>();
+      for (List<String> row : schedules) {
+         try {
+            daysOfFlight.computeIfAbsent(row.get(0).trim(), f -> EnumSet.noneOf(DayOfWeek.class))
+               .add(DayOfWeek.valueOf(row.get(1).trim().toUpperCase()));
+         } catch (IllegalArgumentException | NullPointerException e) {
+            System.out.println("Skipping schedule day " + row.get(1) + " of flight " + row.get(0));
+         }
+      }
+
+      //the dates of each flight are worked out first, so the IDs for all of them are taken from the sequence at once
+      Map<String, List<LocalDate>> daysToCreate = new LinkedHashMap<String, List<LocalDate>>();
+      int rows = 0;
+      for (List<String> flight : flights) {
+         String flightNumber = flight.get(0).trim();
+         Set<DayOfWeek> weekdays = daysOfFlight.get(flightNumber);
+         if (weekdays == null) {
+            continue;
+         }
+         List<LocalDate> days = new ArrayList<LocalDate>();
+         for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            if (weekdays.contains(day.getDayOfWeek()) && !alreadyThere.contains(flightNumber + "\t" + day)) {
+               days.add(day);
+            }
+         }
+         if (!days.isEmpty()) {
+            daysToCreate.put(flightNumber, days);
+            rows += days.size();
+         }
+      }
+      if (rows == 0) {
+         return 0;
+      }
+      //nextval is atomic, so no other program gets these IDs (unlike MAX + 1), and on the main database when sharded
+      List<List<String>> ids = esql.executeQueryAndReturnResult(String.format(
+         "SELECT nextval('FlightInstanceID_seq') FROM generate_series(1, %d);", rows));
+      Iterator<List<String>> nextID = ids.iterator();
+
+      //the rows are worked out here, the workers only write them
+      final ConcurrentLinkedQueue<List<String>> work = new ConcurrentLinkedQueue<List<String>>();
+      final Map<String, Integer> shardOfFlight = new HashMap<String, Integer>();
+      for (List<String> flight : flights) {
+         String flightNumber = flight.get(0).trim();
+         List<LocalDate> days = daysToCreate.get(flightNumber);
+         if (days == null) {
+            continue;
+         }
+         List<String> latestRow = latestOfFlight.get(flightNumber);
+         String stops = latestRow == null || latestRow.get(1) == null ? "0" : latestRow.get(1).trim();
+         String cost = latestRow == null || latestRow.get(2) == null ? "NULL" : latestRow.get(2).trim();
+         Integer seats = flight.get(1) == null ? null : seatsOfPlane.get(flight.get(1).trim());
+         int seatsTotal = seats != null ? seats : GENERATE_DEFAULT_SEATS;
+
+         List<String> values = new ArrayList<String>();
+         values.add(flightNumber);
+         for (LocalDate day : days) {
+            values.add(String.format("(%s, '%s', '%s', NULL, NULL, %d, 0, %s, %s)",
+               nextID.next().get(0).trim(), flightNumber, day, seatsTotal, stops, cost));
+         }
+         work.add(values);
+         shardOfFlight.put(flightNumber, esql.isSharded() ? esql.shardOf(flightNumber) : -1);
+      }
+
+      //only the rows the database took are counted, a date that is already there is skipped by ON CONFLICT
+      final AtomicInteger created = new AtomicInteger();
+      final AtomicBoolean failed = new AtomicBoolean();
+      int workers = Math.max(1, Math.min(GENERATE_WORKERS, work.size()));
+      ExecutorService pool = Executors.newFixedThreadPool(workers);
+      ExecutorCompletionService<Void> results = new ExecutorCompletionService<Void>(pool);
+      for (int w = 0; w < workers; w++) {
+         results.submit(() -> {
+            Connection conn = esql.isSharded() ? null : esql.openConnection();
+            try {
+               List<String> values;
+               while (!failed.get() && (values = work.poll()) != null) {
+                  String flightNumber = values.get(0);
+                  for (int from = 1; from < values.size() && !failed.get(); from += GENERATE_BATCH_SIZE) {
+                     List<String> batch = values.subList(from, Math.min(values.size(), from + GENERATE_BATCH_SIZE));
+                     String insert =
+                        "INSERT INTO FlightInstance (FlightInstanceID, FlightNumber, FlightDate, DepartedOnTime, ArrivedOnTime, " +
+                        "SeatsTotal, SeatsSold, NumOfStops, TicketCost) VALUES " + String.join(", ", batch) +
+                        " ON CONFLICT (FlightNumber, FlightDate) DO NOTHING;";
+                     if (conn == null) {
+                        created.addAndGet(esql.executeShardUpdate(shardOfFlight.get(flightNumber), insert));
+                     } else {
+                        Statement stmt = conn.createStatement();
+                        try {
+                           created.addAndGet(stmt.executeUpdate(insert));
+                        } finally {
+                           stmt.close();
+                        }
+                     }
+                  }
+               }
+               return null;
+            } catch (Exception e) {
+               //the other workers stop after the batch they are writing
+               failed.set(true);
+               throw e;
+            } finally {
+               if (conn != null) {
+                  conn.close();
+               }
+            }
+         });
+      }
+      pool.shutdown();
+
+      try {
+         for (int w = 0; w < workers; w++) {
+            results.take().get();
+         }
+      } catch (ExecutionException e) {
+         pool.shutdownNow();
+         System.out.println("Stopped after " + created.get() + " flight instances.");
+         throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+      return created.get();
+   }
+
+   //given some flight numbers, plane IDs and a date range, get the seats, status and statistics of each flight (features 2, 3, 10),
+   //the information of each plane (feature 7) and the maintenance staff (feature 22) as one report
+   //the queries all run at the same time on pooled connections, so the report takes about as long as the slowest one
+   //using FlightInstance, Plane and Repair Tables
+   public static void feature29(AirlineManagement esql) {
+      try {
+         esql.requireDatabase();
+         System.out.print("Please Enter Flight Numbers (separated by commas): ");
+         String[] flights = splitList(in.readLine());
+
+         System.out.print("Please Enter Plane IDs (separated by commas): ");
+         String[] planes = splitList(in.readLine());
+
+         System.out.print("Please Enter Start Date (MM/DD/YY): ");
+         String startDate = in.readLine().trim();
+
+         System.out.print("Please Enter End Date (MM/DD/YY): ");
+         String endDate = in.readLine().trim();
+
+         List<DashboardSection> sections = new ArrayList<DashboardSection>();
+         for (String flightNum : flights) {
+            int shard = esql.isSharded() ? esql.shardOf(flightNum) : -1;
+            sections.add(new DashboardSection("Seats of flight " + flightNum, shard, String.format(
+               "SELECT FlightDate, SeatsTotal - SeatsSold AS SeatsAvailable, SeatsSold " +
+               "FROM FlightInstance " +
+               "WHERE FlightNumber = '%s' AND FlightDate BETWEEN '%s' AND '%s' " +
+               "ORDER BY FlightDate;",
+               flightNum, startDate, endDate)));
+            sections.add(new DashboardSection("Status of flight " + flightNum, shard, String.format(
+               "SELECT FlightDate, DepartedOnTime, ArrivedOnTime " +
+               "FROM FlightInstance " +
+               "WHERE FlightNumber = '%s' AND FlightDate BETWEEN '%s' AND '%s' " +
+               "ORDER BY FlightDate;",
+               flightNum, startDate, endDate)));
+            sections.add(new DashboardSection("Statistics of flight " + flightNum, shard, String.format(
+               "SELECT " +
+               "COUNT(CASE WHEN DepartedOnTime = TRUE THEN 1 END) AS DepartedOnTimeCount, " +
+               "COUNT(CASE WHEN ArrivedOnTime = TRUE THEN 1 END) AS ArrivedOnTimeCount, " +
+               "SUM(SeatsSold) AS TotalSeatsSold, " +
+               "SUM(SeatsTotal - SeatsSold) AS TotalSeatsUnsold " +
+               "FROM FlightInstance " +
+               "WHERE FlightNumber = '%s' " +
+               "AND FlightDate BETWEEN '%s' AND '%s';",
+               flightNum, startDate, endDate)));
+         }
+         for (String planeID : planes) {
+            sections.add(new DashboardSection("Plane " + planeID, -1, String.format(
+               "SELECT Make, Model, (EXTRACT(YEAR FROM CURRENT_DATE) - Year) AS Age, LastRepairDate " +
+               "FROM Plane " +
+               "WHERE PlaneID = '%s';",
+               planeID)));
+         }
+         sections.add(new DashboardSection("Maintenance staff", -1,
+            "SELECT TechnicianID, COUNT(*) AS RepairCount " +
+            "FROM Repair " +
+            "GROUP BY TechnicianID " +
+            "ORDER BY RepairCount DESC;"));
+
+         long started = System.currentTimeMillis();
+         List<CompletableFuture<Void>> running = new ArrayList<CompletableFuture<Void>>();
+         for (DashboardSection section : sections) {
+            running.add(CompletableFuture.runAsync(() -> esql.runSection(section), esql.dashboardPool()));
+         }
+         CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+         long elapsed = System.currentTimeMillis() - started;
+
+         long summed = 0;
+         for (DashboardSection section : sections) {
+            System.out.println("== " + section.title + " (" + section.millis + " ms) ==");
+            if (section.error != null) {
+               System.out.println("Failed: " + section.error);
+            } else if (printResult(section.columns, section.rows) == 0) {
+               System.out.println("Nothing found.");
+            }
+            summed += section.millis;
+         }
+         System.out.println("Dashboard of " + sections.size() + " sections took " + elapsed +
+            " ms, running them one after another would take about " + summed + " ms.");
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+
+   //HELPER FUNCTION
+   //splits a comma separated list typed by the user, dropping the empty entries
+   private static String[] splitList(String text) {
+      List<String> values = new ArrayList<String>();
+      for (String value : text.split(",")) {
+         if (!value.trim().isEmpty()) {
+            values.add(value.trim());
+         }
+      }
+      return values.toArray(new String[0]);
+   }
+
+   //HELPER FUNCTION
+   //prints the repairs of a plane between two dates for features 9, 15 and 16, from the repair history kept in memory
+   public static int printRepairHistory(AirlineManagement esql, String planeID, String startDate, String endDate) throws SQLException, IOException {
+      return esql.printReport(new String[] {"repairdate", "repaircode"}, esql.store().planeRepairs(planeID, startDate, endDate));
+   }
+
+   //HELPER FUNCTION
+   //reads a date typed as MM/DD/YY (like the FlightInstance data) or YYYY-MM-DD, returns null if it is neither
+   public static LocalDate parseDate(String text) {
+      text = text.trim();
+      String[] patterns = {"M/d/yy", "M/d/yyyy", "yyyy-MM-dd"};
+      for (String pattern : patterns) {
+         try {
+            return LocalDate.parse(text, DateTimeFormatter.ofPattern(pattern));
+         } catch (DateTimeParseException e) {
+            // try the next format
+         }
+      }
+      return null;
+   }
+
+   //HELPER FUNCTION
+   //matches the table name the user typed to one of the exportable tables
+   private static String exportTableName(String name) {
+      name = name.trim();
+      String[] tables = {"Reservation", "FlightInstance", "Repair"};
+      for (String table : tables) {
+         if (table.equalsIgnoreCase(name)) {
+            return table;
+         }
+      }
+      return null;
+   }
+
+   //HELPER FUNCTION
+   //writes one file per date, the workers take the dates one at a time and each keeps its own connection for all of them
+   //(one per shard when the bookings are sharded, a date's file then has the rows of every shard)
+   //Reservation is split by the FlightDate it keeps from its FlightInstance
+   private static void exportByDate(final AirlineManagement esql, final String table, String extension, final boolean gzip) throws Exception {
+      final boolean bookings = !table.equals("Repair");
+      Set<String> dates = new TreeSet<String>();
+      if (!bookings) {
+         for (List<String> row : esql.executeQueryAndReturnResult("SELECT DISTINCT RepairDate FROM Repair ORDER BY RepairDate;")) {
+            dates.add(row.get(0));
+         }
+      } else {
+         String datesQuery = "SELECT DISTINCT FlightDate FROM FlightInstance ORDER BY FlightDate;";
+         for (List<String> row : esql.isSharded() ? esql.executeQueryOnAllShards(datesQuery) : esql.executeQueryAndReturnResult(datesQuery)) {
+            dates.add(row.get(0));
+         }
+      }
+      final ConcurrentLinkedQueue<String> remaining = new ConcurrentLinkedQueue<String>(dates);
+
+      int workers = Math.max(1, Math.min(4, dates.size()));
+      ExecutorService pool = Executors.newFixedThreadPool(workers);
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int w = 0; w < workers; w++) {
+         results.add(pool.submit(() -> {
+            List<Connection> conns = bookings ? esql.openBookingConnections() : Collections.singletonList(esql.openConnection());
+            try {
+               int rows = 0;
+               for (String date = remaining.poll(); date != null; date = remaining.poll()) {
+                  String query;
+                  if (table.equals("Repair")) {
+                     query = String.format("SELECT * FROM Repair WHERE RepairDate = '%s'", date);
+                  } else if (table.equals("FlightInstance")) {
+                     query = String.format("SELECT * FROM FlightInstance WHERE FlightDate = '%s'", date);
+                  } else {
+                     query = String.format("SELECT * FROM Reservation WHERE FlightDate = '%s'", date);
+                  }
+                  rows += exportCSV(conns, query, table + "_" + date + extension, gzip);
+               }
+               return rows;
+            } finally {
+               closeAll(conns);
+            }
+         }));
+      }
+      pool.shutdown();
+
+      int totalRows = 0;
+      for (Future<Integer> result : results) {
+         totalRows += result.get();
+      }
+      System.out.println("Exported " + totalRows + " rows into " + dates.size() + " files.");
+   }
+
+   /**
+    * An in memory copy of the Flight, Schedule, FlightInstance, and Plane
+    * columns that the customer searches read.  Each column is kept in its
+    * own primitive array, and repeated strings (cities, flight numbers,
+    * plane makes and models) are stored once in a dictionary and referred to
+    * by their index.  Flight instances are only ever added, so refresh() pulls
+    * in the rows past the highest FlightInstanceID it has seen and then the
+    * current SeatsSold of every instance.
+    */
+   static class FlightReplica {
+
+      private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+      // dictionaries, the columns hold the index of the string
+      private final StringDictionary cities = new StringDictionary();
+      private final StringDictionary flightNumbers = new StringDictionary();
+      private final StringDictionary planeTypes = new StringDictionary();
+
+      // Flight columns, indexed by the flight number's dictionary index
+      private int[] departureCity = new int[16];
+      private int[] arrivalCity = new int[16];
+      private int[] planeMake = new int[16];
+      private int[] planeModel = new int[16];
+      private int[] flownCount = new int[16];
+      private int[] onTimeCount = new int[16];
+
+      // Schedule columns, times are seconds since midnight
+      private int scheduleCount = 0;
+      private int[] scheduleFlight = new int[16];
+      private int[] departureTime = new int[16];
+      private int[] arrivalTime = new int[16];
+
+      // FlightInstance columns, dates are days since 1970-01-01 and costs are in cents
+      private int instanceCount = 0;
+      private int maxInstanceID = 0;
+      private final Map<Integer, Integer> rowOfInstance = new HashMap<Integer, Integer>();
+      private int[] instanceFlight = new int[64];
+      private int[] flightDate = new int[64];
+      private int[] seatsTotal = new int[64];
+      private int[] seatsSold = new int[64];
+      private int[] numOfStops = new int[64];
+      private long[] ticketCost = new long[64];
+
+      /*
+       * Reloads Flight and Schedule (they are small) and pulls in the new flight instances and seat counts
+       **/
+      public void refresh(AirlineManagement esql) throws SQLException {
+         List<List<String>> flights = esql.executeQueryAndReturnResult(
+            "SELECT F.FlightNumber, F.DepartureCity, F.ArrivalCity, P.Make, P.Model " +
+            "FROM Flight F LEFT JOIN Plane P ON F.PlaneID = P.PlaneID;");
+         List<List<String>> schedules = esql.executeQueryAndReturnResult(
+            "SELECT FlightNumber, DepartureTime, ArrivalTime FROM Schedule;");
+         String instancesQuery = String.format(
+            "SELECT FlightInstanceID, FlightNumber, FlightDate, DepartedOnTime, ArrivedOnTime, " +
+            "SeatsTotal, SeatsSold, NumOfStops, TicketCost " +
+            "FROM FlightInstance WHERE FlightInstanceID > %d ORDER BY FlightInstanceID;", this.maxInstanceID);
+         String seatsQuery = "SELECT FlightInstanceID, SeatsSold FROM FlightInstance;";
+         List<List<String>> instances;
+         List<List<String>> seats;
+         if (esql.isSharded()) {
+            //the flight instances and their seat counts are on the shards, the IDs are unique across them
+            instances = esql.executeQueryOnAllShards(instancesQuery);
+            Collections.sort(instances, (a, b) -> Integer.compare(Integer.parseInt(a.get(0).trim()), Integer.parseInt(b.get(0).trim())));
+            seats = esql.executeQueryOnAllShards(seatsQuery);
+         } else {
+            instances = esql.executeQueryAndReturnResult(instancesQuery);
+            seats = esql.executeQueryAndReturnResult(seatsQuery);
+         }
+         load(flights, schedules, instances, seats);
+      }
+
+      /*
+       * Takes in the rows of the refresh queries, from the database or from the in memory store
+       **/
+      void load(List<List<String>> flights, List<List<String>> schedules, List<List<String>> instances, List<List<String>> seats) {
+         this.lock.writeLock().lock();
+         try {
+            for (List<String> row : flights) {
+               int flight = flightIndex(row.get(0));
+               this.departureCity[flight] = this.cities.indexOf(row.get(1));
+               this.arrivalCity[flight] = this.cities.indexOf(row.get(2));
+               this.planeMake[flight] = this.planeTypes.indexOf(row.get(3));
+               this.planeModel[flight] = this.planeTypes.indexOf(row.get(4));
+            }
+
+            this.scheduleCount = 0;
+            for (List<String> row : schedules) {
+               if (this.scheduleCount == this.scheduleFlight.length) {
+                  int size = this.scheduleCount * 2;
+                  this.scheduleFlight = Arrays.copyOf(this.scheduleFlight, size);
+                  this.departureTime = Arrays.copyOf(this.departureTime, size);
+                  this.arrivalTime = Arrays.copyOf(this.arrivalTime, size);
+               }
+               this.scheduleFlight[this.scheduleCount] = flightIndex(row.get(0));
+               this.departureTime[this.scheduleCount] = parseTime(row.get(1));
+               this.arrivalTime[this.scheduleCount] = parseTime(row.get(2));
+               this.scheduleCount++;
+            }
+
+            for (List<String> row : instances) {
+               addInstance(row);
+            }
+
+            for (List<String> row : seats) {
+               Integer r = this.rowOfInstance.get(Integer.parseInt(row.get(0)));
+               if (r != null && row.get(1) != null) {
+                  this.seatsSold[r] = Integer.parseInt(row.get(1));
+               }
+            }
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      /*
+       * Applies a change to SeatsSold that this program made itself
+       **/
+      public void addSeatsSold(int flightInstanceID, int delta) {
+         this.lock.writeLock().lock();
+         try {
+            Integer r = this.rowOfInstance.get(flightInstanceID);
+            if (r != null) {
+               this.seatsSold[r] += delta;
+            }
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      //same rows as feature2: SeatsAvailable, SeatsSold
+      public List<List<String>> seats(String flightNumber, LocalDate date) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            int flight = this.flightNumbers.find(flightNumber);
+            int day = (int) date.toEpochDay();
+            for (int r = 0; r < this.instanceCount && flight >= 0; r++) {
+               if (this.instanceFlight[r] == flight && this.flightDate[r] == day) {
+                  result.add(Arrays.asList(
+                     Integer.toString(this.seatsTotal[r] - this.seatsSold[r]),
+                     Integer.toString(this.seatsSold[r])));
+               }
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      //same rows as feature11: DepartureTime, ArrivalTime, NumOfStops, OnTimePercentage
+      public List<List<String>> searchFlights(String departure, String arrival, LocalDate date) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            int from = this.cities.find(departure);
+            int to = this.cities.find(arrival);
+            int day = (int) date.toEpochDay();
+            for (int r = 0; r < this.instanceCount && from >= 0 && to >= 0; r++) {
+               int flight = this.instanceFlight[r];
+               if (this.flightDate[r] != day || this.departureCity[flight] != from || this.arrivalCity[flight] != to) {
+                  continue;
+               }
+               String onTime = BigDecimal.valueOf(100L * this.onTimeCount[flight])
+                  .divide(BigDecimal.valueOf(this.flownCount[flight]), 2, RoundingMode.HALF_UP).toPlainString();
+               for (int s = 0; s < this.scheduleCount; s++) {
+                  if (this.scheduleFlight[s] == flight) {
+                     result.add(Arrays.asList(formatTime(this.departureTime[s]), formatTime(this.arrivalTime[s]),
+                        Integer.toString(this.numOfStops[r]), onTime));
+                  }
+               }
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      //same rows as feature12: the distinct TicketCost values of a flight
+      public List<List<String>> ticketCosts(String flightNumber) {
+         Set<Long> costs = new LinkedHashSet<Long>();
+         this.lock.readLock().lock();
+         try {
+            int flight = this.flightNumbers.find(flightNumber);
+            for (int r = 0; r < this.instanceCount && flight >= 0; r++) {
+               if (this.instanceFlight[r] == flight) {
+                  costs.add(this.ticketCost[r]);
+               }
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (long cost : costs) {
+            result.add(Arrays.asList(BigDecimal.valueOf(cost, 2).toPlainString()));
+         }
+         return result;
+      }
+
+      //the cheapest instance with seats left for each day of a route: FlightDate, FlightNumber, TicketCost, SeatsLeft, NumOfStops
+      public List<List<String>> fareCalendar(String departure, String arrival, LocalDate firstDay, LocalDate lastDay) {
+         int first = (int) firstDay.toEpochDay();
+         int days = (int) (lastDay.toEpochDay() - first) + 1;
+         int[] best = new int[days];
+         Arrays.fill(best, -1);
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            int from = this.cities.find(departure);
+            int to = this.cities.find(arrival);
+            for (int r = 0; r < this.instanceCount && from >= 0 && to >= 0; r++) {
+               int day = this.flightDate[r] - first;
+               int flight = this.instanceFlight[r];
+               if (day < 0 || day >= days || this.seatsSold[r] >= this.seatsTotal[r]
+                   || this.departureCity[flight] != from || this.arrivalCity[flight] != to) {
+                  continue;
+               }
+               int b = best[day];
+               if (b < 0 || this.ticketCost[r] < this.ticketCost[b]
+                   || (this.ticketCost[r] == this.ticketCost[b] && this.numOfStops[r] < this.numOfStops[b])) {
+                  best[day] = r;
+               }
+            }
+            for (int day = 0; day < days; day++) {
+               int r = best[day];
+               if (r >= 0) {
+                  result.add(Arrays.asList(LocalDate.ofEpochDay(first + day).toString(),
+                     this.flightNumbers.get(this.instanceFlight[r]), BigDecimal.valueOf(this.ticketCost[r], 2).toPlainString(),
+                     Integer.toString(this.seatsTotal[r] - this.seatsSold[r]), Integer.toString(this.numOfStops[r])));
+               }
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      //same rows as feature13: Make, Model of the flight's plane
+      public List<List<String>> planeType(String flightNumber) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            int flight = this.flightNumbers.find(flightNumber);
+            if (flight >= 0 && this.planeMake[flight] >= 0) {
+               result.add(Arrays.asList(this.planeTypes.get(this.planeMake[flight]), this.planeTypes.get(this.planeModel[flight])));
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      /*
+       * Appends one FlightInstance row to the columns, called with the write lock held
+       **/
+      private void addInstance(List<String> row) {
+         if (this.instanceCount == this.instanceFlight.length) {
+            int size = this.instanceCount * 2;
+            this.instanceFlight = Arrays.copyOf(this.instanceFlight, size);
+            this.flightDate = Arrays.copyOf(this.flightDate, size);
+            this.seatsTotal = Arrays.copyOf(this.seatsTotal, size);
+            this.seatsSold = Arrays.copyOf(this.seatsSold, size);
+            this.numOfStops = Arrays.copyOf(this.numOfStops, size);
+            this.ticketCost = Arrays.copyOf(this.ticketCost, size);
+         }
+         int id = Integer.parseInt(row.get(0));
+         int r = this.instanceCount++;
+         int flight = flightIndex(row.get(1));
+         this.rowOfInstance.put(id, r);
+         this.maxInstanceID = Math.max(this.maxInstanceID, id);
+         this.instanceFlight[r] = flight;
+         this.flightDate[r] = (int) LocalDate.parse(row.get(2)).toEpochDay();
+         this.seatsTotal[r] = parseInt(row.get(5));
+         this.seatsSold[r] = parseInt(row.get(6));
+         this.numOfStops[r] = parseInt(row.get(7));
+         this.ticketCost[r] = row.get(8) == null ? 0 : new BigDecimal(row.get(8)).movePointRight(2).longValue();
+
+         //the on time percentage in feature11 counts the flight's instances that departed and arrived on time
+         this.flownCount[flight]++;
+         if (isTrue(row.get(3)) && isTrue(row.get(4))) {
+            this.onTimeCount[flight]++;
+         }
+      }
+
+      /*
+       * Returns the dictionary index of a flight number, growing the Flight columns for a new one
+       **/
+      private int flightIndex(String flightNumber) {
+         int flight = this.flightNumbers.indexOf(flightNumber);
+         if (flight == this.departureCity.length) {
+            int size = flight * 2;
+            this.departureCity = Arrays.copyOf(this.departureCity, size);
+            this.arrivalCity = Arrays.copyOf(this.arrivalCity, size);
+            this.planeMake = Arrays.copyOf(this.planeMake, size);
+            this.planeModel = Arrays.copyOf(this.planeModel, size);
+            this.flownCount = Arrays.copyOf(this.flownCount, size);
+            this.onTimeCount = Arrays.copyOf(this.onTimeCount, size);
+         }
+         return flight;
+      }
+
+      private static int parseInt(String value) {
+         return value == null ? 0 : Integer.parseInt(value);
+      }
+
+      //booleans come back from the driver as t/f
+      private static boolean isTrue(String value) {
+         return value != null && (value.equals("t") || value.equalsIgnoreCase("true") || value.equals("1"));
+      }
+
+      private static int parseTime(String value) {
+         if (value == null) {
+            return -1;
+         }
+         String[] parts = value.split(":");
+         int seconds = Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60;
+         if (parts.length > 2) {
+            seconds += (int) Double.parseDouble(parts[2]);
+         }
+         return seconds;
+      }
+
+      private static String formatTime(int seconds) {
+         if (seconds < 0) {
+            return null;
+         }
+         return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+      }
+   }
+
+   /**
+    * A read only directory of the Customer table kept in a memory mapped
+    * file, so millions of customers can be searched without loading them as
+    * objects.  The file holds a header, then one record per customer, then a
+    * sorted array of record offsets for each search key.  Searches binary
+    * search those arrays against the mapped bytes.
+    *
+    * A record is the CustomerID (int) followed by each field as an unsigned
+    * short length and its UTF-8 bytes: FirstName, LastName, Gender, DOB,
+    * Address, Phone, Zip, and then the three search keys (upper case last
+    * name, upper case first name, and the digits of the phone number).
+    *
+    * Record offsets are ints and a single mapping is at most 2GB, which is
+    * plenty for tens of millions of customers.
+    */
+   static class CustomerDirectory {
+
+      public static final int MAX_RESULTS = 50;
+
+      // field positions within a record
+      public static final int LAST_NAME_KEY = 7;
+      public static final int FIRST_NAME_KEY = 8;
+      public static final int PHONE_KEY = 9;
+      private static final int FIELD_COUNT = 10;
+
+      // header: magic, customer count, max CustomerID, then where each index starts
+      private static final int MAGIC = 0x43444952;
+      private static final int HEADER_SIZE = 24;
+
+      private final MappedByteBuffer data;
+      private final int count;
+      private final int maxCustomerID;
+      private final int[] indexStart = new int[FIELD_COUNT];
+
+      private CustomerDirectory(MappedByteBuffer data) throws IOException {
+         this.data = data;
+         if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not a customer directory file");
+         }
+         this.count = data.getInt(4);
+         this.maxCustomerID = data.getInt(8);
+         this.indexStart[LAST_NAME_KEY] = data.getInt(12);
+         this.indexStart[FIRST_NAME_KEY] = data.getInt(16);
+         this.indexStart[PHONE_KEY] = data.getInt(20);
+      }
+
+      public static CustomerDirectory open(String fileName) throws IOException {
+         RandomAccessFile file = new RandomAccessFile(fileName, "r");
+         try {
+            FileChannel channel = file.getChannel();
+            return new CustomerDirectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+         } finally {
+            file.close();
+         }
+      }
+
+      /*
+       * Writes every Customer row to the file, then sorts the record offsets by each key and appends the indexes
+       **/
+      public static void build(Connection conn, String fileName) throws SQLException, IOException {
+         final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 65536));
+         final int[] maxID = {0};
+         final int[][] offsets = {new int[1024]};
+         final int[] position = {HEADER_SIZE};
+         int count;
+         try {
+            out.write(new byte[HEADER_SIZE]);
+            count = streamQuery(conn,
+               "SELECT CustomerID, FirstName, LastName, Gender, DOB, Address, Phone, Zip FROM Customer",
+               new RowHandler() {
+                  private int n = 0;
+
+                  public void handle(ResultSet rs) throws SQLException, IOException {
+                     if (n == offsets[0].length) {
+                        offsets[0] = Arrays.copyOf(offsets[0], n * 2);
+                     }
+                     offsets[0][n++] = position[0];
+                     int id = rs.getInt(1);
+                     maxID[0] = Math.max(maxID[0], id);
+                     out.writeInt(id);
+                     position[0] += 4;
+                     for (int i = 2; i <= 8; i++) {
+                        position[0] += writeField(out, rs.getString(i));
+                     }
+                     position[0] += writeField(out, upper(rs.getString(3)));
+                     position[0] += writeField(out, upper(rs.getString(2)));
+                     position[0] += writeField(out, digits(rs.getString(7)));
+                  }
+               });
+         } finally {
+            out.close();
+         }
+
+         RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+         try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, position[0]);
+            int[] indexStart = new int[FIELD_COUNT];
+            long end = position[0];
+            for (int key = LAST_NAME_KEY; key <= PHONE_KEY; key++) {
+               int[] sorted = Arrays.copyOf(offsets[0], count);
+               sort(records, key, sorted, new int[count], 0, count);
+               ByteBuffer index = ByteBuffer.allocate(count * 4);
+               index.asIntBuffer().put(sorted);
+               indexStart[key] = (int) end;
+               while (index.hasRemaining()) {
+                  end += channel.write(index, end);
+               }
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(count).putInt(maxID[0])
+               .putInt(indexStart[LAST_NAME_KEY]).putInt(indexStart[FIRST_NAME_KEY]).putInt(indexStart[PHONE_KEY]);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+         } finally {
+            file.close();
+         }
+      }
+
+      public int size() {
+         return this.count;
+      }
+
+      public int maxCustomerID() {
+         return this.maxCustomerID;
+      }
+
+      /*
+       * Returns up to limit customers whose key starts with the prefix, in key order
+       **/
+      public List<List<String>> search(int key, String prefix, int limit) {
+         byte[] wanted = (key == PHONE_KEY ? prefix : upper(prefix)).getBytes(StandardCharsets.UTF_8);
+         int base = this.indexStart[key];
+
+         // first entry whose key is >= the prefix
+         int low = 0;
+         int high = this.count;
+         while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(this.data, this.data.getInt(base + mid * 4), key, wanted, false) < 0) {
+               low = mid + 1;
+            } else {
+               high = mid;
+            }
+         }
+
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (int i = low; i < this.count && result.size() < limit; i++) {
+            int record = this.data.getInt(base + i * 4);
+            if (compare(this.data, record, key, wanted, true) != 0) {
+               break;
+            }
+            result.add(read(record));
+         }
+         return result;
+      }
+
+      /*
+       * Reads CustomerID and the seven Customer columns of a record
+       **/
+      private List<String> read(int record) {
+         List<String> row = new ArrayList<String>();
+         row.add(Integer.toString(this.data.getInt(record)));
+         int p = record + 4;
+         for (int i = 0; i < 7; i++) {
+            int length = this.data.getShort(p) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            for (int b = 0; b < length; b++) {
+               bytes[b] = this.data.get(p + 2 + b);
+            }
+            row.add(new String(bytes, StandardCharsets.UTF_8));
+            p += 2 + length;
+         }
+         return row;
+      }
+
+      /*
+       * Returns where a field of a record starts (at its length)
+       **/
+      private static int fieldStart(ByteBuffer data, int record, int field) {
+         int p = record + 4;
+         for (int i = 0; i < field; i++) {
+            p += 2 + (data.getShort(p) & 0xFFFF);
+         }
+         return p;
+      }
+
+      /*
+       * Compares a record's key with the wanted bytes, as unsigned bytes.
+       * With prefixOnly, a key that starts with the wanted bytes counts as equal.
+       **/
+      private static int compare(ByteBuffer data, int record, int field, byte[] wanted, boolean prefixOnly) {
+         int p = fieldStart(data, record, field);
+         int length = data.getShort(p) & 0xFFFF;
+         int n = Math.min(length, wanted.length);
+         for (int i = 0; i < n; i++) {
+            int diff = (data.get(p + 2 + i) & 0xFF) - (wanted[i] & 0xFF);
+            if (diff != 0) {
+               return diff;
+            }
+         }
+         if (prefixOnly && length >= wanted.length) {
+            return 0;
+         }
+         return length - wanted.length;
+      }
+
+      /*
+       * Compares the keys of two records, as unsigned bytes
+       **/
+      private static int compareRecords(ByteBuffer data, int a, int b, int field) {
+         int pa = fieldStart(data, a, field);
+         int pb = fieldStart(data, b, field);
+         int la = data.getShort(pa) & 0xFFFF;
+         int lb = data.getShort(pb) & 0xFFFF;
+         int n = Math.min(la, lb);
+         for (int i = 0; i < n; i++) {
+            int diff = (data.get(pa + 2 + i) & 0xFF) - (data.get(pb + 2 + i) & 0xFF);
+            if (diff != 0) {
+               return diff;
+            }
+         }
+         return la - lb;
+      }
+
+      /*
+       * Merge sort of record offsets by key, so the offsets stay a plain int array
+       **/
+      private static void sort(ByteBuffer data, int field, int[] offsets, int[] temp, int from, int to) {
+         if (to - from < 2) {
+            return;
+         }
+         int mid = (from + to) >>> 1;
+         sort(data, field, offsets, temp, from, mid);
+         sort(data, field, offsets, temp, mid, to);
+         int i = from;
+         int j = mid;
+         int k = from;
+         while (i < mid && j < to) {
+            temp[k++] = compareRecords(data, offsets[i], offsets[j], field) <= 0 ? offsets[i++] : offsets[j++];
+         }
+         while (i < mid) temp[k++] = offsets[i++];
+         while (j < to) temp[k++] = offsets[j++];
+         System.arraycopy(temp, from, offsets, from, to - from);
+      }
+
+      private static int writeField(DataOutputStream out, String value) throws IOException {
+         byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+         int length = Math.min(bytes.length, 0xFFFF);
+         out.writeShort(length);
+         out.write(bytes, 0, length);
+         return 2 + length;
+      }
+
+      private static String upper(String value) {
+         return value == null ? null : value.trim().toUpperCase(Locale.ROOT);
+      }
+
+      //keeps only the digits of a phone number, so 884.969.6532 and (884) 969-6532 search the same
+      public static String digits(String phone) {
+         if (phone == null) {
+            return null;
+         }
+         StringBuilder digits = new StringBuilder();
+         for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+               digits.append(c);
+            }
+         }
+         return digits.toString();
+      }
+   }
+
+   /**
+    * A Bloom filter of strings.  Answers "definitely not added" or "probably
+    * added" using k bit positions per key, taken from two halves of a 64 bit
+    * hash.  Bits are set with atomic updates so adds and checks can run on
+    * different threads.
+    */
+   static class BloomFilter {
+
+      private final AtomicLongArray bits;
+      private final long bitCount;
+      private final int hashCount;
+
+      //sized so that about falsePositiveRate of the keys not in the filter still come back as "probably added"
+      public BloomFilter(int expectedKeys, double falsePositiveRate) {
+         long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+         m = Math.max(64, m);
+         this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+         this.bitCount = this.bits.length() * 64L;
+         this.hashCount = Math.max(1, (int) Math.round((double) m / expectedKeys * Math.log(2)));
+      }
+
+      public void add(String key) {
+         long hash = hash(key);
+         int h1 = (int) hash;
+         int h2 = (int) (hash >>> 32);
+         for (int i = 0; i < this.hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << (bit & 63);
+            long old;
+            do {
+               old = this.bits.get(word);
+            } while ((old & mask) == 0 && !this.bits.compareAndSet(word, old, old | mask));
+         }
+      }
+
+      public boolean mightContain(String key) {
+         long hash = hash(key);
+         int h1 = (int) hash;
+         int h2 = (int) (hash >>> 32);
+         for (int i = 0; i < this.hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bitCount;
+            if ((this.bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      //64 bit FNV-1a over the characters, then mixed so both halves are spread out for short IDs
+      private static long hash(String key) {
+         long hash = 0xcbf29ce484222325L;
+         for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+         }
+         hash ^= hash >>> 33;
+         hash *= 0xff51afd7ed558ccdL;
+         hash ^= hash >>> 33;
+         return hash;
+      }
+   }
+
+   /**
+    * Makes ReservationIDs that sort in the order they were created, so new
+    * reservations are added at the right edge of the primary key index
+    * instead of at random places in it.  Each ID is a 64 bit number made of
+    * the milliseconds since 2025-01-01 (41 bits, good for about 69 years),
+    * a node number (10 bits) and a counter within the millisecond (12 bits).
+    * It is written as "R" and 13 Crockford base 32 characters, padded so
+    * that text order is the same as number order.
+    */
+   static class ReservationIdGenerator {
+
+      public static final int MAX_NODE = (1 << 10) - 1;
+      private static final int MAX_SEQUENCE = (1 << 12) - 1;
+      private static final long EPOCH = 1735689600000L;
+      private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+      private final long node;
+      private long lastMillis = -1;
+      private int sequence = 0;
+
+      public ReservationIdGenerator(int node) {
+         if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("The node must be between 0 and " + MAX_NODE);
+         }
+         this.node = node;
+      }
+
+      public synchronized long nextLong() {
+         long now = System.currentTimeMillis();
+         if (now < this.lastMillis) {
+            // the clock went back, keep using the last millisecond so IDs stay in order
+            now = this.lastMillis;
+         }
+         if (now == this.lastMillis) {
+            this.sequence = (this.sequence + 1) & MAX_SEQUENCE;
+            if (this.sequence == 0) {
+               // used up this millisecond, wait for the next one
+               while (now <= this.lastMillis) {
+                  now = System.currentTimeMillis();
+               }
+            }
+         } else {
+            this.sequence = 0;
+         }
+         this.lastMillis = now;
+         return ((now - EPOCH) << 22) | (this.node << 12) | this.sequence;
+      }
+
+      public String next() {
+         return encode(nextLong());
+      }
+
+      public static String encode(long id) {
+         char[] text = new char[14];
+         text[0] = 'R';
+         for (int i = 13; i >= 1; i--) {
+            text[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+         }
+         return new String(text);
+      }
+   }
+
+   /**
+    * Stores each distinct string once and hands out a small integer for it,
+    * so columns of repeated strings can be kept as int arrays.
+    */
+   static class StringDictionary {
+
+      private final List<String> values = new ArrayList<String>();
+      private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+      //returns the index of the string, adding it if it is new (null stays -1)
+      public int indexOf(String value) {
+         if (value == null) {
+            return -1;
+         }
+         Integer i = this.index.get(value);
+         if (i == null) {
+            i = this.values.size();
+            this.values.add(value);
+            this.index.put(value, i);
+         }
+         return i;
+      }
+
+      //returns the index of the string, or -1 if it was never added
+      public int find(String value) {
+         Integer i = value == null ? null : this.index.get(value.trim());
+         return i == null ? -1 : i;
+      }
+
+      public String get(int i) {
+         return this.values.get(i);
+      }
+
+      public int size() {
+         return this.values.size();
+      }
+   }
+
+
+   /**
+    * Records the statements each menu action sends to the database.  Every
+    * connection is wrapped so its statements (plain, prepared and callable)
+    * and result sets report to the action running at the time, with the
+    * bytes of each value read counted as the server sends it (UTF-8 text),
+    * and when the action ends its span tree is
+    * appended to the trace file in the Chrome trace event format (open it in
+    * chrome://tracing or ui.perfetto.dev).  A one line summary is printed
+    * too, with a warning when the same statement shape was sent over and
+    * over (an N+1 pattern).
+    */
+   static class Tracer {
+
+      // a statement shape sent this many times in one action is reported as N+1
+      private static final int REPEAT_LIMIT = Integer.getInteger("airline.trace.repeat", 3);
+
+      private final PrintWriter out;
+      private final long origin = System.nanoTime();
+      private volatile Span action = null;
+      private final AtomicLong inputNanos = new AtomicLong();
+
+      static class Span {
+         final String name;
+         final String sql;
+         final long thread = Thread.currentThread().getId();
+         final long start = System.nanoTime();
+         final List<Span> children = new ArrayList<Span>();
+         long end;
+         long driverNanos = 0;
+         long statements = 1;
+         long rows = 0;
+         long bytes = 0;
+
+         Span(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+            this.end = this.start;
+         }
+      }
+
+      Tracer(String fileName) throws IOException {
+         File file = new File(fileName);
+         boolean start = !file.exists() || file.length() == 0;
+         this.out = new PrintWriter(new BufferedWriter(new FileWriter(file, true)));
+         //the format lets the closing ] be left off, so every run can keep appending
+         if (start) {
+            this.out.println("[");
+         }
+      }
+
+      /**
+       * Starts the span of a menu action, statements sent until end() belong to it.
+       */
+      void begin(String name) {
+         this.inputNanos.set(0);
+         this.action = new Span(name, null);
+      }
+
+      /**
+       * Ends the current action, writes its spans and prints its summary.
+       */
+      void end() {
+         Span root = this.action;
+         this.action = null;
+         if (root == null) {
+            return;
+         }
+         root.end = System.nanoTime();
+         List<Span> spans;
+         synchronized (root.children) {
+            spans = new ArrayList<Span>(root.children);
+         }
+         long statements = 0, rows = 0, bytes = 0, driver = 0;
+         Map<String, Integer> shapes = new LinkedHashMap<String, Integer>();
+         for (Span span : spans) {
+            statements += span.statements;
+            rows += span.rows;
+            bytes += span.bytes;
+            driver += span.driverNanos;
+            String shape = shape(span.sql);
+            //cursor fetches and transaction control repeat by design
+            if (!shape.startsWith("FETCH") && !shape.matches("(BEGIN|COMMIT|ROLLBACK|CLOSE).*")) {
+               shapes.merge(shape, 1, Integer::sum);
+            }
+         }
+         long input = this.inputNanos.get();
+         long app = Math.max(0, root.end - root.start - driver - input);
+         List<String> repeated = new ArrayList<String>();
+         for (Map.Entry<String, Integer> entry : shapes.entrySet()) {
+            if (entry.getValue() >= REPEAT_LIMIT) {
+               repeated.add(entry.getValue() + "x " + entry.getKey());
+            }
+         }
+
+         StringBuilder args = new StringBuilder();
+         args.append("\"statements\":").append(statements)
+             .append(",\"rows\":").append(rows)
+             .append(",\"bytes\":").append(bytes)
+             .append(",\"driver_ms\":").append(millis(driver))
+             .append(",\"app_ms\":").append(millis(app))
+             .append(",\"input_ms\":").append(millis(input))
+             .append(",\"n_plus_one\":[");
+         for (int i = 0; i < repeated.size(); i++) {
+            args.append(i > 0 ? "," : "").append(json(repeated.get(i)));
+         }
+         args.append("]");
+         event(root, "action", args.toString());
+         for (Span span : spans) {
+            event(span, "jdbc", "\"sql\":" + json(span.sql) + ",\"statements\":" + span.statements +
+                  ",\"rows\":" + span.rows + ",\"bytes\":" + span.bytes + ",\"driver_ms\":" + millis(span.driverNanos));
+         }
+         this.out.flush();
+
+         System.err.println(String.format("Trace %s: %d statements, %d rows, %d bytes, %s ms in the driver, %s ms in the app",
+            root.name, statements, rows, bytes, millis(driver), millis(app)));
+         for (String shape : repeated) {
+            System.err.println("Trace " + root.name + ": possible N+1, " + shape);
+         }
+      }
+
+      /**
+       * Counts time spent waiting for the keyboard, so it is not taken as app time.
+       */
+      void waited(long nanos) {
+         this.inputNanos.addAndGet(nanos);
+      }
+
+      /**
+       * Wraps a connection so its statements report to the current action.
+       */
+      Connection wrap(Connection conn) {
+         return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+               Object result = invoke(conn, method, args);
+               String name = method.getName();
+               if (result instanceof Statement && name.equals("createStatement")) {
+                  return wrapStatement((Statement) result, Statement.class, null);
+               }
+               //the proxy has the interface the method returns (PreparedStatement or CallableStatement), the SQL comes now
+               if (result instanceof Statement && (name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                  return wrapStatement((Statement) result, method.getReturnType(), (String) args[0]);
+               }
+               return result;
+            });
+      }
+
+      private Statement wrapStatement(Statement stmt, Class<?> type, String prepared) {
+         List<String> batch = new ArrayList<String>();
+         return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+            (proxy, method, args) -> {
+               String name = method.getName();
+               Span parent = this.action;
+               boolean hasSql = args != null && args.length > 0 && args[0] instanceof String;
+               if (name.equals("addBatch")) {
+                  batch.add(hasSql ? (String) args[0] : prepared);
+               }
+               if (parent == null || !name.startsWith("execute")) {
+                  return invoke(stmt, method, args);
+               }
+               boolean isBatch = name.equals("executeBatch");
+               //a prepared statement runs the SQL it was prepared with, each run is one more of the same shape
+               Span span = new Span(name, isBatch ? String.join(" ", batch) : hasSql ? (String) args[0] : prepared);
+               if (isBatch) {
+                  span.statements = Math.max(1, batch.size());
+                  batch.clear();
+               }
+               synchronized (parent.children) {
+                  parent.children.add(span);
+               }
+               Object result;
+               try {
+                  result = invoke(stmt, method, args);
+               } finally {
+                  span.end = System.nanoTime();
+                  span.driverNanos += span.end - span.start;
+               }
+               return result instanceof ResultSet ? wrapResultSet((ResultSet) result, span) : result;
+            });
+      }
+
+      private ResultSet wrapResultSet(ResultSet rs, Span span) {
+         return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> {
+               long start = System.nanoTime();
+               Object result;
+               try {
+                  result = invoke(rs, method, args);
+               } finally {
+                  span.end = System.nanoTime();
+                  span.driverNanos += span.end - start;
+               }
+               String name = method.getName();
+               if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                  span.rows++;
+               } else if (result != null && name.startsWith("get") && args != null && args.length > 0) {
+                  //a column value: the server sends it as text, so a number counts its digits like a string its characters
+                  span.bytes += result instanceof byte[] ? ((byte[]) result).length : utf8Length(result.toString());
+               }
+               return result;
+            });
+      }
+
+      // the length of the string in UTF-8, without encoding it
+      private static int utf8Length(String value) {
+         int length = 0;
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+               length += 1;
+            } else if (c < 0x800) {
+               length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+               length += 4;
+               i++;
+            } else {
+               length += 3;
+            }
+         }
+         return length;
+      }
+
+      private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+         try {
+            return method.invoke(target, args);
+         } catch (InvocationTargetException e) {
+            throw e.getCause();
+         }
+      }
+
+      private void event(Span span, String category, String args) {
+         this.out.println(String.format("{\"name\":%s,\"cat\":\"%s\",\"ph\":\"X\",\"ts\":%d,\"dur\":%d,\"pid\":1,\"tid\":%d,\"args\":{%s}},",
+            json(span.name), category, (span.start - this.origin) / 1000, (span.end - span.start) / 1000, span.thread, args));
+      }
+
+      // the statement with its literals taken out, so the same query for different keys looks the same
+      private static String shape(String sql) {
+         return sql.replaceAll("'(?:[^']|'')*'", "?").replaceAll("\\b\\d+(\\.\\d+)?\\b", "?").replaceAll("\\s+", " ").trim();
+      }
+
+      private static String millis(long nanos) {
+         return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+      }
+
+      private static String json(String value) {
+         StringBuilder sb = new StringBuilder("\"");
+         for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+               sb.append('\\').append(c);
+            } else if (c < 0x20) {
+               sb.append(String.format("\\u%04x", (int) c));
+            } else {
+               sb.append(c);
+            }
+         }
+         return sb.append('"').toString();
+      }
+   }
+
+   /**
+    * The Repair table kept in memory by plane, each plane's repairs sorted by
+    * date, so the repair history screens (features 9, 15, 16) find a date
+    * range with two binary searches instead of a query.  New repairs are
+    * pulled in by RepairID when the history is older than the refresh
+    * interval, and repairs entered in feature18 are added right away.
+    */
+   static class RepairHistory {
+
+      private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+      private final Map<String, PlaneRepairs> planes = new HashMap<String, PlaneRepairs>();
+      private int maxRepairID = 0;
+
+      // repairs this program added itself, so the next refresh does not add them again
+      private final Set<Integer> added = new HashSet<Integer>();
+
+      // one plane's repairs, dates are days since 1970-01-01 in ascending order
+      static class PlaneRepairs {
+         int size = 0;
+         int[] days = new int[4];
+         String[] codes = new String[4];
+
+         void insert(int day, String code) {
+            if (this.size == this.days.length) {
+               this.days = Arrays.copyOf(this.days, this.size * 2);
+               this.codes = Arrays.copyOf(this.codes, this.size * 2);
+            }
+            //after any repairs on the same day, so they keep the order they were entered in
+            int at = firstAfter(day);
+            System.arraycopy(this.days, at, this.days, at + 1, this.size - at);
+            System.arraycopy(this.codes, at, this.codes, at + 1, this.size - at);
+            this.days[at] = day;
+            this.codes[at] = code;
+            this.size++;
+         }
+
+         //index of the first repair later than the given day
+         int firstAfter(int day) {
+            int low = 0, high = this.size;
+            while (low < high) {
+               int mid = (low + high) >>> 1;
+               if (this.days[mid] <= day) {
+                  low = mid + 1;
+               } else {
+                  high = mid;
+               }
+            }
+            return low;
+         }
+      }
+
+      /*
+       * Pulls in the repairs added since the last refresh
+       **/
+      public void refresh(AirlineManagement esql) throws SQLException {
+         List<List<String>> rows = esql.executeQueryAndReturnResult(String.format(
+            "SELECT RepairID, PlaneID, RepairDate, RepairCode FROM Repair WHERE RepairID > %d ORDER BY RepairID;",
+            this.maxRepairID));
+         load(rows);
+      }
+
+      /*
+       * Takes in Repair rows (RepairID, PlaneID, RepairDate, RepairCode) in RepairID order
+       **/
+      void load(List<List<String>> rows) {
+         this.lock.writeLock().lock();
+         try {
+            for (List<String> row : rows) {
+               int id = Integer.parseInt(row.get(0));
+               this.maxRepairID = Math.max(this.maxRepairID, id);
+               if (!this.added.remove(id) && row.get(1) != null && row.get(2) != null) {
+                  insert(row.get(1), LocalDate.parse(row.get(2)), row.get(3));
+               }
+            }
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      /*
+       * Adds a repair this program just inserted
+       **/
+      public void add(int repairID, String planeID, LocalDate date, String repairCode) {
+         this.lock.writeLock().lock();
+         try {
+            if (repairID > this.maxRepairID) {
+               this.added.add(repairID);
+            }
+            insert(planeID, date, repairCode);
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      //same rows as features 9, 15, 16: RepairDate, RepairCode of a plane between two dates, oldest first
+      public List<List<String>> range(String planeID, LocalDate start, LocalDate end) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            PlaneRepairs repairs = this.planes.get(planeID.trim());
+            if (repairs != null) {
+               int to = repairs.firstAfter((int) end.toEpochDay());
+               for (int r = repairs.firstAfter((int) start.toEpochDay() - 1); r < to; r++) {
+                  result.add(Arrays.asList(LocalDate.ofEpochDay(repairs.days[r]).toString(), repairs.codes[r]));
+               }
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      private void insert(String planeID, LocalDate date, String repairCode) {
+         PlaneRepairs repairs = this.planes.get(planeID.trim());
+         if (repairs == null) {
+            repairs = new PlaneRepairs();
+            this.planes.put(planeID.trim(), repairs);
+         }
+         repairs.insert((int) date.toEpochDay(), repairCode);
+      }
+   }
+
+   /**
+    * The maintenance requests that are still open, kept up to date as
+    * requests and repairs come in.  A request is open until the plane gets a
+    * repair with the same RepairCode on or after the request date.  Each
+    * plane has a queue of its open requests in request order, and a
+    * technician's open work is the open requests on the planes they
+    * repaired last, so both counts are a map lookup.
+    */
+   static class MaintenanceBacklog {
+
+      private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+      private int maxRequestID = 0;
+      private int maxRepairID = 0;
+
+      // open requests by plane, oldest request first, and the IDs of every open request
+      private final Map<String, List<OpenRequest>> openByPlane = new HashMap<String, List<OpenRequest>>();
+      private final Set<Integer> openIDs = new HashSet<Integer>();
+
+      // latest repair day for each plane and repair code ("PlaneID\tRepairCode"), and for each plane
+      private final Map<String, Integer> lastRepairOfCode = new HashMap<String, Integer>();
+      private final Map<String, Integer> lastRepairOfPlane = new HashMap<String, Integer>();
+
+      // the technician who repaired each plane last, and the open requests on each technician's planes
+      private final Map<String, String> technicianOfPlane = new HashMap<String, String>();
+      private final Map<String, Integer> openByTechnician = new HashMap<String, Integer>();
+
+      // repairs this program added itself, so the next refresh does not add them again
+      private final Set<Integer> added = new HashSet<Integer>();
+
+      static class OpenRequest {
+         final int requestID;
+         final String repairCode;
+         final int day;
+         final String pilotID;
+
+         OpenRequest(int requestID, String repairCode, int day, String pilotID) {
+            this.requestID = requestID;
+            this.repairCode = repairCode;
+            this.day = day;
+            this.pilotID = pilotID;
+         }
+      }
+
+      /*
+       * Pulls in the repairs and maintenance requests added since the last refresh
+       **/
+      public void refresh(AirlineManagement esql) throws SQLException {
+         List<List<String>> repairs = esql.executeQueryAndReturnResult(String.format(
+            "SELECT RepairID, PlaneID, RepairCode, RepairDate, TechnicianID FROM Repair " +
+            "WHERE RepairID > %d ORDER BY RepairDate, RepairID;", this.maxRepairID));
+         List<List<String>> requests = esql.executeQueryAndReturnResult(String.format(
+            "SELECT RequestID, PlaneID, RepairCode, RequestDate, PilotID FROM MaintenanceRequest " +
+            "WHERE RequestID > %d ORDER BY RequestDate, RequestID;", this.maxRequestID));
+         load(repairs, requests);
+      }
+
+      /*
+       * Takes in Repair rows (RepairID, PlaneID, RepairCode, RepairDate, TechnicianID) and MaintenanceRequest
+       * rows (RequestID, PlaneID, RepairCode, RequestDate, PilotID), both in date order
+       **/
+      void load(List<List<String>> repairs, List<List<String>> requests) {
+         this.lock.writeLock().lock();
+         try {
+            for (List<String> row : repairs) {
+               int id = Integer.parseInt(row.get(0));
+               this.maxRepairID = Math.max(this.maxRepairID, id);
+               if (!this.added.remove(id) && row.get(1) != null && row.get(3) != null) {
+                  repair(row.get(1).trim(), code(row.get(2)), (int) LocalDate.parse(row.get(3)).toEpochDay(), row.get(4));
+               }
+            }
+            for (List<String> row : requests) {
+               this.maxRequestID = Math.max(this.maxRequestID, Integer.parseInt(row.get(0)));
+               if (row.get(1) != null && row.get(3) != null) {
+                  request(Integer.parseInt(row.get(0)), row.get(1).trim(), code(row.get(2)),
+                     (int) LocalDate.parse(row.get(3)).toEpochDay(), row.get(4));
+               }
+            }
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      /*
+       * Adds a repair this program just inserted, closing the requests it covers
+       **/
+      public void addRepair(int repairID, String planeID, String repairCode, LocalDate date, String technicianID) {
+         this.lock.writeLock().lock();
+         try {
+            if (repairID > this.maxRepairID) {
+               this.added.add(repairID);
+            }
+            repair(planeID.trim(), code(repairCode), (int) date.toEpochDay(), technicianID);
+         } finally {
+            this.lock.writeLock().unlock();
+         }
+      }
+
+      public boolean isOpen(int requestID) {
+         this.lock.readLock().lock();
+         try {
+            return this.openIDs.contains(requestID);
+         } finally {
+            this.lock.readLock().unlock();
+         }
+      }
+
+      public int openOfPlane(String planeID) {
+         this.lock.readLock().lock();
+         try {
+            List<OpenRequest> queue = this.openByPlane.get(planeID.trim());
+            return queue == null ? 0 : queue.size();
+         } finally {
+            this.lock.readLock().unlock();
+         }
+      }
+
+      public int openOfTechnician(String technicianID) {
+         this.lock.readLock().lock();
+         try {
+            Integer open = this.openByTechnician.get(technicianID.trim());
+            return open == null ? 0 : open;
+         } finally {
+            this.lock.readLock().unlock();
+         }
+      }
+
+      //a plane's open requests: RequestID, RepairCode, RequestDate, PilotID
+      public List<List<String>> requests(String planeID) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            List<OpenRequest> queue = this.openByPlane.get(planeID.trim());
+            for (OpenRequest request : queue == null ? Collections.<OpenRequest>emptyList() : queue) {
+               result.add(Arrays.asList(Integer.toString(request.requestID), request.repairCode,
+                  LocalDate.ofEpochDay(request.day).toString(), request.pilotID));
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         return result;
+      }
+
+      //planes with open requests, all of them or only a technician's: PlaneID, OpenRequests, OldestRequest, LastRepairDate, TechnicianID
+      public List<List<String>> planes(String technicianID) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         this.lock.readLock().lock();
+         try {
+            for (Map.Entry<String, List<OpenRequest>> entry : this.openByPlane.entrySet()) {
+               String technician = this.technicianOfPlane.get(entry.getKey());
+               if (entry.getValue().isEmpty() || (technicianID != null && !technicianID.trim().equals(technician))) {
+                  continue;
+               }
+               Integer lastRepair = this.lastRepairOfPlane.get(entry.getKey());
+               result.add(Arrays.asList(entry.getKey(), Integer.toString(entry.getValue().size()),
+                  LocalDate.ofEpochDay(entry.getValue().get(0).day).toString(),
+                  lastRepair == null ? null : LocalDate.ofEpochDay(lastRepair).toString(), technician));
+            }
+         } finally {
+            this.lock.readLock().unlock();
+         }
+         //most open requests first
+         Collections.sort(result, (a, b) -> Integer.parseInt(b.get(1)) - Integer.parseInt(a.get(1)));
+         return result;
+      }
+
+      //called with the write lock held
+      private void request(int requestID, String planeID, String repairCode, int day, String pilotID) {
+         Integer repaired = this.lastRepairOfCode.get(planeID + "\t" + repairCode);
+         if (repaired != null && repaired >= day) {
+            return;
+         }
+         List<OpenRequest> queue = this.openByPlane.get(planeID);
+         if (queue == null) {
+            queue = new ArrayList<OpenRequest>();
+            this.openByPlane.put(planeID, queue);
+         }
+         //requests mostly arrive in date order, so this is almost always an append
+         int at = queue.size();
+         while (at > 0 && queue.get(at - 1).day > day) {
+            at--;
+         }
+         queue.add(at, new OpenRequest(requestID, repairCode, day, pilotID));
+         this.openIDs.add(requestID);
+         countTechnician(this.technicianOfPlane.get(planeID), 1);
+      }
+
+      //called with the write lock held
+      private void repair(String planeID, String repairCode, int day, String technicianID) {
+         this.lastRepairOfCode.merge(planeID + "\t" + repairCode, day, Math::max);
+
+         List<OpenRequest> queue = this.openByPlane.get(planeID);
+         int open = queue == null ? 0 : queue.size();
+         String technician = this.technicianOfPlane.get(planeID);
+         Integer lastRepair = this.lastRepairOfPlane.get(planeID);
+
+         //the open requests move to the technician who did the plane's latest repair
+         if (lastRepair == null || day >= lastRepair) {
+            this.lastRepairOfPlane.put(planeID, day);
+            if (technicianID != null) {
+               countTechnician(technician, -open);
+               technician = technicianID.trim();
+               this.technicianOfPlane.put(planeID, technician);
+               countTechnician(technician, open);
+            }
+         }
+
+         for (int i = 0; queue != null && i < queue.size(); i++) {
+            OpenRequest request = queue.get(i);
+            if (request.repairCode.equals(repairCode) && request.day <= day) {
+               queue.remove(i--);
+               this.openIDs.remove(request.requestID);
+               countTechnician(technician, -1);
+            }
+         }
+      }
+
+      private static String code(String repairCode) {
+         return repairCode == null ? "" : repairCode.trim();
+      }
+
+      private void countTechnician(String technicianID, int delta) {
+         if (technicianID != null && delta != 0) {
+            this.openByTechnician.merge(technicianID, delta, Integer::sum);
+            this.openByTechnician.remove(technicianID, 0);
+         }
+      }
+   }
+
+   /**
+    * The seats of one flight instance, one bit per seat, set when the seat
+    * is taken.  Every row of seats gets its own byte of a long, so the seats
+    * of a group sitting together are always in the same long and are taken
+    * with a single compare and set.  Nothing is locked: a thread that loses
+    * a compare and set reads the long again and looks for other seats.
+    *
+    * The free counter is taken before any bits, so two bookings can never
+    * get more seats between them than the instance has left, and the map
+    * stays in step with SeatsSold.
+    */
+   static class SeatMap {
+
+      static final int SEATS_PER_ROW = 6;
+      private static final int ROW_BITS = 8;
+      private static final int ROWS_PER_WORD = 64 / ROW_BITS;
+      private static final long UNUSED_OF_ROW = 0xFFL & ~((1L << SEATS_PER_ROW) - 1);
+
+      private final int seatsTotal;
+      private final AtomicLongArray words;
+      private final AtomicInteger free;
+
+      /*
+       * taken are seat numbers that are booked, unassigned is how many more seats are sold without a seat number
+       * (booked before there were seat maps); those are marked taken starting from the back of the plane
+       **/
+      SeatMap(int seatsTotal, List<Integer> taken, int unassigned) {
+         this.seatsTotal = seatsTotal;
+         int rows = (seatsTotal + SEATS_PER_ROW - 1) / SEATS_PER_ROW;
+         long[] bits = new long[Math.max(1, (rows + ROWS_PER_WORD - 1) / ROWS_PER_WORD)];
+         //the spare bits of each row and the seats past the end of the plane are never free
+         for (int row = 0; row < bits.length * ROWS_PER_WORD; row++) {
+            bits[row / ROWS_PER_WORD] |= UNUSED_OF_ROW << ((row % ROWS_PER_WORD) * ROW_BITS);
+         }
+         for (int seat = seatsTotal + 1; seat <= bits.length * ROWS_PER_WORD * SEATS_PER_ROW; seat++) {
+            bits[word(seat)] |= bit(seat);
+         }
+         int freeSeats = seatsTotal;
+         for (int seat : taken) {
+            if (seat >= 1 && seat <= seatsTotal && (bits[word(seat)] & bit(seat)) == 0) {
+               bits[word(seat)] |= bit(seat);
+               freeSeats--;
+            }
+         }
+         for (int seat = seatsTotal; seat >= 1 && unassigned > 0; seat--) {
+            if ((bits[word(seat)] & bit(seat)) == 0) {
+               bits[word(seat)] |= bit(seat);
+               freeSeats--;
+               unassigned--;
+            }
+         }
+         this.words = new AtomicLongArray(bits);
+         this.free = new AtomicInteger(freeSeats);
+      }
+
+      int free() {
+         return this.free.get();
+      }
+
+      /**
+       * Takes count seats, next to each other in one row when such a gap
+       * exists, otherwise wherever they are free.
+       *
+       * @return the seat numbers, or null when there aren't enough seats left
+       */
+      int[] allocate(int count) {
+         if (count <= 0 || this.free.addAndGet(-count) < 0) {
+            this.free.addAndGet(count);
+            return null;
+         }
+         if (count <= SEATS_PER_ROW) {
+            int[] together = allocateTogether(count);
+            if (together != null) {
+               return together;
+            }
+         }
+         //the free counter already holds these seats for us, so each search below finds one
+         int[] seats = new int[count];
+         for (int i = 0; i < count; i++) {
+            seats[i] = allocateOne();
+         }
+         return seats;
+      }
+
+      /**
+       * Gives seats back, after a booking could not be written.
+       */
+      void release(int[] seats) {
+         for (int seat : seats) {
+            long mask = bit(seat);
+            this.words.getAndUpdate(word(seat), bits -> bits & ~mask);
+         }
+         this.free.addAndGet(seats.length);
+      }
+
+      /*
+       * First row with count free seats next to each other
+       **/
+      private int[] allocateTogether(int count) {
+         long run = (1L << count) - 1;
+         for (int w = 0; w < this.words.length(); w++) {
+            long bits = this.words.get(w);
+            int found = -1;
+            for (int shift = 0; shift < 64 && found < 0; shift += ROW_BITS) {
+               for (int column = 0; column + count <= SEATS_PER_ROW; column++) {
+                  if ((bits & (run << (shift + column))) == 0) {
+                     found = shift + column;
+                     break;
+                  }
+               }
+            }
+            if (found < 0) {
+               continue;
+            }
+            if (!this.words.compareAndSet(w, bits, bits | (run << found))) {
+               //someone else took seats in these rows, look at them again
+               w--;
+               continue;
+            }
+            int[] seats = new int[count];
+            for (int i = 0; i < count; i++) {
+               seats[i] = seat(w, found + i);
+            }
+            return seats;
+         }
+         return null;
+      }
+
+      private int allocateOne() {
+         while (true) {
+            for (int w = 0; w < this.words.length(); w++) {
+               long bits = this.words.get(w);
+               while (bits != -1L) {
+                  int b = Long.numberOfTrailingZeros(~bits);
+                  if (this.words.compareAndSet(w, bits, bits | (1L << b))) {
+                     return seat(w, b);
+                  }
+                  bits = this.words.get(w);
+               }
+            }
+         }
+      }
+
+      private static int word(int seat) {
+         return ((seat - 1) / SEATS_PER_ROW) / ROWS_PER_WORD;
+      }
+
+      private static long bit(int seat) {
+         int row = (seat - 1) / SEATS_PER_ROW;
+         return 1L << ((row % ROWS_PER_WORD) * ROW_BITS + (seat - 1) % SEATS_PER_ROW);
+      }
 
-               String query = String.format("SELECT * FROM Technician WHERE TechnicianID = '%s';", technicianID);
-               if (esql.executeQuery(query) > 0) {
-                  userID = technicianID; 
-                  break; 
+      private static int seat(int word, int b) {
+         int row = word * ROWS_PER_WORD + b / ROW_BITS;
+         return row * SEATS_PER_ROW + b % ROW_BITS + 1;
+      }
+
+      /**
+       * The seat as printed on a boarding pass, seat 1 is 1A and seat 7 is 2A.
+       */
+      static String label(int seat) {
+         return ((seat - 1) / SEATS_PER_ROW + 1) + "" + (char) ('A' + (seat - 1) % SEATS_PER_ROW);
+      }
+   }
+
+   /**
+    * The operations board of feature4 for today and tomorrow, built ahead of
+    * time and kept in memory.  A background thread keeps it current: every
+    * refresh interval it reads only the seat counts and on time flags of the
+    * two days' flight instances, and only rebuilds a day when one of its
+    * instances is new, or when the date rolls over.  Bookings made by this
+    * program are added to the seat counts right away.
+    */
+   static class OperationsBoard {
+
+      private static final long REFRESH_MILLIS = Long.getLong("airline.board.refresh", 30) * 1000;
+
+      static final String[] COLUMNS = {"flightnumber", "departurecity", "arrivalcity", "departuretime", "arrivaltime",
+                                       "plane", "numofstops", "ticketcost", "loadfactor", "status"};
+
+      private final AirlineManagement esql;
+      private final Connection connection;
+      private final Thread refresher;
+      private volatile boolean running = true;
+
+      // guarded by this
+      private LocalDate today;
+      // set by changed() to refresh before the interval is up, rebuilding when a flight, plane or schedule changed
+      private boolean wakeUp = false;
+      private boolean rebuildDays = false;
+      private final Map<LocalDate, List<BoardRow>> days = new HashMap<LocalDate, List<BoardRow>>();
+      private final Map<Integer, List<BoardRow>> rowsOfInstance = new HashMap<Integer, List<BoardRow>>();
+
+      // one line of the board, a flight instance with one of its scheduled times for the day
+      static class BoardRow {
+         final int flightInstanceID;
+         final List<String> fixed;
+         final String ticketCost;
+         final int seatsTotal;
+         int seatsSold;
+         String departedOnTime;
+         String arrivedOnTime;
+
+         BoardRow(List<String> row) {
+            this.flightInstanceID = Integer.parseInt(row.get(0).trim());
+            String plane = row.get(6) == null ? null : (row.get(6) + " " + (row.get(7) == null ? "" : row.get(7))).trim();
+            this.fixed = Arrays.asList(row.get(1), row.get(2), row.get(3), row.get(4), row.get(5), plane, row.get(12));
+            this.ticketCost = row.get(13);
+            this.seatsTotal = row.get(8) == null ? 0 : Integer.parseInt(row.get(8).trim());
+            this.seatsSold = row.get(9) == null ? 0 : Integer.parseInt(row.get(9).trim());
+            this.departedOnTime = row.get(10);
+            this.arrivedOnTime = row.get(11);
+         }
+
+         List<String> toRow() {
+            List<String> row = new ArrayList<String>(this.fixed);
+            row.add(this.ticketCost);
+            row.add(this.seatsTotal == 0 ? null :
+               BigDecimal.valueOf(1000L * this.seatsSold / this.seatsTotal, 1).toPlainString() + "%");
+            row.add(status(this.departedOnTime, this.arrivedOnTime));
+            return row;
+         }
+
+         //the on time flags are filled in as the flight happens, nothing yet means it hasn't left
+         private static String status(String departed, String arrived) {
+            if (departed == null) {
+               return "scheduled";
+            }
+            if (!FlightReplica.isTrue(departed)) {
+               return arrived == null ? "departed late" : "arrived late";
+            }
+            if (arrived == null) {
+               return "departed on time";
+            }
+            return FlightReplica.isTrue(arrived) ? "on time" : "arrived late";
+         }
+      }
+
+      OperationsBoard(AirlineManagement esql) throws SQLException {
+         this.esql = esql;
+         //the refresher has its own connection, a connection runs one statement at a time (shard queries take turns already)
+         this.connection = esql.isSharded() ? null : esql.openConnection();
+         rebuild(LocalDate.now());
+         this.refresher = new Thread(this::refreshLoop, "operations-board");
+         this.refresher.setDaemon(true);
+         this.refresher.start();
+      }
+
+      /**
+       * The board rows of a day, or null when the day is not on the board.
+       */
+      synchronized List<List<String>> rows(LocalDate day) {
+         List<BoardRow> board = this.days.get(day);
+         if (board == null) {
+            return null;
+         }
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (BoardRow row : board) {
+            result.add(row.toRow());
+         }
+         return result;
+      }
+
+      /**
+       * Applies a change to SeatsSold that this program made itself.
+       */
+      synchronized void addSeatsSold(int flightInstanceID, int delta) {
+         List<BoardRow> rows = this.rowsOfInstance.get(flightInstanceID);
+         for (BoardRow row : rows == null ? Collections.<BoardRow>emptyList() : rows) {
+            row.seatsSold += delta;
+         }
+      }
+
+      /**
+       * Asks for a refresh now because another program changed the rows behind the board.
+       */
+      synchronized void changed(boolean rebuild) {
+         this.rebuildDays |= rebuild;
+         this.wakeUp = true;
+         notifyAll();
+      }
+
+      /**
+       * Builds the board of any day with the same query, for the days that are not kept.
+       */
+      static List<List<String>> build(AirlineManagement esql, LocalDate day) throws SQLException {
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (List<String> row : esql.isSharded() ? esql.executeQueryOnAllShards(query(day)) : esql.executeQueryAndReturnResult(query(day))) {
+            result.add(new BoardRow(row).toRow());
+         }
+         return result;
+      }
+
+      void close() {
+         this.running = false;
+         this.refresher.interrupt();
+         try {
+            this.refresher.join();
+            if (this.connection != null) {
+               this.connection.close();
+            }
+         } catch (Exception e) {
+            System.err.println(e.getMessage());
+         }
+      }
+
+      private static String query(LocalDate day) {
+         //Schedule is matched on the weekday name, spelled like the data (Monday, Tuesday, ...)
+         String weekday = day.getDayOfWeek().getDisplayName(java.time.format.TextStyle.FULL, Locale.ENGLISH);
+         return String.format(
+            "SELECT FI.FlightInstanceID, FI.FlightNumber, F.DepartureCity, F.ArrivalCity, S.DepartureTime, S.ArrivalTime, " +
+            "P.Make, P.Model, FI.SeatsTotal, FI.SeatsSold, FI.DepartedOnTime, FI.ArrivedOnTime, FI.NumOfStops, FI.TicketCost " +
+            "FROM FlightInstance FI " +
+            "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
+            "LEFT JOIN Plane P ON F.PlaneID = P.PlaneID " +
+            "LEFT JOIN Schedule S ON S.FlightNumber = FI.FlightNumber AND S.DayOfWeek = '%s' " +
+            "WHERE FI.FlightDate = '%s' " +
+            "ORDER BY S.DepartureTime, FI.FlightNumber;",
+            weekday, day);
+      }
+
+      private List<List<String>> select(String query) throws SQLException {
+         return this.connection == null ? this.esql.executeQueryOnAllShards(query)
+                                        : this.esql.executeQueryAndReturnResult(this.connection, query);
+      }
+
+      /*
+       * Loads both days from scratch
+       **/
+      private void rebuild(LocalDate day) throws SQLException {
+         List<List<String>> first = select(query(day));
+         List<List<String>> second = select(query(day.plusDays(1)));
+         synchronized (this) {
+            this.today = day;
+            this.days.clear();
+            this.rowsOfInstance.clear();
+            put(day, first);
+            put(day.plusDays(1), second);
+         }
+      }
+
+      //called holding the lock
+      private void put(LocalDate day, List<List<String>> rows) {
+         for (BoardRow old : this.days.getOrDefault(day, Collections.<BoardRow>emptyList())) {
+            this.rowsOfInstance.remove(old.flightInstanceID);
+         }
+         List<BoardRow> board = new ArrayList<BoardRow>();
+         for (List<String> row : rows) {
+            BoardRow boardRow = new BoardRow(row);
+            board.add(boardRow);
+            this.rowsOfInstance.computeIfAbsent(boardRow.flightInstanceID, id -> new ArrayList<BoardRow>()).add(boardRow);
+         }
+         this.days.put(day, board);
+      }
+
+      /*
+       * Pulls in the seat counts and on time flags, rebuilding a day only when it has a flight instance the board hasn't seen
+       **/
+      private void refresh() throws SQLException {
+         LocalDate day = LocalDate.now();
+         if (!day.equals(this.today)) {
+            rebuild(day);
+            return;
+         }
+         List<List<String>> changes = select(String.format(
+            "SELECT FlightInstanceID, FlightDate, SeatsSold, DepartedOnTime, ArrivedOnTime FROM FlightInstance " +
+            "WHERE FlightDate BETWEEN '%s' AND '%s';", day, day.plusDays(1)));
+         Set<LocalDate> stale = new HashSet<LocalDate>();
+         synchronized (this) {
+            for (List<String> change : changes) {
+               List<BoardRow> rows = this.rowsOfInstance.get(Integer.parseInt(change.get(0).trim()));
+               if (rows == null) {
+                  stale.add(LocalDate.parse(change.get(1)));
+                  continue;
+               }
+               for (BoardRow row : rows) {
+                  row.seatsSold = change.get(2) == null ? 0 : Integer.parseInt(change.get(2).trim());
+                  row.departedOnTime = change.get(3);
+                  row.arrivedOnTime = change.get(4);
+               }
+            }
+         }
+         for (LocalDate staleDay : stale) {
+            List<List<String>> rows = select(query(staleDay));
+            synchronized (this) {
+               put(staleDay, rows);
+            }
+         }
+      }
+
+      private void refreshLoop() {
+         while (this.running) {
+            try {
+               boolean rebuild;
+               synchronized (this) {
+                  if (!this.wakeUp) {
+                     wait(REFRESH_MILLIS);
+                  }
+                  rebuild = this.rebuildDays;
+                  this.wakeUp = false;
+                  this.rebuildDays = false;
+               }
+               if (rebuild) {
+                  rebuild(LocalDate.now());
                } else {
-                  System.out.println("This is an invalid technician ID.");
+                  refresh();
                }
-            } while (true);
+            } catch (InterruptedException e) {
+               return;
+            } catch (Exception e) {
+               //the board keeps its last numbers until the next refresh works
+               System.err.println("Operations board: " + e.getMessage());
+            }
+         }
+      }
+   }
+
+   /**
+    * One section of the fleet dashboard (feature29): its query, and once it
+    * has run, its rows or error and how long it took.
+    */
+   static class DashboardSection {
+
+      final String title;
+      final int shard;
+      final String query;
+      String[] columns = new String[0];
+      List<List<String>> rows = Collections.emptyList();
+      String error = null;
+      long millis = 0;
+
+      DashboardSection(String title, int shard, String query) {
+         this.title = title;
+         this.shard = shard;
+         this.query = query;
+      }
+   }
+
+   /**
+    * The sessions of the logged in users.  Logging in issues an opaque
+    * token that is kept here with the user's ID and role, so each later
+    * request is authorised by looking up its token instead of checking the
+    * password against the Login table again.  A session ends when it is
+    * revoked (log out, or every session of a user at once), or when it has
+    * not been used for the time to live.  The sessions are kept in the
+    * order they were last used, so the ones that have expired are always at
+    * the head and are dropped from there; at most maxSessions are kept, the
+    * least recently used are dropped to make room for new ones.
+    */
+   static class SessionStore {
+
+      /**
+       * The user behind a token.
+       */
+      static class Session {
+
+         final String token;
+         final String userID;
+         final String role;
+         volatile long expiresAt;
+
+         Session(String token, String userID, String role, long expiresAt) {
+            this.token = token;
+            this.userID = userID;
+            this.role = role;
+            this.expiresAt = expiresAt;
+         }
+      }
+
+      private static final int TOKEN_BYTES = 24;
+
+      // guarded by this, in access order: the head is the session used longest ago, the first to expire or be dropped
+      private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<String, Session>(16, 0.75f, true);
+      private final SecureRandom random = new SecureRandom();
+      private final int maxSessions;
+      private final long ttlMillis;
+
+      public SessionStore(int maxSessions, long ttlMillis) {
+         if (maxSessions < 1) {
+            throw new IllegalArgumentException("The session store must hold at least one session");
+         }
+         this.maxSessions = maxSessions;
+         this.ttlMillis = ttlMillis;
+      }
+
+      //starts a session for the user and returns its token
+      public String issue(String userID, String role) {
+         byte[] bytes = new byte[TOKEN_BYTES];
+         this.random.nextBytes(bytes);
+         String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+         long now = System.currentTimeMillis();
+         synchronized (this) {
+            this.sessions.put(token, new Session(token, userID, role, now + this.ttlMillis));
+            trim(now);
+         }
+         return token;
+      }
+
+      //returns the session of the token and keeps it alive, or null if it was revoked or has expired
+      public Session lookup(String token) {
+         if (token == null) {
+            return null;
+         }
+         long now = System.currentTimeMillis();
+         synchronized (this) {
+            //the expired sessions go first, then the get moves the session to the tail
+            trim(now);
+            Session session = this.sessions.get(token);
+            if (session == null) {
+               return null;
+            }
+            session.expiresAt = now + this.ttlMillis;
+            return session;
+         }
+      }
+
+      //returns true if the token has a live session with the role
+      public boolean authorise(String token, String role) {
+         Session session = lookup(token);
+         return session != null && session.role.equals(role);
+      }
+
+      //ends the session of the token, returns false if there was none
+      public synchronized boolean revoke(String token) {
+         return token != null && this.sessions.remove(token) != null;
+      }
+
+      //ends every session of the user (after a password or role change) and returns how many there were
+      public synchronized int revokeUser(String userID) {
+         int revoked = 0;
+         for (Iterator<Session> sessions = this.sessions.values().iterator(); sessions.hasNext(); ) {
+            if (sessions.next().userID.equals(userID)) {
+               sessions.remove();
+               revoked++;
+            }
+         }
+         return revoked;
+      }
+
+      public synchronized int size() {
+         return this.sessions.size();
+      }
+
+      /*
+       * Drops the sessions at the head that have expired (every session has
+       * the same time to live, so they are all in front of the live ones),
+       * then the least recently used live ones while there are too many
+       **/
+      private void trim(long now) {
+         Iterator<Session> sessions = this.sessions.values().iterator();
+         while (sessions.hasNext()) {
+            Session session = sessions.next();
+            if (session.expiresAt > now && this.sessions.size() <= this.maxSessions) {
+               break;
+            }
+            sessions.remove();
+         }
+      }
+   }
+
+   /**
+    * Keeps this program's caches in step with the writes of other programs
+    * (other AirlineManagement processes, psql, load_data.sql).  The triggers
+    * of sql/src/create_change_triggers.sql log each changed row to
+    * AirlineChange and NOTIFY airline_changes.  This thread LISTENs on the
+    * main database and on each shard, reads the new AirlineChange rows when
+    * it is notified, and hands them to applyChange.  Rows written by this
+    * program's own connections are skipped, it updated its caches when it
+    * wrote them.
+    *
+    * The driver only picks up notifications while it runs a statement, so
+    * the connections are polled with an empty query.  A ChangeID is taken
+    * when the row is written but becomes visible when its transaction
+    * commits, so the IDs skipped over are read again for a while in case
+    * they were still being written.
+    */
+   static class ChangeListener {
+
+      private static final long POLL_MILLIS = Long.getLong("airline.listen.poll", 500);
+      // how long a skipped ChangeID is looked for, and how long the AirlineChange rows are kept
+      private static final long GAP_MILLIS = 60 * 1000;
+      private static final long KEEP_MILLIS = 60 * 60 * 1000;
+      private static final int MAX_GAPS = 1000;
+
+      private final AirlineManagement esql;
+      private final List<String> urls;
+      private final Connection[] connections;
+      private final long[] lastChangeIDs;
+      // per database, the skipped ChangeIDs and when they were skipped
+      private final List<TreeMap<Long, Long>> gaps = new ArrayList<TreeMap<Long, Long>>();
+      private final Thread listener;
+      private volatile boolean running = true;
+
+      ChangeListener(AirlineManagement esql, List<String> urls) throws SQLException {
+         this.esql = esql;
+         this.urls = urls;
+         this.connections = new Connection[urls.size()];
+         this.lastChangeIDs = new long[urls.size()];
+         for (int i = 0; i < urls.size(); i++) {
+            this.connections[i] = listen(urls.get(i));
+            //the caches are loaded after this, so the changes before it don't matter
+            List<List<String>> last = esql.executeQueryAndReturnResult(this.connections[i],
+               "SELECT COALESCE(MAX(ChangeID), 0) FROM AirlineChange;");
+            this.lastChangeIDs[i] = Long.parseLong(last.get(0).get(0).trim());
+            this.gaps.add(new TreeMap<Long, Long>());
+         }
+         this.listener = new Thread(this::listenLoop, "change-listener");
+         this.listener.setDaemon(true);
+         this.listener.start();
+      }
+
+      void close() {
+         this.running = false;
+         this.listener.interrupt();
+         try {
+            this.listener.join();
+         } catch (InterruptedException e) {
+            //closing anyway
+         }
+         for (int i = 0; i < this.connections.length; i++) {
+            disconnect(i);
+         }
+      }
+
+      /*
+       * Opens an untraced connection (the polls are not part of any menu action) and listens on it
+       **/
+      private Connection listen(String url) throws SQLException {
+         Connection conn = DriverManager.getConnection(url, this.esql._user, this.esql._passwd);
+         Statement stmt = conn.createStatement();
+         try {
+            stmt.executeUpdate("LISTEN airline_changes;");
+         } finally {
+            stmt.close();
+         }
+         return conn;
+      }
+
+      private void disconnect(int i) {
+         try {
+            if (this.connections[i] != null) {
+               this.connections[i].close();
+            }
+         } catch (SQLException e) {
+            // ignored.
+         }
+         this.connections[i] = null;
+      }
+
+      private void listenLoop() {
+         long prunedAt = System.currentTimeMillis();
+         while (this.running) {
+            try {
+               Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+               return;
+            }
+            boolean prune = System.currentTimeMillis() - prunedAt > GAP_MILLIS;
+            for (int i = 0; i < this.connections.length; i++) {
+               try {
+                  poll(i, prune);
+               } catch (Exception e) {
+                  //reconnect on the next poll, the changes in between are read then
+                  System.err.println("Change listener: " + e.getMessage());
+                  disconnect(i);
+               }
+            }
+            if (prune) {
+               prunedAt = System.currentTimeMillis();
+            }
+         }
+      }
+
+      private void poll(int i, boolean prune) throws SQLException {
+         if (this.connections[i] == null) {
+            this.connections[i] = listen(this.urls.get(i));
+            read(i);
+            return;
+         }
+         Statement stmt = this.connections[i].createStatement();
+         try {
+            stmt.executeQuery("SELECT 1;").close();
+            if (prune) {
+               stmt.executeUpdate(String.format(
+                  "DELETE FROM AirlineChange WHERE ChangedAt < now() - interval '%d seconds';", KEEP_MILLIS / 1000));
+            }
+         } finally {
+            stmt.close();
+         }
+         if (notified(this.connections[i]) || (prune && !this.gaps.get(i).isEmpty())) {
+            read(i);
+         }
+      }
+
+      /*
+       * Takes the notifications the driver has received, called by reflection since the driver is not on the compile classpath
+       **/
+      private static boolean notified(Connection conn) throws SQLException {
+         try {
+            Object notifications = conn.getClass().getMethod("getNotifications").invoke(conn);
+            return notifications != null && java.lang.reflect.Array.getLength(notifications) > 0;
+         } catch (ReflectiveOperationException e) {
+            throw new SQLException("The driver does not support LISTEN: " + e.getMessage());
+         }
+      }
+
+      /*
+       * Reads the changes after the last one read, and the skipped ones that have turned up since
+       **/
+      private void read(int i) throws SQLException {
+         TreeMap<Long, Long> skipped = this.gaps.get(i);
+         long now = System.currentTimeMillis();
+         skipped.values().removeIf(at -> now - at > GAP_MILLIS);
+         StringBuilder query = new StringBuilder(
+            "SELECT ChangeID, TableName, KeyValue, Op, Origin FROM AirlineChange WHERE ChangeID > " + this.lastChangeIDs[i]);
+         if (!skipped.isEmpty()) {
+            query.append(" OR ChangeID IN (");
+            String separator = "";
+            for (Long changeID : skipped.keySet()) {
+               query.append(separator).append(changeID);
+               separator = ", ";
+            }
+            query.append(")");
+         }
+         query.append(" ORDER BY ChangeID;");
+
+         for (List<String> row : this.esql.executeQueryAndReturnResult(this.connections[i], query.toString())) {
+            long changeID = Long.parseLong(row.get(0).trim());
+            if (changeID > this.lastChangeIDs[i]) {
+               for (long gap = Math.max(this.lastChangeIDs[i] + 1, changeID - MAX_GAPS); gap < changeID; gap++) {
+                  skipped.put(gap, now);
+               }
+               this.lastChangeIDs[i] = changeID;
+            } else {
+               skipped.remove(changeID);
+            }
+            if (!INSTANCE_NAME.equals(row.get(4))) {
+               this.esql.applyChange(row.get(1), row.get(2), row.get(3).charAt(0));
+            }
+         }
+         while (skipped.size() > MAX_GAPS) {
+            skipped.pollFirstEntry();
+         }
+      }
+   }
+
+   /**
+    * What the menu features read and write, so they can run on the database
+    * (JdbcStore, the default) or on the CSV files of data/ held in memory
+    * (MemoryStore, -Dairline.store=memory).  Dates are passed on as the
+    * user typed them.  Rows come back as strings in the same columns as the
+    * queries the features used to run.
+    */
+   interface AirlineStore {
+
+      // users: CreateUser and LogIn
+
+      //the userID and role of a login, or null when the user name and password don't match
+      List<String> login(String userName, String password) throws SQLException;
+
+      boolean userNameTaken(String userName) throws SQLException;
+
+      boolean pilotExists(String pilotID) throws SQLException;
+
+      boolean technicianExists(String technicianID) throws SQLException;
+
+      int nextCustomerID() throws SQLException;
+
+      //managers get negative userIDs, counting down
+      String nextManagerID() throws SQLException;
+
+      //adds the login, and the customer (FirstName, LastName, Gender, DOB, Address, Phone, Zip) when there is one
+      void createUser(String userID, String userName, String password, String role, List<String> customer) throws SQLException;
+
+      // flights: features 1, 2, 3, 7, 10, 11, 12, 13, 21
+
+      //DayOfWeek, DepartureTime, ArrivalTime from Monday to Sunday
+      List<List<String>> schedule(String flightNumber) throws SQLException;
+
+      //SeatsAvailable, SeatsSold
+      List<List<String>> seats(String flightNumber, String flightDate) throws SQLException;
+
+      //DepartedOnTime, ArrivedOnTime
+      List<List<String>> status(String flightNumber, String flightDate) throws SQLException;
+
+      //Make, Model, Age, LastRepairDate
+      List<List<String>> plane(String planeID) throws SQLException;
+
+      //DepartedOnTimeCount, ArrivedOnTimeCount, TotalSeatsSold, TotalSeatsUnsold
+      List<List<String>> flightStatistics(String flightNumber, String startDate, String endDate) throws SQLException;
+
+      //DepartureTime, ArrivalTime, NumOfStops, OnTimePercentage
+      List<List<String>> searchFlights(String departureCity, String arrivalCity, String flightDate) throws SQLException;
+
+      //the distinct TicketCost values
+      List<List<String>> ticketCosts(String flightNumber) throws SQLException;
+
+      //Make, Model
+      List<List<String>> planeType(String flightNumber) throws SQLException;
+
+      //FlightNumber, NumReservations, most reservations first
+      List<List<String>> popularFlights(int limit) throws SQLException;
+
+      // reservations: features 5, 6, 19
+
+      //FirstName, LastName, Gender, DOB, Address, Phone, Zip
+      List<List<String>> travelers(String reservationID) throws SQLException;
+
+      //ReservationID, FlightNumber, FlightDate, DepartureCity, ArrivalCity, Status, oldest first
+      List<List<String>> customerReservations(String customerID) throws SQLException;
+
+      // repairs: features 8, 9, 15, 16, 17, 22
+
+      //PlaneID, RepairCode, RepairDate, oldest first
+      List<List<String>> technicianRepairs(String technicianID) throws SQLException;
+
+      //RepairDate, RepairCode, oldest first
+      List<List<String>> planeRepairs(String planeID, String startDate, String endDate) throws SQLException;
+
+      //PlaneID, RepairCode, RequestDate, and open or repaired, oldest first
+      List<List<String>> pilotRequests(String pilotID) throws SQLException;
+
+      //TechnicianID, RepairCount, most repairs first
+      List<List<String>> technicianRanking() throws SQLException;
+
+      // bookings and repairs: features 14, 18
+
+      boolean customerExists(String customerID) throws SQLException;
+
+      boolean planeExists(String planeID) throws SQLException;
+
+      //books partySize seats on a flight instance, or puts them all on its waitlist when it is full;
+      //ReservationID, Status, SeatNumber (null when waitlisted) of each reservation, none when there is no such instance
+      List<List<String>> book(String customerID, String flightInstanceID, int partySize) throws SQLException, IOException;
+
+      //adds a repair and moves the plane's LastRepairDate up to it, the new RepairID
+      int addRepair(String planeID, String repairCode, String repairDate, String technicianID) throws SQLException;
+
+      // boards and calendars: features 4, 26, 27
+
+      //the rows of OperationsBoard.COLUMNS for the flights of a day, by departure time
+      List<List<String>> board(LocalDate day) throws SQLException;
+
+      //the cheapest instance with seats left of each day: FlightDate, FlightNumber, TicketCost, SeatsLeft, NumOfStops
+      List<List<String>> fareCalendar(String departureCity, String arrivalCity, LocalDate firstDay, LocalDate lastDay) throws SQLException;
+
+      //the open maintenance requests, kept up to date with the repairs added through the store
+      MaintenanceBacklog backlog() throws SQLException;
+   }
+
+   /**
+    * The features' data on the database, with the read replicas, shards and
+    * in memory copies the program is run with.
+    */
+   static class JdbcStore implements AirlineStore {
+
+      private final AirlineManagement esql;
+
+      JdbcStore(AirlineManagement esql) {
+         this.esql = esql;
+      }
+
+      public List<String> login(String userName, String password) throws SQLException {
+         List<List<String>> rows = this.esql.executeQueryAndReturnResult(String.format(
+            "SELECT userID, role FROM Login WHERE userName = '%s' AND password = '%s';",
+            userName, password));
+         return rows.isEmpty() ? null : rows.get(0);
+      }
+
+      //only ask the database when the filter says the key might be there
+      public boolean userNameTaken(String userName) throws SQLException {
+         return this.esql.mightExist("Login", userName)
+            && this.esql.executeQuery(String.format("SELECT userName FROM Login WHERE userName = '%s';", userName)) > 0;
+      }
+
+      public boolean pilotExists(String pilotID) throws SQLException {
+         return this.esql.mightExist("Pilot", pilotID)
+            && this.esql.executeQuery(String.format("SELECT * FROM Pilot WHERE PilotID = '%s';", pilotID)) > 0;
+      }
+
+      public boolean technicianExists(String technicianID) throws SQLException {
+         return this.esql.mightExist("Technician", technicianID)
+            && this.esql.executeQuery(String.format("SELECT * FROM Technician WHERE TechnicianID = '%s';", technicianID)) > 0;
+      }
+
+      public int nextCustomerID() throws SQLException {
+         List<List<String>> rows = this.esql.executeQueryAndReturnResult("SELECT MAX(CustomerID) FROM Customer;");
+         if (!rows.isEmpty() && rows.get(0).get(0) != null) {
+            return Integer.parseInt(rows.get(0).get(0)) + 1;
+         }
+         return 1;
+      }
+
+      public String nextManagerID() throws SQLException {
+         List<List<String>> rows = this.esql.executeQueryAndReturnResult(
+            "SELECT MIN(CAST(userID AS INT)) FROM Login WHERE userID ~ '^[-]?[0-9]+$';");
+         if (!rows.isEmpty() && rows.get(0).get(0) != null) {
+            int minID = Integer.parseInt(rows.get(0).get(0));
+            if (minID < 0) {
+               return Integer.toString(minID - 1);
+            }
+         }
+         return "-1";
+      }
+
+      //the customer row and the login row are written together, so there is never a customer without a login
+      public void createUser(String userID, String userName, String password, String role, List<String> customer) throws SQLException {
+         UnitOfWork work = this.esql.beginWork();
+         if (customer != null) {
+            work.add(String.format(
+               "INSERT INTO Customer (CustomerID, FirstName, LastName, Gender, DOB, Address, Phone, Zip) " +
+               "VALUES (%s, '%s', '%s', '%s', '%s', '%s', '%s', '%s');",
+               userID, customer.get(0), customer.get(1), customer.get(2), customer.get(3),
+               customer.get(4), customer.get(5), customer.get(6)));
+         }
+         work.add(String.format(
+            "INSERT INTO Login (userID, username, password, role) " +
+            "VALUES ('%s', '%s', '%s', '%s');",
+            userID, userName, password, role));
+         work.commit();
+         if (customer != null) {
+            this.esql.addKey("Customer", userID);
+         }
+         this.esql.addKey("Login", userName);
+      }
+
+      // ordering results from Monday to Sunday with a CASE statement to assign numerical order to the days
+      public List<List<String>> schedule(String flightNumber) throws SQLException {
+         return report(String.format(
+            "SELECT DayOfWeek, DepartureTime, ArrivalTime " +
+            "FROM Schedule " +
+            "WHERE FlightNumber = '%s' " +
+            "ORDER BY CASE " +
+            "WHEN DayOfWeek = 'Monday' THEN 1 " +
+            "WHEN DayOfWeek = 'Tuesday' THEN 2 " +
+            "WHEN DayOfWeek = 'Wednesday' THEN 3 " +
+            "WHEN DayOfWeek = 'Thursday' THEN 4 " +
+            "WHEN DayOfWeek = 'Friday' THEN 5 " +
+            "WHEN DayOfWeek = 'Saturday' THEN 6 " +
+            "WHEN DayOfWeek = 'Sunday' THEN 7 " +
+            "END;", flightNumber));
+      }
+
+      public List<List<String>> seats(String flightNumber, String flightDate) throws SQLException {
+         FlightReplica replica = this.esql.getReplica();
+         LocalDate date = parseDate(flightDate);
+         if (replica != null && date != null) {
+            return replica.seats(flightNumber, date);
+         }
+         return flightQuery(flightNumber, String.format(
+            "SELECT SeatsTotal - SeatsSold AS SeatsAvailable, SeatsSold " +
+            "FROM FlightInstance " +
+            "WHERE FlightNumber = '%s' AND FlightDate = '%s';",
+            flightNumber, flightDate));
+      }
+
+      public List<List<String>> status(String flightNumber, String flightDate) throws SQLException {
+         return flightQuery(flightNumber, String.format(
+            "SELECT DepartedOnTime, ArrivedOnTime " +
+            "FROM FlightInstance " +
+            "WHERE FlightNumber = '%s' AND FlightDate = '%s';",
+            flightNumber, flightDate));
+      }
+
+      public List<List<String>> plane(String planeID) throws SQLException {
+         return report(String.format(
+            "SELECT Make, Model, (EXTRACT(YEAR FROM CURRENT_DATE) - Year) AS Age, LastRepairDate " +
+            "FROM Plane " +
+            "WHERE PlaneID = '%s';",
+            planeID));
+      }
+
+      public List<List<String>> flightStatistics(String flightNumber, String startDate, String endDate) throws SQLException {
+         return flightQuery(flightNumber, String.format(
+            "SELECT " +
+            "COUNT(CASE WHEN DepartedOnTime = TRUE THEN 1 END) AS DepartedOnTimeCount, " +
+            "COUNT(CASE WHEN ArrivedOnTime = TRUE THEN 1 END) AS ArrivedOnTimeCount, " +
+            "SUM(SeatsSold) AS TotalSeatsSold, " +
+            "SUM(SeatsTotal - SeatsSold) AS TotalSeatsUnsold " +
+            "FROM FlightInstance " +
+            "WHERE FlightNumber = '%s' " +
+            "AND FlightDate BETWEEN '%s' AND '%s';",
+            flightNumber, startDate, endDate));
+      }
 
-         } else if (role.equals("Manager")) {
-            //manager has just a pretend id 
-            String managerQuery = "SELECT MIN(CAST(userID AS INT)) FROM Login WHERE userID ~ '^[-]?[0-9]+$';";
-            List<List<String>> resultList = esql.executeQueryAndReturnResult(managerQuery);
-
-            int minID = -1;
-            if (!resultList.isEmpty() && resultList.get(0).get(0) != null) {
-               minID = Integer.parseInt(resultList.get(0).get(0));
-               if (minID < 0) {
-                  userID = Integer.toString(minID - 1);
-               } else {
-                  userID = "-1";
-               }
-            } else {
-               userID = "-1";
-            }
+      // on-time percentage: using past FlightInstance data by dividing the number of on-time flights by the total number of flights for that flight number
+      // joins Flight, FlightInstance, and Schedule tables, and filters by departure city, arrival city, and date
+      public List<List<String>> searchFlights(String departureCity, String arrivalCity, String flightDate) throws SQLException {
+         FlightReplica replica = this.esql.getReplica();
+         LocalDate date = parseDate(flightDate);
+         if (replica != null && date != null) {
+            return replica.searchFlights(departureCity, arrivalCity, date);
          }
-      
-      //putting information into LOGIN table 
-      String insertLoginQuery = String.format( 
-         "INSERT INTO Login (userID, username, password, role) " +
-         "VALUES ('%s', '%s', '%s', '%s');",
-         userID, userName, password, role); 
-      
-      esql.executeUpdate(insertLoginQuery);
-
+         String query = String.format(
+            "SELECT S.DepartureTime, S.ArrivalTime, FI.NumOfStops, " +
+            "ROUND(100.0 * " +
+            "(SELECT COUNT(*) FROM FlightInstance FI2 " +
+            " WHERE FI2.FlightNumber = F.FlightNumber " +
+            " AND FI2.DepartedOnTime = TRUE AND FI2.ArrivedOnTime = TRUE) / " +
+            "(SELECT COUNT(*) FROM FlightInstance FI3 " +
+            " WHERE FI3.FlightNumber = F.FlightNumber), 2) AS OnTimePercentage " +
+            "FROM Flight F " +
+            "JOIN FlightInstance FI ON F.FlightNumber = FI.FlightNumber " +
+            "JOIN Schedule S ON F.FlightNumber = S.FlightNumber " +
+            "WHERE F.DepartureCity = '%s' AND F.ArrivalCity = '%s' " +
+            "AND FI.FlightDate = '%s';",
+            departureCity, arrivalCity, flightDate);
+         //the flights between two cities can be on any shard, each shard has its own copy of Flight and Schedule
+         return this.esql.isSharded() ? this.esql.executeQueryOnAllShards(query) : report(query);
+      }
 
-      //inserting this customer 
-      System.out.println("User was successfully created with role: " + role);
-      
-      } catch (Exception e) {
-         System.err.println("There Was An Error in CreateUser: " + e.getMessage());
+      public List<List<String>> ticketCosts(String flightNumber) throws SQLException {
+         FlightReplica replica = this.esql.getReplica();
+         if (replica != null) {
+            return replica.ticketCosts(flightNumber);
+         }
+         return flightQuery(flightNumber, String.format(
+            "SELECT DISTINCT TicketCost " +
+            "FROM FlightInstance " +
+            "WHERE FlightNumber = '%s';",
+            flightNumber));
       }
-   }
-   
-   /*
-    * Check log in credentials for an existing user
-    * @return User login or null is the user does not exist
-    **/
-   public static String LogIn(AirlineManagement esql){
-      try {
-         System.out.print("Please Enter Your Username: ");
-         String userName = in.readLine();
 
-         System.out.print("Please Enter Your Password: ");
-         String password = in.readLine();
+      public List<List<String>> planeType(String flightNumber) throws SQLException {
+         FlightReplica replica = this.esql.getReplica();
+         if (replica != null) {
+            return replica.planeType(flightNumber);
+         }
+         return report(String.format(
+            "SELECT P.Make, P.Model " +
+            "FROM Flight F " +
+            "JOIN Plane P ON F.PlaneID = P.PlaneID " +
+            "WHERE F.FlightNumber = '%s';",
+            flightNumber));
+      }
 
+      public List<List<String>> popularFlights(int limit) throws SQLException {
          String query = String.format(
-            "SELECT role FROM Login WHERE userName = '%s' AND password = '%s';", 
-            userName, password);
+            "SELECT F.FlightNumber, COUNT(*) AS NumReservations " +
+            "FROM Reservation R " +
+            "JOIN FlightInstance FI ON R.FlightInstanceID = FI.FlightInstanceID AND R.FlightDate = FI.FlightDate " +
+            "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
+            "GROUP BY F.FlightNumber " +
+            "ORDER BY NumReservations DESC " +
+            "LIMIT %d;", limit);
+         if (!this.esql.isSharded()) {
+            return report(query);
+         }
+         //all of a flight's reservations are on one shard, so the top flights overall are in the shards' top flights
+         List<List<String>> rows = this.esql.executeQueryOnAllShards(query);
+         Collections.sort(rows, (a, b) -> Long.compare(Long.parseLong(b.get(1)), Long.parseLong(a.get(1))));
+         return rows.subList(0, Math.min(limit, rows.size()));
+      }
 
-         List<List<String>> resultList = esql.executeQueryAndReturnResult(query);
+      public List<List<String>> travelers(String reservationID) throws SQLException {
+         if (!this.esql.isSharded()) {
+            return report(String.format(
+               "SELECT C.FirstName, C.LastName, C.Gender, C.DOB, C.Address, C.Phone, C.Zip " +
+               "FROM Reservation R, Customer C " +
+               "WHERE R.ReservationID = '%s' AND R.CustomerID = C.CustomerID;",
+               reservationID));
+         }
+         //the reservation is on the shard of its flight, which isn't known from the ID, and the customer is in the
+         //main database (a shard's copy of Customer misses the customers added after it was made)
+         List<List<String>> booked = this.esql.executeQueryOnAllShards(String.format(
+            "SELECT CustomerID FROM Reservation WHERE ReservationID = '%s';", reservationID));
+         if (booked.isEmpty()) {
+            return booked;
+         }
+         return report(String.format(
+            "SELECT FirstName, LastName, Gender, DOB, Address, Phone, Zip " +
+            "FROM Customer " +
+            "WHERE CustomerID = %s;",
+            booked.get(0).get(0).trim()));
+      }
 
-         if (resultList.size() > 0) {
-            String role = resultList.get(0).get(0);
-            System.out.println("The Login Was Successful! Successfully logged in as: " + role);
-            return role;
+      public List<List<String>> customerReservations(String customerID) throws SQLException {
+         String query = String.format(
+            "SELECT R.ReservationID, FI.FlightNumber, FI.FlightDate, F.DepartureCity, F.ArrivalCity, R.Status " +
+            "FROM Reservation R " +
+            "JOIN FlightInstance FI ON R.FlightInstanceID = FI.FlightInstanceID AND R.FlightDate = FI.FlightDate " +
+            "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
+            "WHERE R.CustomerID = '%s' " +
+            "ORDER BY FI.FlightDate ASC;",
+            customerID);
+         //the journal is read first: a booking written to the database in between is then found twice (and kept once), not missed
+         List<String[]> journaled = this.esql._journal != null
+            ? this.esql._journal.pendingOfCustomer(customerID.trim()) : Collections.<String[]>emptyList();
+         List<List<String>> rows;
+         if (!this.esql.isSharded()) {
+            if (journaled.isEmpty()) {
+               return report(query);
+            }
+            rows = this.esql.executeQueryAndReturnResult(query);
          } else {
-            System.out.println("The Login Was Not Successful. Wrong username or password");
-            return null;
+            //a customer's reservations are spread over the shards of the flights they booked
+            rows = this.esql.executeQueryOnAllShards(query);
          }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
-         return null;
+         addJournaled(rows, journaled);
+         //each part is already sorted so the rows only need to be put back in date order
+         Collections.sort(rows, (a, b) -> a.get(2).compareTo(b.get(2)));
+         return rows;
       }
-   }//end
 
-   // Rest of the functions definition go in here
+      /*
+       * Adds the rows of the journaled bookings that the query did not find,
+       * with the flight of each instance looked up on its shard
+       **/
+      private void addJournaled(List<List<String>> rows, List<String[]> journaled) throws SQLException {
+         Set<String> found = new HashSet<String>();
+         for (List<String> row : rows) {
+            found.add(row.get(0).trim());
+         }
+         Map<Integer, Set<String>> instancesOfShard = new HashMap<Integer, Set<String>>();
+         for (String[] record : journaled) {
+            if (!found.contains(record[0])) {
+               instancesOfShard.computeIfAbsent(Integer.parseInt(record[5]), s -> new TreeSet<String>()).add(record[2]);
+            }
+         }
+         Map<String, List<String>> flightOfInstance = new HashMap<String, List<String>>();
+         for (Map.Entry<Integer, Set<String>> entry : instancesOfShard.entrySet()) {
+            String query = String.format(
+               "SELECT FI.FlightInstanceID, FI.FlightNumber, F.DepartureCity, F.ArrivalCity " +
+               "FROM FlightInstance FI " +
+               "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
+               "WHERE FI.FlightInstanceID IN (%s);",
+               String.join(", ", entry.getValue()));
+            List<List<String>> flights = entry.getKey() < 0
+               ? this.esql.executeQueryAndReturnResult(query) : this.esql.executeShardQuery(entry.getKey(), query);
+            for (List<String> flight : flights) {
+               flightOfInstance.put(flight.get(0).trim(), flight);
+            }
+         }
+         for (String[] record : journaled) {
+            List<String> flight = flightOfInstance.get(record[2]);
+            if (!found.contains(record[0]) && flight != null) {
+               rows.add(Arrays.asList(record[0], flight.get(1), record[4], flight.get(2), flight.get(3), record[3]));
+            }
+         }
+      }
 
-   //given the flight number, get the flight's schedule for for the week
-   //using Schedule Table
-   public static void feature1(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Your Flight Number: ");
-         String flightNum = in.readLine();
+      public List<List<String>> technicianRepairs(String technicianID) throws SQLException {
+         return report(String.format(
+            "SELECT PlaneID, RepairCode, RepairDate " +
+            "FROM Repair " +
+            "WHERE TechnicianID = '%s' " +
+            "ORDER BY RepairDate ASC;",
+            technicianID));
+      }
 
-         // builds a query to get the weekly schedule for a given flight number
-         // retrieves the day of the week, departure time, and arrival time from the Schedule table
-         // filters by the flight number entered by the user and then is ordering results from Monday to Sunday with
-         // CASE statement to assign numerical order to the days (so that there is logic in the ordering)
-         String query = String.format("SELECT DayOfWeek, DepartureTime, ArrivalTime " + 
-         "FROM Schedule " + 
-         "WHERE FlightNumber = '%s' " +
-         "ORDER BY CASE " + 
-         "WHEN DayOfWeek = 'Monday' THEN 1 " + 
-         "WHEN DayOfWeek = 'Tuesday' THEN 2 " + 
-         "WHEN DayOfWeek = 'Wednesday' THEN 3 " +
-         "WHEN DayOfWeek = 'Thursday' THEN 4 " +
-         "WHEN DayOfWeek = 'Friday' THEN 5 " +
-         "WHEN DayOfWeek = 'Saturday' THEN 6 " +
-         "WHEN DayOfWeek = 'Sunday' THEN 7 " +
-         "END;", flightNum);
-
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      public List<List<String>> planeRepairs(String planeID, String startDate, String endDate) throws SQLException {
+         LocalDate start = parseDate(startDate);
+         LocalDate end = parseDate(endDate);
+         if (start != null && end != null) {
+            return this.esql.getRepairHistory().range(planeID, start, end);
+         }
+         //a date we can't read is left to the database, which reports what is wrong with it
+         return report(String.format(
+            "SELECT RepairDate, RepairCode " +
+            "FROM Repair " +
+            "WHERE PlaneID = '%s' " +
+            "AND RepairDate BETWEEN '%s' AND '%s' " +
+            "ORDER BY RepairDate ASC;",
+            planeID, startDate, endDate));
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There is no schedule for this flight number.");
+      //the backlog says which requests are still waiting for a repair
+      public List<List<String>> pilotRequests(String pilotID) throws SQLException {
+         MaintenanceBacklog backlog = this.esql.getBacklog();
+         List<List<String>> rows = new ArrayList<List<String>>();
+         for (List<String> row : this.esql.executeQueryAndReturnResult(String.format(
+               "SELECT PlaneID, RepairCode, RequestDate, RequestID " +
+               "FROM MaintenanceRequest " +
+               "WHERE PilotID = '%s' " +
+               "ORDER BY RequestDate ASC;",
+               pilotID))) {
+            rows.add(Arrays.asList(row.get(0), row.get(1), row.get(2),
+               backlog.isOpen(Integer.parseInt(row.get(3).trim())) ? "open" : "repaired"));
          }
-      } catch (Exception e){
-         System.err.println(e.getMessage());
+         return rows;
       }
-   }
 
-   //given the flight and date, get the number of seats still available and the number of seats sold
-   //using FlightInstance Table
-   public static void feature2(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Flight Number: ");
-         String flightNum = in.readLine();
+      public List<List<String>> technicianRanking() throws SQLException {
+         return report(
+            "SELECT TechnicianID, COUNT(*) AS RepairCount " +
+            "FROM Repair " +
+            "GROUP BY TechnicianID " +
+            "ORDER BY RepairCount DESC;");
+      }
 
-         System.out.print("Please Enter the Date of your Flight (MM/DD/YY): ");
-         String flightDate = in.readLine();
+      //the filter lets through about 1% of the IDs that don't exist, so a hit is looked up
+      //(a journaled booking is confirmed before the foreign key could turn it down)
+      public boolean customerExists(String customerID) throws SQLException {
+         return this.esql.mightExist("Customer", customerID) && customerID.trim().matches("[0-9]+")
+            && this.esql.executeQuery(String.format("SELECT 1 FROM Customer WHERE CustomerID = %s;", customerID.trim())) > 0;
+      }
 
-         String query = String.format(
-            "SELECT SeatsTotal - SeatsSold AS SeatsAvailable, SeatsSold " +
-            "FROM FlightInstance " +
-            "WHERE FlightNumber = '%s' AND FlightDate = '%s';",
-            flightNum, flightDate);
+      public boolean planeExists(String planeID) throws SQLException {
+         return this.esql.mightExist("Plane", planeID)
+            && this.esql.executeQuery(String.format("SELECT * FROM Plane WHERE PlaneID = '%s';", planeID)) > 0;
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      //a group gets seats next to each other in one row when there is room
+      public List<List<String>> book(String customerID, String flightInstanceID, int partySize) throws SQLException, IOException {
+         if (!flightInstanceID.matches("[0-9]+")) {
+            return new ArrayList<List<String>>();
+         }
 
-         if (rowCount == 0) {
-            System.out.println("There is no flight instance found for this flight number and date.");
+         //checking for the number of seats
+         String checkingSeatsQuery = String.format(
+            "SELECT SeatsSold, SeatsTotal, FlightDate " +
+            "FROM FlightInstance " +
+            "WHERE FlightInstanceID = %s;",
+            flightInstanceID);
+      
+         List<List<String>> resultList;
+         int shard = -1;
+         if (this.esql.isSharded()) {
+            //only the instance ID is known here, so every shard is asked and the one that has it takes the booking
+            resultList = new ArrayList<List<String>>();
+            List<List<List<String>>> shardResults = this.esql.executeQueryOnEachShard(checkingSeatsQuery);
+            for (int s = 0; s < shardResults.size() && shard < 0; s++) {
+               if (!shardResults.get(s).isEmpty()) {
+                  shard = s;
+                  resultList = shardResults.get(s);
+               }
+            }
+         } else {
+            resultList = this.esql.executeQueryAndReturnResult(checkingSeatsQuery);
          }
-         
-      } catch (Exception e){
-         System.err.println(e.getMessage());
-      }
-   }
 
-   //given the flight and date, find whether the flight departed on time and arrived on time
-   //using FlightInstance Table
-   public static void feature3(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Flight Number: ");
-         String flightNum = in.readLine();
+         List<List<String>> booked = new ArrayList<List<String>>();
+         if (resultList.isEmpty()) {
+            return booked;
+         }
 
-         System.out.print("Please Enter the Date of your Flight (MM/DD/YY): ");
-         String flightDate = in.readLine();
+         int seatsSold = Integer.parseInt(resultList.get(0).get(0));
+         int seatsTotal = Integer.parseInt(resultList.get(0).get(1));
+         //the reservation keeps its flight's date, which is what the Reservation table is partitioned by
+         String flightDate = resultList.get(0).get(2);
+
+         //bookings still waiting in the journal have taken seats the table does not show yet
+         int instanceID = Integer.parseInt(flightInstanceID.trim());
+         int pendingSeats = this.esql._journal != null ? this.esql._journal.pendingSeats(instanceID) : 0;
+
+         String currStatus = "waitlist";
+         int[] seats = null;
+         String[] reserveIDs = new String[partySize];
+         for (int attempt = 0; ; attempt++) {
+            //the seat map hands out the seats, the counts from the table have the last word if it is behind
+            SeatMap seatMap = this.esql.getSeatMap(instanceID, flightDate, shard, seatsTotal, seatsSold);
+            if (seatsSold + pendingSeats + partySize <= seatsTotal) {
+               seats = seatMap.allocate(partySize);
+            } else if (seatMap.free() > 0) {
+               //another program sold these seats, load the map again next time
+               this.esql._seatMaps.remove(instanceID, seatMap);
+            }
+            //must match the Status values the Reservation table accepts (reserved, waitlist, flown)
+            currStatus = seats != null ? "reserved" : "waitlist";
 
-         String query = String.format(
-            "SELECT DepartedOnTime, ArrivedOnTime " +
-            "FROM FlightInstance " +
-            "WHERE FlightNumber = '%s' AND FlightDate = '%s';",
-            flightNum, flightDate);
-            
-         int rowCount = esql.executeQueryAndPrintResult(query);
+            //creating unique reserationIDs, in time order so new rows go at the end of the primary key index
+            for (int i = 0; i < partySize; i++) {
+               reserveIDs[i] = RESERVATION_IDS.next();
+            }
 
-         if (rowCount == 0) {
-            System.out.println("There is no flight instance found for this flight number and date.");
-         }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
-      }
-   }
+            if (this.esql._journal != null) {
+               //the journal writes the reservations and the seat count to the database in the background
+               try {
+                  for (int i = 0; i < partySize; i++) {
+                     this.esql._journal.append(reserveIDs[i], customerID.trim(), instanceID, currStatus, flightDate, shard,
+                        seats != null ? seats[i] : 0);
+                  }
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new InterruptedIOException("The booking was interrupted");
+               }
+               break;
+            }
 
-   //given a date, get all flight scheduled on that day
-   //using FlightInstance Table
-   public static void feature4(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Flight Date (MM/DD/YY): ");
-         String flightDate = in.readLine();
+            //the reservations and their seats are written in one transaction
+            UnitOfWork work = this.esql.beginWork(shard);
 
-         String query = String.format(
-            "SELECT FlightNumber, NumOfStops, TicketCost " +
-            "FROM FlightInstance " +
-            "WHERE FlightDate = '%s';",
-            flightDate);
-         
-         int rowCount = esql.executeQueryAndPrintResult(query);
+            //inserting the reservations 
+            for (int i = 0; i < partySize; i++) {
+               String insertReservation = String.format(
+                  "INSERT INTO Reservation (ReservationID, CustomerID, FlightInstanceID, Status, FlightDate, SeatNumber) " +
+                  "VALUES ('%s', %s, %s, '%s', '%s', %s);",
+                  reserveIDs[i], customerID, flightInstanceID, currStatus, flightDate, seats != null ? Integer.toString(seats[i]) : "NULL"); 
+               work.add(insertReservation);
+            }
 
-         if (rowCount == 0) {
-            System.out.println("There is no flights scheduled for this flight date.");
+            //if status is reserved then we will need to increment the seats sold 
+            if (currStatus.equals("reserved")) {
+               String updateSeatsQuery = String.format(
+                  "UPDATE FlightInstance " +
+                  "SET SeatsSold = SeatsSold + %d " +
+                  "WHERE FlightInstanceID = %s AND FlightDate = '%s';", partySize, flightInstanceID, flightDate); 
+               work.add(updateSeatsQuery);
+            }
+
+            try {
+               work.commit();
+               break;
+            } catch (SQLException e) {
+               if (seats == null) {
+                  throw e;
+               }
+               //the seat was taken by another program (unique seat index), forget this map and try once more with a fresh one
+               seatMap.release(seats);
+               this.esql._seatMaps.remove(instanceID, seatMap);
+               seats = null;
+               if (attempt > 0) {
+                  throw e;
+               }
+            }
          }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+
+         //keep the in memory copies' seat counts in step with the one we just changed
+         if (currStatus.equals("reserved") && this.esql._replica != null) {
+            this.esql._replica.addSeatsSold(instanceID, partySize);
+         }
+         if (currStatus.equals("reserved") && this.esql._board != null) {
+            this.esql._board.addSeatsSold(instanceID, partySize);
+         }
+
+         for (int i = 0; i < partySize; i++) {
+            booked.add(Arrays.asList(reserveIDs[i], currStatus, seats != null ? Integer.toString(seats[i]) : null));
+         }
+         return booked;
       }
-   }
 
-   //given a fight and date, get a list of passengers who made reservations, are on the waiting list, actually flew, on the flight (for flights already completed)
-   //using Reservation Table and Customer Table
-   public static void feature5(AirlineManagement esql) {
-      try {
-         System.out.println("Please Enter Reservation ID: ");
-         String reserveID = in.readLine();
+      public int addRepair(String planeID, String repairCode, String repairDate, String technicianID) throws SQLException {
+         //gets the current highest repair ID that is in the Repair table,
+         String getMaxIDQuery = "SELECT MAX(RepairID) FROM Repair;";
+         // run the query using executeQueryAndReturnResult, which returns a list of rows (each row is a list of strings)
+         //MAX(), there will only be one row with one value (the current max RepairID)
+         List<List<String>> resultList = this.esql.executeQueryAndReturnResult(getMaxIDQuery);
+         int newRepairID = 1; //default if empty
+         //if the table is not empty,then parse the RepairID and then increment it by 1
+         if (!resultList.isEmpty() && resultList.get(0).get(0) != null) {
+            newRepairID = Integer.parseInt(resultList.get(0).get(0)) + 1;
+         }
 
-         String query = String.format(
-            "SELECT C.FirstName, C.LastName, C.Gender, C.DOB, C.Address, C.Phone, C.Zip " +
-            "FROM Reservation R, Customer C " +
-            "WHERE R.ReservationID = '%s' AND R.CustomerID = C.CustomerID;",
-            reserveID);
+         String insertQuery = String.format(
+            "INSERT INTO Repair (RepairID, PlaneID, RepairCode, RepairDate, TechnicianID) " +
+            "VALUES (%d, '%s', '%s', '%s', '%s');",
+            newRepairID, planeID, repairCode, repairDate, technicianID);  
+      
+         //the plane's LastRepairDate moves forward with the repair, in the same transaction
+         String updatePlaneQuery = String.format(
+            "UPDATE Plane SET LastRepairDate = GREATEST(LastRepairDate, DATE '%s') WHERE PlaneID = '%s';",
+            repairDate, planeID);
+
+         UnitOfWork work = this.esql.beginWork();
+         work.add(insertQuery);
+         work.add(updatePlaneQuery);
+         work.commit();
+
+         //the repair history screens see the new repair without waiting for the next refresh
+         LocalDate date = parseDate(repairDate);
+         RepairHistory history = this.esql._repairHistory;
+         if (history != null && date != null) {
+            history.add(newRepairID, planeID, date, repairCode);
+         }
+         MaintenanceBacklog backlog = this.esql._backlog;
+         if (backlog != null && date != null) {
+            backlog.addRepair(newRepairID, planeID, repairCode, date, technicianID);
+         }
+         return newRepairID;
+      }
 
-            int rowCount = esql.executeQueryAndPrintResult(query);
+      //today and tomorrow come from the board kept in memory, other days run the same query (on every shard when sharded)
+      public List<List<String>> board(LocalDate day) throws SQLException {
+         List<List<String>> rows = this.esql.getBoard().rows(day);
+         return rows != null ? rows : OperationsBoard.build(this.esql, day);
+      }
 
-            if (rowCount == 0) {
-            System.out.println("There are no reservations found for this ReservationID.");
+      //one scan over the route's instances in the date range, DISTINCT ON keeps the cheapest one of each day
+      public List<List<String>> fareCalendar(String departureCity, String arrivalCity, LocalDate firstDay, LocalDate lastDay) throws SQLException {
+         FlightReplica replica = this.esql.getReplica();
+         if (replica != null) {
+            return replica.fareCalendar(departureCity, arrivalCity, firstDay, lastDay);
+         }
+         String query = String.format(
+            "SELECT DISTINCT ON (FI.FlightDate) FI.FlightDate, F.FlightNumber, FI.TicketCost, " +
+            "FI.SeatsTotal - FI.SeatsSold AS SeatsLeft, FI.NumOfStops " +
+            "FROM Flight F " +
+            "JOIN FlightInstance FI ON F.FlightNumber = FI.FlightNumber " +
+            "WHERE F.DepartureCity = '%s' AND F.ArrivalCity = '%s' " +
+            "AND FI.FlightDate BETWEEN '%s' AND '%s' " +
+            "AND FI.SeatsSold < FI.SeatsTotal " +
+            "ORDER BY FI.FlightDate, FI.TicketCost, FI.NumOfStops;",
+            departureCity, arrivalCity, firstDay, lastDay);
+         if (!this.esql.isSharded()) {
+            return report(query);
+         }
+         //each shard has the cheapest of its own flights, keep the cheapest of those for each day
+         List<List<String>> rows = this.esql.executeQueryOnAllShards(query);
+         Collections.sort(rows, (a, b) -> {
+            int byDate = a.get(0).compareTo(b.get(0));
+            return byDate != 0 ? byDate : new BigDecimal(a.get(2)).compareTo(new BigDecimal(b.get(2)));
+         });
+         List<List<String>> cheapest = new ArrayList<List<String>>();
+         for (List<String> row : rows) {
+            if (cheapest.isEmpty() || !cheapest.get(cheapest.size() - 1).get(0).equals(row.get(0))) {
+               cheapest.add(row);
             }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+         }
+         return cheapest;
       }
-   }
 
+      public MaintenanceBacklog backlog() throws SQLException {
+         return this.esql.getBacklog();
+      }
 
-   //Given a reservation number, retrieve information about the traverlers under that number (First/last name, geneder, dob, address, phone number, zipcode)
-   //Using Reservation and Customer Table 
-   public static void feature6(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter reservation ID: "); 
-         String reserveID = in.readLine(); 
+      /*
+       * Runs a query on the rows of one flight, on its shard when sharded
+       **/
+      private List<List<String>> flightQuery(String flightNumber, String query) throws SQLException {
+         return report(this.esql.isSharded() ? this.esql.shardOf(flightNumber) : -1, query);
+      }
 
-         String query = String.format(
-            "SELECT C.FirstName, C.LastName, C.Gender, C.DOB, C.Address, C.Phone, C.Zip " +
-            "FROM Customer C, Reservation R " +
-            "WHERE R.ReservationID = '%s' AND R.CustomerID = C.CustomerID;",
-            reserveID);
-         
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      /*
+       * Runs a report's query, or leaves it to printReport to stream into
+       * the file when an export is pending
+       **/
+      private List<List<String>> report(String query) throws SQLException {
+         return report(-1, query);
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There is no information found for this Reservation ID");
-         }
-      } catch (Exception e) {
-         System.err.println(e.getMessage()); 
+      private List<List<String>> report(int shard, String query) throws SQLException {
+         if (this.esql.isExportPending()) {
+            return new QueryRows(query, shard);
+         }
+         return shard < 0 ? this.esql.executeQueryAndReturnResult(query) : this.esql.executeShardQuery(shard, query);
       }
    }
 
-   //given a plane number, get its make, model, age, last repair date 
-   //Use Plane Table
-   public static void feature7(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter Plane ID: ");
-         String planeID = in.readLine(); 
+   /**
+    * The features' data held in memory, loaded from the CSV files of data/
+    * (the files load_data.sql copies into the database), so the features
+    * run without Postgres, for tests and benchmarks.  Flights, repairs and
+    * the backlog go into the same indexes the database path keeps in
+    * memory, the rest are maps built once at load.  New users, bookings
+    * and repairs are kept until the program stops.  Seats are handed out by
+    * a SeatMap per flight instance, like on the database.  Login.csv is
+    * optional (userID, userName, password, role), there is none in data/.
+    */
+   static class MemoryStore implements AirlineStore {
+
+      private final FlightReplica flights = new FlightReplica();
+      private final RepairHistory repairHistory = new RepairHistory();
+      private final MaintenanceBacklog backlog = new MaintenanceBacklog();
+
+      // PlaneID -> Make, Model, Year, LastRepairDate (replaced by a repair)
+      private final ConcurrentHashMap<String, List<String>> planes = new ConcurrentHashMap<String, List<String>>();
+      // by FlightNumber: DayOfWeek, DepartureTime, ArrivalTime from Monday to Sunday
+      private final Map<String, List<List<String>>> schedules = new HashMap<String, List<List<String>>>();
+      // by FlightNumber: FlightDate, DepartedOnTime, ArrivedOnTime, SeatsTotal, FlightInstanceID
+      private final Map<String, List<List<String>>> instancesOfFlight = new HashMap<String, List<List<String>>>();
+      // FlightInstanceID -> FlightNumber, FlightDate, SeatsTotal, DepartureCity, ArrivalCity, PlaneID,
+      // DepartedOnTime, ArrivedOnTime, NumOfStops, TicketCost, and its SeatsSold and seats
+      private final Map<String, List<String>> instances = new HashMap<String, List<String>>();
+      // by FlightDate: the FlightInstanceIDs of the day, for the board
+      private final Map<String, List<String>> instancesOfDay = new HashMap<String, List<String>>();
+      private final ConcurrentHashMap<String, AtomicInteger> seatsSold = new ConcurrentHashMap<String, AtomicInteger>();
+      private final ConcurrentHashMap<String, SeatMap> seatMaps = new ConcurrentHashMap<String, SeatMap>();
+      // ReservationID -> CustomerID, and the rows of feature19 by CustomerID
+      private final ConcurrentHashMap<String, String> customerOfReservation = new ConcurrentHashMap<String, String>();
+      private final Map<String, List<List<String>>> reservationsOfCustomer = new HashMap<String, List<List<String>>>();
+      // the reservation counts by FlightNumber, sorted into popular when it is asked for after a booking
+      private final Map<String, Integer> reservationsOfFlight = new HashMap<String, Integer>();
+      private List<List<String>> popular = null;
+      // by TechnicianID: PlaneID, RepairCode, RepairDate, and the repair counts, sorted into ranking the same way
+      private final Map<String, List<List<String>>> repairsOfTechnician = new HashMap<String, List<List<String>>>();
+      private final Map<String, Integer> repairCounts = new HashMap<String, Integer>();
+      private List<List<String>> ranking = null;
+      private final AtomicInteger maxRepairID = new AtomicInteger(0);
+      // by PilotID: PlaneID, RepairCode, RequestDate, RequestID
+      private final Map<String, List<List<String>>> requestsOfPilot = new HashMap<String, List<List<String>>>();
+      private final Set<String> pilots = new HashSet<String>();
+      private final Set<String> technicians = new HashSet<String>();
+
+      // users and customers, added to by CreateUser
+      private final ConcurrentHashMap<String, List<String>> logins = new ConcurrentHashMap<String, List<String>>();
+      private final ConcurrentHashMap<String, List<String>> customers = new ConcurrentHashMap<String, List<String>>();
+      private final AtomicInteger maxCustomerID = new AtomicInteger(0);
+
+      public MemoryStore(File dir) throws IOException {
+         for (List<String> row : read(dir, "Plane", true)) {
+            this.planes.put(row.get(0), Arrays.asList(row.get(1), row.get(2), row.get(3), isoDate(row.get(4))));
+         }
 
-         String query = String.format(
-            "SELECT Make, Model, (EXTRACT(YEAR FROM CURRENT_DATE) - Year) AS Age, LastRepairDate " +
-            "FROM Plane " +
-            "WHERE PlaneID = '%s';",
-            planeID);
-         
-         int rowCount = esql.executeQueryAndPrintResult(query);
+         //the rows of the replica's refresh queries
+         Map<String, List<String>> flightRows = new HashMap<String, List<String>>();
+         List<List<String>> flightColumns = new ArrayList<List<String>>();
+         for (List<String> row : read(dir, "Flight", true)) {
+            flightRows.put(row.get(0), row);
+            List<String> plane = this.planes.get(row.get(1));
+            flightColumns.add(Arrays.asList(row.get(0), row.get(2), row.get(3),
+               plane == null ? null : plane.get(0), plane == null ? null : plane.get(1)));
+         }
+         List<List<String>> scheduleColumns = new ArrayList<List<String>>();
+         List<List<String>> scheduleRows = read(dir, "Schedule", true);
+         Collections.sort(scheduleRows, (a, b) -> Integer.compare(weekday(a.get(2)), weekday(b.get(2))));
+         for (List<String> row : scheduleRows) {
+            scheduleColumns.add(Arrays.asList(row.get(1), row.get(3), row.get(4)));
+            this.schedules.computeIfAbsent(row.get(1), f -> new ArrayList<List<String>>()).add(Arrays.asList(
+               row.get(2), FlightReplica.formatTime(FlightReplica.parseTime(row.get(3))),
+               FlightReplica.formatTime(FlightReplica.parseTime(row.get(4)))));
+         }
+         List<List<String>> instanceColumns = new ArrayList<List<String>>();
+         for (List<String> row : read(dir, "FlightInstance", true)) {
+            String date = isoDate(row.get(2));
+            String departed = flag(row.get(3));
+            String arrived = flag(row.get(4));
+            instanceColumns.add(Arrays.asList(row.get(0), row.get(1), date, departed, arrived,
+               row.get(5), row.get(6), row.get(7), row.get(8)));
+            List<String> flight = flightRows.get(row.get(1));
+            this.instances.put(row.get(0), Arrays.asList(row.get(1), date, row.get(5),
+               flight == null ? null : flight.get(2), flight == null ? null : flight.get(3), flight == null ? null : flight.get(1),
+               departed, arrived, row.get(7), row.get(8)));
+            this.instancesOfDay.computeIfAbsent(date, d -> new ArrayList<String>()).add(row.get(0));
+            this.seatsSold.put(row.get(0), new AtomicInteger(Integer.parseInt(row.get(6))));
+            this.instancesOfFlight.computeIfAbsent(row.get(1), f -> new ArrayList<List<String>>()).add(Arrays.asList(
+               date, departed, arrived, row.get(5), row.get(0)));
+         }
+         this.flights.load(flightColumns, scheduleColumns, instanceColumns, Collections.<List<String>>emptyList());
 
-         if (rowCount == 0) {
-            System.out.println("There is no information found for this Reservation ID");
+         for (List<String> row : read(dir, "Customer", true)) {
+            this.customers.put(row.get(0), row.subList(1, 8));
+            this.maxCustomerID.accumulateAndGet(Integer.parseInt(row.get(0)), Math::max);
          }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
-      }
-   }
 
-   //given a maintanence technician id, list all repairs made by that person 
-   //Use Repair Table 
-   public static void feature8(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter technician ID: "); 
-         String techID = in.readLine();
+         for (List<String> row : read(dir, "Reservation", true)) {
+            this.customerOfReservation.put(row.get(0), row.get(1));
+            List<String> instance = this.instances.get(row.get(2));
+            if (instance == null) {
+               continue;
+            }
+            this.reservationsOfCustomer.computeIfAbsent(row.get(1), c -> new ArrayList<List<String>>()).add(Arrays.asList(
+               row.get(0), instance.get(0), instance.get(1), instance.get(3), instance.get(4), row.get(3)));
+            this.reservationsOfFlight.merge(instance.get(0), 1, Integer::sum);
+         }
+         for (List<List<String>> rows : this.reservationsOfCustomer.values()) {
+            Collections.sort(rows, (a, b) -> a.get(2).compareTo(b.get(2)));
+         }
 
-         String query = String.format(
-            "SELECT PlaneID, RepairCode, RepairDate " +
-            "FROM Repair " +
-            "WHERE TechnicianID = '%s' " +
-            "ORDER BY RepairDate ASC;",
-            techID);
+         for (List<String> row : read(dir, "Technician", true)) {
+            this.technicians.add(row.get(0));
+         }
+         for (List<String> row : read(dir, "Pilot", true)) {
+            this.pilots.add(row.get(0));
+         }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+         //the rows of the repair history's and the backlog's refresh queries
+         List<List<String>> repairRows = read(dir, "Repair", true);
+         List<List<String>> historyColumns = new ArrayList<List<String>>();
+         List<List<String>> backlogColumns = new ArrayList<List<String>>();
+         Collections.sort(repairRows, (a, b) -> Integer.parseInt(a.get(0)) - Integer.parseInt(b.get(0)));
+         for (List<String> row : repairRows) {
+            String date = isoDate(row.get(3));
+            historyColumns.add(Arrays.asList(row.get(0), row.get(1), date, row.get(2)));
+            backlogColumns.add(Arrays.asList(row.get(0), row.get(1), row.get(2), date, row.get(4)));
+            this.repairsOfTechnician.computeIfAbsent(row.get(4), t -> new ArrayList<List<String>>()).add(Arrays.asList(
+               row.get(1), row.get(2), date));
+            this.repairCounts.merge(row.get(4), 1, Integer::sum);
+            this.maxRepairID.accumulateAndGet(Integer.parseInt(row.get(0)), Math::max);
+         }
+         for (List<List<String>> rows : this.repairsOfTechnician.values()) {
+            Collections.sort(rows, (a, b) -> a.get(2).compareTo(b.get(2)));
+         }
+         Collections.sort(backlogColumns, (a, b) -> a.get(3).compareTo(b.get(3)));
+
+         List<List<String>> requestColumns = new ArrayList<List<String>>();
+         for (List<String> row : read(dir, "MaintenanceRequest", true)) {
+            String date = isoDate(row.get(3));
+            requestColumns.add(Arrays.asList(row.get(0), row.get(1), row.get(2), date, row.get(4)));
+            this.requestsOfPilot.computeIfAbsent(row.get(4), p -> new ArrayList<List<String>>()).add(Arrays.asList(
+               row.get(1), row.get(2), date, row.get(0)));
+         }
+         Collections.sort(requestColumns, (a, b) -> a.get(3).compareTo(b.get(3)));
+         for (List<List<String>> rows : this.requestsOfPilot.values()) {
+            Collections.sort(rows, (a, b) -> a.get(2).compareTo(b.get(2)));
+         }
+         this.repairHistory.load(historyColumns);
+         this.backlog.load(backlogColumns, requestColumns);
 
-         if (rowCount == 0) {
-            System.out.println("There is no repairs found for this Technician ID");
+         for (List<String> row : read(dir, "Login", false)) {
+            this.logins.put(row.get(1), Arrays.asList(row.get(0), row.get(2), row.get(3)));
          }
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      public List<String> login(String userName, String password) {
+         List<String> login = this.logins.get(userName);
+         return login == null || !login.get(1).equals(password) ? null : Arrays.asList(login.get(0), login.get(2));
       }
-   }
 
-   //given a plane id and date range, list all the dates and codes for repairs performed 
-   //Use Repair Table
-   public static void feature9(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter Plane ID: "); 
-         String planeID = in.readLine();
+      public boolean userNameTaken(String userName) {
+         return this.logins.containsKey(userName);
+      }
 
-         System.out.println("Please enter start date (YYYY-MM-DD): ");
-         String startDate = in.readLine(); 
+      public boolean pilotExists(String pilotID) {
+         return this.pilots.contains(pilotID);
+      }
 
-         System.out.println("Please enter end date (YYYY-MM-DD): ");
-         String endDate = in.readLine(); 
+      public boolean technicianExists(String technicianID) {
+         return this.technicians.contains(technicianID);
+      }
 
-         String query = String.format(
-            "SELECT RepairDate, RepairCode " +
-            "FROM Repair " +
-            "WHERE PlaneID = '%s' " +
-            "AND RepairDate BETWEEN '%s' AND '%s' " +
-            "ORDER BY RepairDate ASC;",
-            planeID, startDate, endDate);
+      public int nextCustomerID() {
+         return this.maxCustomerID.get() + 1;
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      public String nextManagerID() {
+         int minID = 0;
+         for (List<String> login : this.logins.values()) {
+            if (login.get(0).matches("-?[0-9]+")) {
+               minID = Math.min(minID, Integer.parseInt(login.get(0)));
+            }
+         }
+         return Integer.toString(minID - 1);
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There is no repairs found for this Plane ID and date range");
+      public void createUser(String userID, String userName, String password, String role, List<String> customer) throws SQLException {
+         if (customer != null && this.customers.putIfAbsent(userID, customer) != null) {
+            throw new SQLException("There is already a customer " + userID);
+         }
+         if (this.logins.putIfAbsent(userName, Arrays.asList(userID, password, role)) != null) {
+            if (customer != null) {
+               this.customers.remove(userID);
+            }
+            throw new SQLException("The user name " + userName + " is already taken");
+         }
+         if (customer != null) {
+            this.maxCustomerID.accumulateAndGet(Integer.parseInt(userID), Math::max);
          }
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      public List<List<String>> schedule(String flightNumber) {
+         return copy(this.schedules.get(flightNumber));
       }
-   }
 
+      public List<List<String>> seats(String flightNumber, String flightDate) throws SQLException {
+         return this.flights.seats(flightNumber, date(flightDate));
+      }
 
-   //given a flight and range of date (start date and end date), show the statistics of the flight 
-   //number of days the flight departed and arrived, number of sold and unsold tickets
-   //Use FlightInstance Table
-   public static void feature10(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter flight number: "); 
-         String flightNum = in.readLine();
+      public List<List<String>> status(String flightNumber, String flightDate) throws SQLException {
+         String date = date(flightDate).toString();
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (List<String> instance : copy(this.instancesOfFlight.get(flightNumber))) {
+            if (instance.get(0).equals(date)) {
+               result.add(Arrays.asList(instance.get(1), instance.get(2)));
+            }
+         }
+         return result;
+      }
 
-         System.out.println("Please enter start date (MM/DD/YY): ");
-         String startDate = in.readLine(); 
+      public List<List<String>> plane(String planeID) {
+         List<String> plane = this.planes.get(planeID);
+         if (plane == null) {
+            return new ArrayList<List<String>>();
+         }
+         String age = plane.get(2) == null ? null : Integer.toString(LocalDate.now().getYear() - Integer.parseInt(plane.get(2).trim()));
+         List<List<String>> result = new ArrayList<List<String>>();
+         result.add(Arrays.asList(plane.get(0), plane.get(1), age, plane.get(3)));
+         return result;
+      }
 
-         System.out.println("Please enter end date (MM/DD/YY): ");
-         String endDate = in.readLine(); 
+      //one row even when no instance matches, like the aggregate query
+      public List<List<String>> flightStatistics(String flightNumber, String startDate, String endDate) throws SQLException {
+         String start = date(startDate).toString();
+         String end = date(endDate).toString();
+         int departed = 0, arrived = 0, instances = 0;
+         long sold = 0, unsold = 0;
+         for (List<String> instance : copy(this.instancesOfFlight.get(flightNumber))) {
+            if (instance.get(0).compareTo(start) < 0 || instance.get(0).compareTo(end) > 0) {
+               continue;
+            }
+            int instanceSold = this.seatsSold.get(instance.get(4)).get();
+            departed += "t".equals(instance.get(1)) ? 1 : 0;
+            arrived += "t".equals(instance.get(2)) ? 1 : 0;
+            sold += instanceSold;
+            unsold += Integer.parseInt(instance.get(3)) - instanceSold;
+            instances++;
+         }
+         List<List<String>> result = new ArrayList<List<String>>();
+         result.add(Arrays.asList(Integer.toString(departed), Integer.toString(arrived),
+            instances == 0 ? null : Long.toString(sold), instances == 0 ? null : Long.toString(unsold)));
+         return result;
+      }
 
-         String query = String.format(
-            "SELECT " +
-            "COUNT(CASE WHEN DepartedOnTime = TRUE THEN 1 END) AS DepartedOnTimeCount, " +
-            "COUNT(CASE WHEN ArrivedOnTime = TRUE THEN 1 END) AS ArrivedOnTimeCount, " +
-            "SUM(SeatsSold) AS TotalSeatsSold, " +
-            "SUM(SeatsTotal - SeatsSold) AS TotalSeatsUnsold " +
-            "FROM FlightInstance " +
-            "WHERE FlightNumber = '%s' " +
-            "AND FlightDate BETWEEN '%s' AND '%s';",
-            flightNum, startDate, endDate);
+      public List<List<String>> searchFlights(String departureCity, String arrivalCity, String flightDate) throws SQLException {
+         return this.flights.searchFlights(departureCity, arrivalCity, date(flightDate));
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      public List<List<String>> ticketCosts(String flightNumber) {
+         return this.flights.ticketCosts(flightNumber);
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There is no flight instantances found for this Flight Number and date range");
+      public List<List<String>> planeType(String flightNumber) {
+         return this.flights.planeType(flightNumber);
+      }
+
+      public synchronized List<List<String>> popularFlights(int limit) {
+         if (this.popular == null) {
+            this.popular = sortedCounts(this.reservationsOfFlight);
          }
+         return copy(this.popular.subList(0, Math.min(limit, this.popular.size())));
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      public List<List<String>> travelers(String reservationID) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         String customerID = this.customerOfReservation.get(reservationID);
+         List<String> customer = customerID == null ? null : this.customers.get(customerID);
+         if (customer != null) {
+            result.add(customer);
+         }
+         return result;
       }
-   }
 
-   //new york, miami, 5/5/25
-   //given a destination and a departure city, find all fights on a given date 
-   //(must return departure and arrival time, number of stops scheduled and ontimerecord as a percentage)
-   //using Flight table and FlightInstance table and Schedule Table
-   public static void feature11(AirlineManagement esql) {
-      try {
-      System.out.print("Please Enter Departure City: ");
-      String departureCity = in.readLine();
+      public synchronized List<List<String>> customerReservations(String customerID) {
+         return copy(this.reservationsOfCustomer.get(customerID.trim()));
+      }
 
-      System.out.print("Please Enter Arrival City: ");
-      String arrivalCity = in.readLine();
+      public synchronized List<List<String>> technicianRepairs(String technicianID) {
+         return copy(this.repairsOfTechnician.get(technicianID));
+      }
 
-      System.out.print("Please  Flight Date (MM/DD/YY): ");
-      String flightDate = in.readLine();
+      public List<List<String>> planeRepairs(String planeID, String startDate, String endDate) throws SQLException {
+         return this.repairHistory.range(planeID, date(startDate), date(endDate));
+      }
 
-      // query to get all flights between two cities on a specific date
-      // for each flight, it returns: departure time, arrival time, number of stops,
-      // and the on-time percentage (how often the flight departed and arrived on time)
-      // on-time percentage: using past FlightInstance data by dividing the number of on-time flights by the total number of flights for that flight number
-      // joins Flight, FlightInstance, and Schedule tables, and filters by departure city, arrival city, and date
-      String query = String.format(
-            "SELECT S.DepartureTime, S.ArrivalTime, FI.NumOfStops, " +
-            "ROUND(100.0 * " +
-            "(SELECT COUNT(*) FROM FlightInstance FI2 " +
-            " WHERE FI2.FlightNumber = F.FlightNumber " +
-            " AND FI2.DepartedOnTime = TRUE AND FI2.ArrivedOnTime = TRUE) / " +
-            "(SELECT COUNT(*) FROM FlightInstance FI3 " +
-            " WHERE FI3.FlightNumber = F.FlightNumber), 2) AS OnTimePercentage " +
-            "FROM Flight F " +
-            "JOIN FlightInstance FI ON F.FlightNumber = FI.FlightNumber " +
-            "JOIN Schedule S ON F.FlightNumber = S.FlightNumber " +
-            "WHERE F.DepartureCity = '%s' AND F.ArrivalCity = '%s' " +
-            "AND FI.FlightDate = '%s';",
-            departureCity, arrivalCity, flightDate);
-            
-         //method runs a SELECT query, grabs all the rows and columns from the result, converts every value to a string, 
-         //and stores everything in a list-of-lists format that's easy to work with in Java.
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      public List<List<String>> pilotRequests(String pilotID) {
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (List<String> row : copy(this.requestsOfPilot.get(pilotID))) {
+            result.add(Arrays.asList(row.get(0), row.get(1), row.get(2),
+               this.backlog.isOpen(Integer.parseInt(row.get(3))) ? "open" : "repaired"));
+         }
+         return result;
+      }
 
-            if (rowCount == 0) {
-            System.out.println("There are no flights found for this city and date.");
-            }
-            
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      public synchronized List<List<String>> technicianRanking() {
+         if (this.ranking == null) {
+            this.ranking = sortedCounts(this.repairCounts);
+         }
+         return copy(this.ranking);
       }
-   }
 
-   //given a flight number find the ticket cost 
-   //Use FlightInstance Table 
-   public static void feature12(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter flight number: "); 
-         String flightNum = in.readLine(); 
+      public boolean customerExists(String customerID) {
+         String key = number(customerID);
+         return key != null && this.customers.containsKey(key);
+      }
 
-         String query = String.format(
-            "SELECT DISTINCT TicketCost " +
-            "FROM FlightInstance " +
-            "WHERE FlightNumber = '%s';",
-            flightNum);
+      public boolean planeExists(String planeID) {
+         return this.planes.containsKey(planeID);
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      //the foreign keys of Reservation are checked like the database does, the customer first
+      public List<List<String>> book(String customerID, String flightInstanceID, int partySize) throws SQLException {
+         List<List<String>> booked = new ArrayList<List<String>>();
+         String instanceKey = number(flightInstanceID);
+         List<String> instance = instanceKey == null ? null : this.instances.get(instanceKey);
+         if (instance == null) {
+            return booked;
+         }
+         String customer = number(customerID);
+         if (customer == null || !this.customers.containsKey(customer)) {
+            throw new SQLException("ERROR: insert or update on table \"reservation\" violates foreign key constraint \"reservation_customerid_fkey\"");
+         }
 
-         if (rowCount == 0) {
-            System.out.println("There is no ticket costs found for this Flight Number");
+         AtomicInteger sold = this.seatsSold.get(instanceKey);
+         SeatMap seatMap = this.seatMaps.computeIfAbsent(instanceKey, id ->
+            new SeatMap(Integer.parseInt(instance.get(2)), Collections.<Integer>emptyList(), sold.get()));
+         int[] seats = seatMap.allocate(partySize);
+         String status = seats != null ? "reserved" : "waitlist";
+         if (seats != null) {
+            sold.addAndGet(partySize);
+            this.flights.addSeatsSold(Integer.parseInt(instanceKey), partySize);
          }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+         synchronized (this) {
+            List<List<String>> reservations = this.reservationsOfCustomer.computeIfAbsent(customer, c -> new ArrayList<List<String>>());
+            for (int i = 0; i < partySize; i++) {
+               String reservationID = RESERVATION_IDS.next();
+               this.customerOfReservation.put(reservationID, customer);
+               insertByDate(reservations, Arrays.asList(reservationID, instance.get(0), instance.get(1), instance.get(3), instance.get(4), status), 2);
+               booked.add(Arrays.asList(reservationID, status, seats != null ? Integer.toString(seats[i]) : null));
+            }
+            this.reservationsOfFlight.merge(instance.get(0), partySize, Integer::sum);
+            this.popular = null;
+         }
+         return booked;
       }
-   }
-
-   //given a flight number, find the airplane type (make, model)
-   //Use Flight and Plane Table
-   public static void feature13(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Flight Number: ");
-         String flightNum = in.readLine();
-
-         String query = String.format(
-            "SELECT P.Make, P.Model " +
-            "FROM Flight F " +
-            "JOIN Plane P ON F.PlaneID = P.PlaneID " +
-            "WHERE F.FlightNumber = '%s';", 
-            flightNum);
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      //the foreign keys of Repair are checked like the database does
+      public int addRepair(String planeID, String repairCode, String repairDate, String technicianID) throws SQLException {
+         LocalDate date = date(repairDate);
+         if (!this.planes.containsKey(planeID)) {
+            throw new SQLException("ERROR: insert or update on table \"repair\" violates foreign key constraint \"repair_planeid_fkey\"");
+         }
+         if (!this.technicians.contains(technicianID)) {
+            throw new SQLException("ERROR: insert or update on table \"repair\" violates foreign key constraint \"repair_technicianid_fkey\"");
+         }
+         int repairID = this.maxRepairID.incrementAndGet();
+         String day = date.toString();
+         this.repairHistory.add(repairID, planeID, date, repairCode);
+         this.backlog.addRepair(repairID, planeID, repairCode, date, technicianID);
+         //the plane's LastRepairDate only moves forward, like GREATEST in the update
+         this.planes.computeIfPresent(planeID, (id, plane) -> plane.get(3) != null && plane.get(3).compareTo(day) >= 0
+            ? plane : Arrays.asList(plane.get(0), plane.get(1), plane.get(2), day));
+
+         synchronized (this) {
+            List<List<String>> repairs = this.repairsOfTechnician.computeIfAbsent(technicianID, t -> new ArrayList<List<String>>());
+            insertByDate(repairs, Arrays.asList(planeID, repairCode, day), 2);
+            this.repairCounts.merge(technicianID, 1, Integer::sum);
+            this.ranking = null;
+         }
+         return repairID;
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There are no planes found for this Flight Number.");
+      //after the rows with the same date or an earlier one, so the list stays sorted without sorting it again
+      private static void insertByDate(List<List<String>> rows, List<String> row, int column) {
+         int low = 0, high = rows.size();
+         while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rows.get(middle).get(column).compareTo(row.get(column)) > 0) {
+               high = middle;
+            } else {
+               low = middle + 1;
             }
+         }
+         rows.add(low, row);
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      //the rows of the board query, one per scheduled time of the day (or one without times), built into board rows
+      public List<List<String>> board(LocalDate day) {
+         String weekday = day.getDayOfWeek().getDisplayName(java.time.format.TextStyle.FULL, Locale.ENGLISH);
+         List<List<String>> rows = new ArrayList<List<String>>();
+         for (String instanceID : copyOf(this.instancesOfDay.get(day.toString()))) {
+            List<String> instance = this.instances.get(instanceID);
+            List<String> plane = instance.get(5) == null ? null : this.planes.get(instance.get(5));
+            List<List<String>> times = new ArrayList<List<String>>();
+            for (List<String> time : copy(this.schedules.get(instance.get(0)))) {
+               if (time.get(0).trim().equals(weekday)) {
+                  times.add(time);
+               }
+            }
+            if (times.isEmpty()) {
+               times.add(Arrays.asList(weekday, null, null));
+            }
+            for (List<String> time : times) {
+               rows.add(Arrays.asList(instanceID, instance.get(0), instance.get(3), instance.get(4), time.get(1), time.get(2),
+                  plane == null ? null : plane.get(0), plane == null ? null : plane.get(1),
+                  instance.get(2), Integer.toString(this.seatsSold.get(instanceID).get()),
+                  instance.get(6), instance.get(7), instance.get(8), instance.get(9)));
+            }
+         }
+         //like ORDER BY S.DepartureTime, FI.FlightNumber, the flights without a time last
+         Collections.sort(rows, (a, b) -> {
+            if (a.get(4) == null || b.get(4) == null) {
+               return a.get(4) == null ? (b.get(4) == null ? a.get(1).compareTo(b.get(1)) : 1) : -1;
+            }
+            int byTime = a.get(4).compareTo(b.get(4));
+            return byTime != 0 ? byTime : a.get(1).compareTo(b.get(1));
+         });
+         List<List<String>> result = new ArrayList<List<String>>();
+         for (List<String> row : rows) {
+            result.add(new OperationsBoard.BoardRow(row).toRow());
+         }
+         return result;
       }
-   }
 
-   //given a make reservation for a flight, get on the waitlist for a flight if the flight is full
-   //Use Reservation and FlightInstance Table
-   public static void feature14(AirlineManagement esql) {
-      try {
-         System.out.print("Please enter Customer ID: ");
-         String customID = in.readLine();
+      public List<List<String>> fareCalendar(String departureCity, String arrivalCity, LocalDate firstDay, LocalDate lastDay) {
+         return this.flights.fareCalendar(departureCity, arrivalCity, firstDay, lastDay);
+      }
 
-         System.out.println("Please enter Flight Instance ID: ");
-         String flightInstantceID = in.readLine(); 
+      public MaintenanceBacklog backlog() {
+         return this.backlog;
+      }
 
-         //checking for the number of seats
-         String checkingSeatsQuery = String.format(
-            "SELECT SeatsSold, SeatsTotal " +
-            "FROM FlightInstance " +
-            "WHERE FlightInstanceID = %s;",
-            flightInstantceID);
-         
-         List<List<String>> resultList = esql.executeQueryAndReturnResult(checkingSeatsQuery);
+      private static List<String> copyOf(List<String> values) {
+         return values == null ? new ArrayList<String>() : new ArrayList<String>(values);
+      }
 
-         if (resultList.isEmpty()) {
-            System.out.println("Thi is the wrong flight instance ID.");
-            return;
+      //the rows of popular and ranking: the key and its count, highest count first
+      private static List<List<String>> sortedCounts(Map<String, Integer> counts) {
+         List<List<String>> rows = new ArrayList<List<String>>();
+         for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            rows.add(Arrays.asList(entry.getKey(), Integer.toString(entry.getValue())));
          }
+         Collections.sort(rows, (a, b) -> Integer.parseInt(b.get(1)) - Integer.parseInt(a.get(1)));
+         return rows;
+      }
 
-         int seatsSold = Integer.parseInt(resultList.get(0).get(0));
-         int seatsTotal = Integer.parseInt(resultList.get(0).get(1));
+      //an integer ID without its leading zeros, the way the database compares it, or null when it isn't one
+      private static String number(String text) {
+         String trimmed = text.trim();
+         return trimmed.matches("[0-9]{1,9}") ? Integer.toString(Integer.parseInt(trimmed)) : null;
+      }
 
-         String currStatus;
-         if (seatsSold < seatsTotal) {
-            currStatus = "reserved"; 
-         } else {
-            currStatus = "waitlisted";
+      //the callers may change the list they get
+      private static List<List<String>> copy(List<List<String>> rows) {
+         return rows == null ? new ArrayList<List<String>>() : new ArrayList<List<String>>(rows);
+      }
+
+      //the same message the database gives for a date it can't read
+      private static LocalDate date(String text) throws SQLException {
+         LocalDate date = parseDate(text);
+         if (date == null) {
+            throw new SQLException("ERROR: invalid input syntax for type date: \"" + text + "\"");
          }
-         
-         //creating unique reserationIDs
-         String reserveID = "R" + UUID.randomUUID().toString().substring(0, 8);
-
-         //inserting the reservation 
-         String insertReservation = String.format(
-            "INSERT INTO Reservation (ReservationID, CustomerID, FlightInstanceID, Status) " +
-            "VALUES ('%s', %s, %s, '%s');",
-            reserveID, customID, flightInstantceID, currStatus); 
-         
-         esql.executeUpdate(insertReservation);
-
-         //if status is reserved then we will need to increment the seats sold 
-         if (currStatus.equals("reserved")) {
-            String updateSeatsQuery = String.format(
-               "UPDATE FlightInstance " +
-               "SET SeatsSold = SeatsSold + 1 " +
-               "WHERE FlightInstanceID = %s;", flightInstantceID); 
-            
-            esql.executeUpdate(updateSeatsQuery);
+         return date;
+      }
+
+      private static String isoDate(String text) {
+         LocalDate date = text == null ? null : parseDate(text);
+         return date == null ? null : date.toString();
+      }
+
+      //the CSV files have 0/1 for the booleans, the driver gives t/f
+      private static String flag(String value) {
+         return value == null ? null : (FlightReplica.isTrue(value) ? "t" : "f");
+      }
+
+      private static int weekday(String day) {
+         return DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ENGLISH)).getValue();
+      }
+
+      /*
+       * Reads the rows of a table's CSV file after the header, an empty value is null like in \copy
+       **/
+      private static List<List<String>> read(File dir, String table, boolean required) throws IOException {
+         File file = new File(dir, table + ".csv");
+         List<List<String>> rows = new ArrayList<List<String>>();
+         if (!file.exists() && !required) {
+            return rows;
          }
+         BufferedReader reader = new BufferedReader(new FileReader(file));
+         try {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+               if (!line.isEmpty()) {
+                  rows.add(csvLine(line));
+               }
+            }
+         } finally {
+            reader.close();
+         }
+         return rows;
+      }
 
-         System.out.println("Reservation " + (currStatus.equals("reserved") ? "confirmed" : "waitlisted") + ". Your Reservation ID is: " + reserveID);
-         
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      private static List<String> csvLine(String line) {
+         List<String> fields = new ArrayList<String>();
+         StringBuilder field = new StringBuilder();
+         boolean quoted = false;
+         boolean wasQuoted = false;
+         for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+               if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                  field.append('"');
+                  i++;
+               } else if (c == '"') {
+                  quoted = false;
+               } else {
+                  field.append(c);
+               }
+            } else if (c == '"') {
+               quoted = true;
+               wasQuoted = true;
+            } else if (c == ',') {
+               fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+               field.setLength(0);
+               wasQuoted = false;
+            } else {
+               field.append(c);
+            }
+         }
+         fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+         return fields;
       }
    }
 
-   //give a plane id and a date range, list all the dates and the codes for repairs performed
-   //using Repair Table
-   public static void feature15(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Plane ID: ");
-         String planeID = in.readLine();
-
-         System.out.print("Please Enter Start Date (YYYY-MM-DD): ");
-         String startDate = in.readLine();
-
-         System.out.print("Please Enter End Date (YYYY-MM-DD): ");
-         String endDate = in.readLine();
+   /**
+    * The updates of one menu action, sent to the database together.  They
+    * go out as a single query string, which the server runs as one
+    * transaction: one round trip and one commit for the whole action, and
+    * nothing is written if any statement fails.  (The JDBC driver in lib
+    * sends a batch one statement at a time, so addBatch would not save the
+    * round trips.)
+    */
+   static class UnitOfWork {
 
-         String query = String.format(
-            "SELECT RepairDate, RepairCode " +
-            "FROM Repair " +
-            "WHERE PlaneID = '%s' " +
-            "AND RepairDate BETWEEN '%s' AND '%s' " +
-            "ORDER BY RepairDate ASC;",
-            planeID, startDate, endDate);
+      private final AirlineManagement esql;
+      private final int shard;
+      private final List<String> statements = new ArrayList<String>();
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      UnitOfWork(AirlineManagement esql, int shard) {
+         this.esql = esql;
+         this.shard = shard;
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There are no repairs found for this planeID and and date range.");
-            }
+      /**
+       * Adds an update to the unit, it is not sent until commit.
+       */
+      void add(String sql) {
+         sql = sql.trim();
+         this.statements.add(sql.endsWith(";") ? sql : sql + ";");
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      /**
+       * Sends the updates and commits them.  An empty unit does nothing.
+       */
+      void commit() throws SQLException {
+         if (this.statements.isEmpty()) {
+            return;
+         }
+         //no BEGIN/COMMIT, if a statement fails the server rolls the whole string back and the connection stays usable
+         String sql = String.join(" ", this.statements);
+         this.statements.clear();
+         if (this.shard >= 0) {
+            this.esql.executeShardUpdate(this.shard, sql);
+         } else {
+            this.esql.executeUpdate(sql);
+         }
       }
    }
 
-   //given a plane Id and date range , list all the dates and the codes for repairs performed 
-   //Use Repair Table
-   public static void feature16(AirlineManagement esql) {
-      try {
-         System.out.println("Please enter Plane ID: "); 
-         String planeID = in.readLine();
-
-         System.out.println("Please enter start date (YYYY-MM-DD): ");
-         String startDate = in.readLine(); 
+   /**
+    * A write behind journal for bookings.  feature14 appends the booking to a
+    * memory mapped file and returns once it has been forced to disk; bookings
+    * that arrive while a force is running wait for the next one, so a burst of
+    * bookings shares one fsync.  A background thread reads the forced records
+    * and writes them to Reservation and FlightInstance in batched
+    * transactions, then records how far it got in the file header.
+    *
+    * The file starts with the offset of the first record not yet in the
+    * database, followed by records of [int length][int crc32][payload], where
+    * the payload is the tab separated booking (the seat number is 0 for a
+    * booking without a seat).  On startup every valid record
+    * after that offset is applied again; the statements skip reservations
+    * that are already in the table, so a record is never counted twice.
+    *
+    * A batch the database turns down is applied again one record at a time.
+    * A booking whose seat another program took in the meantime gets the
+    * lowest free seat, or the waitlist when the flight is full, and the change
+    * is written to the journal's name + ".moved" so the customer can be told.
+    * A record that still fails while the connection works is written to the
+    * dead letter file (the journal's name + ".dead") with the error and is
+    * skipped, so one bad booking doesn't hold up the ones after it.
+    */
+   static class ReservationJournal {
+
+      private static final int HEADER_SIZE = 8;
+      private static final int RECORD_HEADER_SIZE = 8;
+      private static final int MAX_BATCH = 1000;
+      private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("airline.journal.interval", 200);
+      // how long a booking waits for room in a full journal before it fails
+      private static final long APPEND_TIMEOUT_MILLIS = Long.getLong("airline.journal.timeout", 10) * 1000;
+
+      private final AirlineManagement esql;
+      private final File deadLetters;
+      private final File moved;
+      private final FileChannel channel;
+      private final MappedByteBuffer map;
+      private final Connection connection;
+      private final Thread writer;
+
+      // seats booked in the journal but not yet added to FlightInstance.SeatsSold, by FlightInstanceID
+      private final Map<Integer, Integer> pendingSeats = new HashMap<Integer, Integer>();
+
+      // all guarded by this: the end of the records written, forced to disk and in the database
+      private int writeOffset;
+      private int durableOffset;
+      private int flushedOffset;
+      private long appended = 0;
+      private long durable = 0;
+      private boolean syncing = false;
+      private boolean running = true;
+
+      ReservationJournal(AirlineManagement esql, File file, long size) throws IOException, SQLException {
+         this.esql = esql;
+         this.deadLetters = new File(file.getPath() + ".dead");
+         this.moved = new File(file.getPath() + ".moved");
+         this.channel = new RandomAccessFile(file, "rw").getChannel();
+         this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, this.channel.size()));
+         this.flushedOffset = (int) Math.max(this.map.getLong(0), HEADER_SIZE);
+
+         // find the end of the records left by the last run, a torn record at the end fails its crc and is dropped
+         int offset = this.flushedOffset;
+         int replayed = 0;
+         for (String[] record : read(this.flushedOffset, this.map.capacity(), Integer.MAX_VALUE)) {
+            offset = Integer.parseInt(record[7]);
+            addPending(record, 1);
+            replayed++;
+         }
+         this.writeOffset = offset;
+         this.durableOffset = offset;
+         clearNext();
+         if (replayed > 0) {
+            System.out.println("Replaying " + replayed + " journaled bookings");
+         }
 
-         System.out.println("Please enter end date (YYYY-MM-DD): ");
-         String endDate = in.readLine(); 
+         this.connection = esql.openConnection();
+         this.connection.setAutoCommit(false);
+         this.writer = new Thread(this::writeLoop, "reservation-journal");
+         this.writer.setDaemon(true);
+         this.writer.start();
+      }
 
-         String query = String.format(
-            "SELECT RepairDate, RepairCode " +
-            "FROM Repair " +
-            "WHERE PlaneID = '%s' " +
-            "AND RepairDate BETWEEN '%s' AND '%s' " +
-            "ORDER BY RepairDate ASC;",
-            planeID, startDate, endDate);
+      /**
+       * Seats taken by journaled bookings that are not in SeatsSold yet.
+       */
+      synchronized int pendingSeats(int flightInstanceID) {
+         Integer seats = this.pendingSeats.get(flightInstanceID);
+         return seats == null ? 0 : seats;
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      /**
+       * Seat numbers of journaled bookings that are not in Reservation yet.
+       */
+      synchronized List<Integer> pendingSeatNumbers(int flightInstanceID) {
+         List<Integer> seats = new ArrayList<Integer>();
+         for (String[] record : read(this.flushedOffset, this.writeOffset, Integer.MAX_VALUE)) {
+            if (record[3].equals("reserved") && Integer.parseInt(record[2]) == flightInstanceID && !record[6].equals("0")) {
+               seats.add(Integer.parseInt(record[6]));
+            }
+         }
+         return seats;
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There is no repairs found for this Plane ID and date range");
+      /**
+       * Journaled bookings of a customer that are not in Reservation yet,
+       * as read(): ReservationID, CustomerID, FlightInstanceID, Status,
+       * FlightDate, shard, SeatNumber.
+       */
+      synchronized List<String[]> pendingOfCustomer(String customerID) {
+         List<String[]> bookings = new ArrayList<String[]>();
+         for (String[] record : read(this.flushedOffset, this.writeOffset, Integer.MAX_VALUE)) {
+            if (record[1].equals(customerID)) {
+               bookings.add(record);
+            }
          }
+         return bookings;
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      /**
+       * Adds a booking to the journal and waits until it is on disk.
+       *
+       * @param shard the booking shard the flight lives on, -1 when not sharded
+       * @throws java.io.IOException when the journal stays full for airline.journal.timeout seconds
+       */
+      void append(String reservationID, String customerID, int flightInstanceID, String status,
+                  String flightDate, int shard, int seatNumber) throws IOException, InterruptedException {
+         String line = reservationID + "\t" + customerID + "\t" + flightInstanceID + "\t" +
+                       status + "\t" + flightDate + "\t" + shard + "\t" + seatNumber;
+         byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+         int length = RECORD_HEADER_SIZE + payload.length;
+         if (length + 4 > this.map.capacity() - HEADER_SIZE) {
+            throw new IOException("booking does not fit in the journal");
+         }
+         CRC32 crc = new CRC32();
+         crc.update(payload);
+
+         long sequence;
+         synchronized (this) {
+            // out of room, wait for the writer to empty the journal so it can start again at the front
+            long deadline = System.currentTimeMillis() + APPEND_TIMEOUT_MILLIS;
+            while (this.writeOffset + length + 4 > this.map.capacity()) {
+               if (this.flushedOffset == this.writeOffset && !this.syncing) {
+                  this.writeOffset = this.durableOffset = this.flushedOffset = HEADER_SIZE;
+                  writeHeader();
+                  clearNext();
+                  this.map.force();
+                  break;
+               }
+               long left = deadline - System.currentTimeMillis();
+               if (left <= 0) {
+                  throw new IOException("The booking journal is full (the database is not taking the bookings), please try again later.");
+               }
+               notifyAll();
+               wait(left);
+            }
+            ByteBuffer record = this.map.duplicate();
+            record.position(this.writeOffset);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            this.writeOffset += length;
+            clearNext();
+            addPending(line.split("\t"), 1);
+            sequence = ++this.appended;
+         }
+         awaitDurable(sequence);
       }
-   }
 
-   //given a pilot ID, list all maintenance request made by that pilot 
-   //Use MaintenanceRequest Table 
-   public static void feature17(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Pilot ID: ");
-         String pilotID = in.readLine();
+      /**
+       * Forces the journal up to the given booking.  Only one thread forces
+       * at a time, the rest wait and are usually covered by its force.
+       */
+      private void awaitDurable(long sequence) throws InterruptedException {
+         while (true) {
+            long targetSequence;
+            int targetOffset;
+            synchronized (this) {
+               if (this.durable >= sequence) {
+                  return;
+               }
+               if (this.syncing) {
+                  wait();
+                  continue;
+               }
+               this.syncing = true;
+               targetSequence = this.appended;
+               targetOffset = this.writeOffset;
+            }
+            try {
+               this.map.force();
+            } finally {
+               synchronized (this) {
+                  this.syncing = false;
+                  this.durable = targetSequence;
+                  this.durableOffset = targetOffset;
+                  notifyAll();
+               }
+            }
+         }
+      }
 
-         String query = String.format(
-           "SELECT PlaneID, RepairCode, RequestDate " +
-            "FROM MaintenanceRequest " +
-            "WHERE PilotID = '%s' " +
-            "ORDER BY RequestDate ASC;",
-            pilotID);
+      /*
+       * Writer thread: applies the forced records to the database a batch at a
+       * time, keeping them in the journal until the transaction commits
+       **/
+      private void writeLoop() {
+         while (true) {
+            int from, to;
+            synchronized (this) {
+               try {
+                  if (this.running && this.flushedOffset == this.durableOffset) {
+                     wait(FLUSH_INTERVAL_MILLIS);
+                  }
+               } catch (InterruptedException e) {
+                  return;
+               }
+               if (this.flushedOffset == this.durableOffset) {
+                  if (!this.running) {
+                     return;
+                  }
+                  continue;
+               }
+               from = this.flushedOffset;
+               to = this.durableOffset;
+            }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+            List<String[]> records = read(from, to, MAX_BATCH);
+            try {
+               apply(records);
+            } catch (SQLException e) {
+               // the records stay in the journal and are tried again
+               System.err.println("Journal: " + e.getMessage());
+               synchronized (this) {
+                  if (!this.running) {
+                     return;
+                  }
+                  try {
+                     wait(1000);
+                  } catch (InterruptedException ie) {
+                     return;
+                  }
+               }
+               continue;
+            }
 
-         if (rowCount == 0) {
-            System.out.println("There are no maintenance requests found for this Plane ID.");
+            synchronized (this) {
+               this.flushedOffset = Integer.parseInt(records.get(records.size() - 1)[7]);
+               writeHeader();
+               for (String[] record : records) {
+                  addPending(record, -1);
+               }
+               notifyAll();
             }
+         }
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
+      /*
+       * Writes one batch, each shard's bookings in their own transaction
+       **/
+      private void apply(List<String[]> records) throws SQLException {
+         Map<Integer, List<String[]>> byShard = new HashMap<Integer, List<String[]>>();
+         for (String[] record : records) {
+            int shard = Integer.parseInt(record[5]);
+            List<String[]> batch = byShard.get(shard);
+            if (batch == null) {
+               batch = new ArrayList<String[]>();
+               byShard.put(shard, batch);
+            }
+            batch.add(record);
+         }
+         for (Map.Entry<Integer, List<String[]>> entry : byShard.entrySet()) {
+            if (entry.getKey() < 0) {
+               applyRecords(this.connection, entry.getValue());
+               //before the records leave the journal, so a read from a replica still finds them somewhere
+               try {
+                  this.esql.wroteAt(this.connection);
+                  this.connection.commit();
+               } catch (SQLException e) {
+                  //the records are in, writing them again would only dead letter them
+                  System.err.println("Journal: " + e.getMessage());
+               }
+            } else {
+               Connection shard = this.esql._shards.get(entry.getKey());
+               synchronized (shard) {
+                  shard.setAutoCommit(false);
+                  try {
+                     applyRecords(shard, entry.getValue());
+                  } finally {
+                     shard.setAutoCommit(true);
+                  }
+               }
+            }
+         }
       }
-   }
 
-   //try, PL005, RC555, 2025-06-10, T003
-   //after each repair, make an entry showing planeID, repair code, and date of repair
-   //Use Repair Table 
-   public static void feature18(AirlineManagement esql) {
-      try {
-         System.out.print("Please Enter Plane ID: ");
-         String planeID = in.readLine();
+      /*
+       * Applies the records as one batch, or one at a time when the batch
+       * fails.  A connection that stopped working fails the whole batch, so
+       * it is tried again; a record that fails on a working connection is
+       * moved to the dead letter file.
+       **/
+      private void applyRecords(Connection conn, List<String[]> records) throws SQLException {
+         List<String> statements = new ArrayList<String>();
+         for (String[] record : records) {
+            statements.add(statement(record));
+         }
+         try {
+            applyBatch(conn, statements);
+            return;
+         } catch (SQLException e) {
+            if (!isAlive(conn)) {
+               throw e;
+            }
+         }
+         for (String[] record : records) {
+            try {
+               try {
+                  applyBatch(conn, Collections.singletonList(statement(record)));
+               } catch (SQLException e) {
+                  if (!isAlive(conn) || record[6].equals("0") || !seatTaken(conn, record)) {
+                     throw e;
+                  }
+                  reseat(conn, record);
+               }
+            } catch (SQLException e) {
+               if (!isAlive(conn)) {
+                  throw e;
+               }
+               deadLetter(record, e.getMessage());
+            }
+         }
+      }
 
-         System.out.print("Please Enter Repair Code: ");
-         String repairCode = in.readLine();
+      /*
+       * Whether another reservation holds the seat of a journaled booking
+       **/
+      private boolean seatTaken(Connection conn, String[] record) throws SQLException {
+         List<List<String>> holders = this.esql.executeQueryAndReturnResult(conn, String.format(
+            "SELECT ReservationID FROM Reservation " +
+            "WHERE FlightInstanceID = %s AND FlightDate = '%s' AND SeatNumber = %s AND ReservationID <> '%s';",
+            record[2], record[4], record[6], record[0]));
+         conn.commit();
+         return !holders.isEmpty();
+      }
 
-         System.out.print("Please Enter Repair Date (YYYY-MM-DD): ");
-         String repairDate = in.readLine();
+      /*
+       * Writes a booking whose seat was taken with the lowest seat that is
+       * still free (seen the same way as getSeatMap sees them), or on the
+       * waitlist when none is left
+       **/
+      private void reseat(Connection conn, String[] record) throws SQLException {
+         int instanceID = Integer.parseInt(record[2]);
+         List<List<String>> counts = this.esql.executeQueryAndReturnResult(conn, String.format(
+            "SELECT SeatsTotal, SeatsSold FROM FlightInstance WHERE FlightInstanceID = %s AND FlightDate = '%s';",
+            record[2], record[4]));
+         List<List<String>> seated = this.esql.executeQueryAndReturnResult(conn, String.format(
+            "SELECT SeatNumber, Status FROM Reservation " +
+            "WHERE FlightInstanceID = %s AND FlightDate = '%s' AND SeatNumber IS NOT NULL;",
+            record[2], record[4]));
+         conn.commit();
+         if (counts.isEmpty()) {
+            throw new SQLException("Flight instance " + record[2] + " on " + record[4] + " is gone");
+         }
 
-         System.out.print("Please Enter Technician Id: ");
-         String technicianID = in.readLine();
+         List<Integer> taken = new ArrayList<Integer>();
+         int reservedWithSeat = 0;
+         for (List<String> row : seated) {
+            taken.add(Integer.parseInt(row.get(0).trim()));
+            if (row.get(1).trim().equals("reserved")) {
+               reservedWithSeat++;
+            }
+         }
+         taken.addAll(pendingSeatNumbers(instanceID));
+         int unassigned = Math.max(0, Integer.parseInt(counts.get(0).get(1).trim()) - reservedWithSeat);
+         int[] seat = new SeatMap(Integer.parseInt(counts.get(0).get(0).trim()), taken, unassigned).allocate(1);
 
-         //gets the current highest repair ID that is in the Repair table,
-         String getMaxIDQuery = "SELECT MAX(RepairID) FROM Repair;";
-         // run the query using executeQueryAndReturnResult, which returns a list of rows (each row is a list of strings)
-         //MAX(), there will only be one row with one value (the current max RepairID)
-         List<List<String>> resultList = esql.executeQueryAndReturnResult(getMaxIDQuery);
-         int newRepairID = 1; //default if empty
-         //if the table is not empty,then parse the RepairID and then increment it by 1
-         if (!resultList.isEmpty() && resultList.get(0).get(0) != null) {
-            newRepairID = Integer.parseInt(resultList.get(0).get(0)) + 1;
+         String[] booking = record.clone();
+         if (seat != null) {
+            booking[6] = Integer.toString(seat[0]);
+         } else {
+            booking[3] = "waitlist";
+            booking[6] = "0";
          }
+         applyBatch(conn, Collections.singletonList(statement(booking)));
+
+         String change = seat != null ? "seat " + SeatMap.label(seat[0]) : "the waitlist";
+         System.err.println("Journal: seat " + SeatMap.label(Integer.parseInt(record[6])) + " of reservation " + record[0] +
+            " was booked by another program, it was moved to " + change);
+         writeAside(this.moved, record[0] + "\t" + record[1] + "\t" + record[2] + "\t" + record[4] + "\t" +
+            SeatMap.label(Integer.parseInt(record[6])) + "\t" + (seat != null ? SeatMap.label(seat[0]) : "waitlist"));
+         this.esql._seatMaps.remove(instanceID);
+      }
 
-         String insertQuery = String.format(
-            "INSERT INTO Repair (RepairID, PlaneID, RepairCode, RepairDate, TechnicianID) " +
-            "VALUES (%d, '%s', '%s', '%s', '%s');",
-            newRepairID, planeID, repairCode, repairDate, technicianID);  
-         
-         esql.executeUpdate(insertQuery);
+      //only a repeat of the same ReservationID is skipped, a taken seat fails the insert (reservation_pkey is the
+      //primary key in both the plain and the partitioned schema, where it also holds FlightDate)
+      private static String statement(String[] record) {
+         String insert = String.format(
+            "INSERT INTO Reservation (ReservationID, CustomerID, FlightInstanceID, Status, FlightDate, SeatNumber) " +
+            "VALUES ('%s', %s, %s, '%s', '%s', %s) ON CONFLICT ON CONSTRAINT reservation_pkey DO NOTHING",
+            record[0], record[1], record[2], record[3], record[4], record[6].equals("0") ? "NULL" : record[6]);
+         //only a reservation that was actually inserted adds its seat, so applying a record twice changes nothing
+         return !record[3].equals("reserved") ? insert :
+            "WITH ins AS (" + insert + " RETURNING FlightInstanceID, FlightDate) " +
+            "UPDATE FlightInstance SET SeatsSold = SeatsSold + 1 " +
+            "WHERE (FlightInstanceID, FlightDate) IN (SELECT FlightInstanceID, FlightDate FROM ins)";
+      }
 
-         System.out.println("The repair entry was added successfully with the RepairID: " + newRepairID);
+      private static boolean isAlive(Connection conn) {
+         try {
+            Statement stmt = conn.createStatement();
+            try {
+               stmt.executeQuery("SELECT 1;");
+               conn.commit();
+            } finally {
+               stmt.close();
+            }
+            return true;
+         } catch (SQLException e) {
+            return false;
+         }
+      }
 
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
-      } 
-   }
+      /*
+       * Sets a booking the database won't take aside with its error, so the journal can move past it
+       **/
+      private void deadLetter(String[] record, String error) {
+         System.err.println("Journal: reservation " + record[0] + " could not be written and was moved to " +
+            this.deadLetters + ": " + error);
+         writeAside(this.deadLetters, String.join("\t", Arrays.copyOf(record, 7)) + "\t" + String.valueOf(error).replace('\n', ' '));
+         //the seat map handed this booking a seat the table will never show
+         this.esql._seatMaps.remove(Integer.parseInt(record[2]));
+      }
 
-   //given the CustomerID, show all reservations (both the past and the present) for that customer
-   //using the Reservations Table and FlightInstance Table
-   public static void feature19(AirlineManagement esql) {
-      try {
-         System.out.print("Please enter your CustomerID: ");
-         String customerID = in.readLine();
-         
-         String query = String.format(
-            "SELECT R.ReservationID, FI.FlightNumber, FI.FlightDate, F.DepartureCity, F.ArrivalCity, R.Status " +
-            "FROM Reservation R " +
-            "JOIN FlightInstance FI ON R.FlightInstanceID = FI.FlightInstanceID " +
-            "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
-            "WHERE R.CustomerID = '%s' " +
-            "ORDER BY FI.FlightDate ASC;",
-            customerID);
-            
-         int rowCount = esql.executeQueryAndPrintResult(query);
-         
-         if (rowCount == 0) {
-            System.out.println("No reservations found for this Customer ID.");
+      private static void writeAside(File file, String line) {
+         try {
+            PrintWriter out = new PrintWriter(new FileWriter(file, true));
+            try {
+               out.println(line);
+            } finally {
+               out.close();
+            }
+         } catch (IOException e) {
+            System.err.println("Journal: unable to write " + file + ": " + e.getMessage());
          }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
       }
-   }
 
-   //listing the top 5 popular flights (using number of reservations)
-   //using Flight Table, FlightInstance Table, and Reservation Table
-   public static void feature21(AirlineManagement esql) {
-      try {
-         String query =
-            "SELECT F.FlightNumber, COUNT(*) AS NumReservations " +
-            "FROM Reservation R " +
-            "JOIN FlightInstance FI ON R.FlightInstanceID = FI.FlightInstanceID " +
-            "JOIN Flight F ON FI.FlightNumber = F.FlightNumber " +
-            "GROUP BY F.FlightNumber " +
-            "ORDER BY NumReservations DESC " +
-            "LIMIT 5;";
+      private static void applyBatch(Connection conn, List<String> statements) throws SQLException {
+         Statement stmt = conn.createStatement();
+         try {
+            for (String sql : statements) {
+               stmt.addBatch(sql);
+            }
+            stmt.executeBatch();
+            conn.commit();
+         } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+         } finally {
+            stmt.close();
+         }
+      }
 
-         int rowCount = esql.executeQueryAndPrintResult(query);
+      /*
+       * Reads up to max valid records between two offsets, each returned with
+       * the offset just past it as an eighth field
+       **/
+      private List<String[]> read(int from, int to, int max) {
+         List<String[]> records = new ArrayList<String[]>();
+         ByteBuffer buffer = this.map.duplicate();
+         int offset = from;
+         while (records.size() < max && offset + RECORD_HEADER_SIZE <= to) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > to) {
+               break;
+            }
+            byte[] payload = new byte[length];
+            buffer.position(offset + RECORD_HEADER_SIZE);
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+               break;
+            }
+            offset += RECORD_HEADER_SIZE + length;
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split("\t");
+            //records written before seat numbers have six fields
+            records.add(new String[] { fields[0], fields[1], fields[2], fields[3], fields[4], fields[5],
+               fields.length > 6 ? fields[6] : "0", Integer.toString(offset) });
+         }
+         return records;
+      }
 
-         if (rowCount == 0) {
-            System.out.println("There are no reservations found to determine popular flights.");
-         } else {
-            System.out.println("Of Course! Here are the top 5 most popular flights based on reservations!");
+      private void addPending(String[] record, int seats) {
+         if (record[3].equals("reserved")) {
+            this.pendingSeats.merge(Integer.parseInt(record[2]), seats, Integer::sum);
+            this.pendingSeats.remove(Integer.parseInt(record[2]), 0);
          }
-      } catch (Exception e) {
-         System.err.println(e.getMessage());
       }
-   }
 
-   //this feature lists the maintenance staff's work (number of repairs per Technician)
-   //Using Repairs Table
-   public static void feature22(AirlineManagement esql) {
-      try {
-         String query =
-            "SELECT TechnicianID, COUNT(*) AS RepairCount " +
-            "FROM Repair " +
-            "GROUP BY TechnicianID " +
-            "ORDER BY RepairCount DESC;";
-         int rowCount = esql.executeQueryAndPrintResult(query);
-         if (rowCount == 0) {
-            System.out.println("No repair records found.");
-         } else {
-            System.out.println("Technicians ranked by number of repairs completed.");
+      // a zero length after the last record marks the end for the startup scan
+      private void clearNext() {
+         if (this.writeOffset + 4 <= this.map.capacity()) {
+            this.map.putInt(this.writeOffset, 0);
+         }
+      }
+
+      // the header is forced with the next booking, or on close; until then a restart only repeats some inserts
+      private void writeHeader() {
+         this.map.putLong(0, this.flushedOffset);
+      }
+
+      /**
+       * Writes the remaining bookings to the database and closes the journal.
+       */
+      void close() {
+         synchronized (this) {
+            this.running = false;
+            notifyAll();
+         }
+         try {
+            this.writer.join();
+            this.map.force();
+            this.channel.close();
+            this.connection.close();
+         } catch (Exception e) {
+            System.err.println(e.getMessage());
          }
-      } catch (Exception e) {
-        System.err.println(e.getMessage());
       }
    }
 
@@ -0,0 +1,368 @@
+/*
+ * Synthetic Data Generator
+ * ========================
+ *
+ * Writes the data/ CSV files (Plane, Flight, Schedule, FlightInstance,
+ * Customer, Reservation, Technician, Repair, Pilot, MaintenanceRequest) at
+ * any scale, so the database can be loaded with far more rows than the
+ * sample set.  The same seed and scale always give the same files.
+ *
+ * Scale 1 is about 1 million reservations: 20 flights flown every day for a
+ * year, 100,000 customers, 10 planes.  Every count grows with the scale.
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class DataGenerator {
+
+   // sizes at scale 1
+   private static final int FLIGHTS_PER_SCALE = 20;
+   private static final int CUSTOMERS_PER_SCALE = 100000;
+   private static final int PLANES_PER_SCALE = 10;
+   private static final int PILOTS_PER_SCALE = 10;
+   private static final int TECHNICIANS_PER_SCALE = 5;
+   private static final int DAYS = 365;
+   private static final int REPAIRS_PER_PLANE = 12;
+   private static final int REQUESTS_PER_PLANE = 12;
+
+   // first day of the generated flights
+   private static final LocalDate START_DATE = LocalDate.of(2025, 1, 1);
+
+   // rows handed to one worker at a time, each piece is written to its own part file
+   private static final int CUSTOMERS_PER_PART = 50000;
+   private static final int FLIGHTS_PER_PART = 5;
+
+   private static final String[] CITIES = {
+      "New York", "Los Angeles", "Chicago", "Dallas", "Atlanta", "Miami", "San Francisco", "Seattle",
+      "Denver", "Boston", "Las Vegas", "Phoenix", "Houston", "Orlando", "Charlotte", "Minneapolis",
+      "Detroit", "Philadelphia", "Salt Lake City", "Portland", "San Diego", "Nashville", "Austin", "Honolulu"};
+   private static final String[][] PLANE_TYPES = {
+      {"Boeing", "737"}, {"Airbus", "A320"}, {"Boeing", "787"}, {"Embraer", "E175"}, {"Airbus", "A321"}, {"Boeing", "777"}};
+   private static final int[] PLANE_SEATS = {180, 180, 250, 80, 200, 300};
+   private static final String[] DAYS_OF_WEEK = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+   private static final String[] FIRST_NAMES = {
+      "Margaret", "Peter", "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda",
+      "David", "Elizabeth", "William", "Susan", "Richard", "Jessica", "Joseph", "Sarah", "Thomas", "Karen"};
+   private static final String[] LAST_NAMES = {
+      "Hawkins", "Callahan", "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+      "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore"};
+   private static final String[] STREETS = {"Lewis Parks", "Rice Plaza", "Oak Street", "Maple Avenue", "Cedar Lane", "Hill Road"};
+   private static final String[] STATES = {"CA", "NY", "TX", "FL", "WA", "IL", "GA", "CO", "MA", "NV"};
+
+   private final File outputDir;
+   private final long seed;
+   private final int flights;
+   private final int customers;
+   private final int planes;
+   private final int pilots;
+   private final int technicians;
+
+   public DataGenerator(File outputDir, double scale, long seed) {
+      this.outputDir = outputDir;
+      this.seed = seed;
+      this.flights = Math.max(1, (int) Math.round(FLIGHTS_PER_SCALE * scale));
+      this.customers = Math.max(1, (int) Math.round(CUSTOMERS_PER_SCALE * scale));
+      this.planes = Math.max(1, (int) Math.round(PLANES_PER_SCALE * scale));
+      this.pilots = Math.max(1, (int) Math.round(PILOTS_PER_SCALE * scale));
+      this.technicians = Math.max(1, (int) Math.round(TECHNICIANS_PER_SCALE * scale));
+   }
+
+   /**
+    * The main execution method
+    *
+    * @param args the command line arguments: <output directory> <scale> [seed]
+    */
+   public static void main (String[] args) {
+      if (args.length < 2) {
+         System.err.println (
+            "Usage: " +
+            "java [-classpath <classpath>] " +
+            DataGenerator.class.getName () +
+            " <output directory> <scale> [seed]");
+         return;
+      }//end if
+
+      try {
+         File outputDir = new File(args[0]);
+         outputDir.mkdirs();
+         double scale = Double.parseDouble(args[1]);
+         long seed = args.length > 2 ? Long.parseLong(args[2]) : 166;
+
+         long start = System.currentTimeMillis();
+         new DataGenerator(outputDir, scale, seed).generate();
+         System.out.println("Done in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds");
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }//end main
+
+   /*
+    * Writes every table.  The small tables are written straight away, the
+    * big ones (Customer, FlightInstance, Reservation) are split into pieces
+    * that run in parallel and are joined together at the end.
+    **/
+   public void generate() throws Exception {
+      writePlanes();
+      writeFlightsAndSchedules();
+      writePeople("Pilot", "PilotID,Name", "P", this.pilots);
+      writePeople("Technician", "TechnicianID,Name", "T", this.technicians);
+      writeRepairsAndRequests();
+
+      ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+         List<Future<File[]>> customerParts = new ArrayList<Future<File[]>>();
+         for (int from = 0; from < this.customers; from += CUSTOMERS_PER_PART) {
+            final int first = from;
+            final int last = Math.min(this.customers, from + CUSTOMERS_PER_PART);
+            customerParts.add(pool.submit(() -> new File[] {writeCustomers(first, last)}));
+         }
+
+         List<Future<File[]>> flightParts = new ArrayList<Future<File[]>>();
+         for (int from = 0; from < this.flights; from += FLIGHTS_PER_PART) {
+            final int first = from;
+            final int last = Math.min(this.flights, from + FLIGHTS_PER_PART);
+            flightParts.add(pool.submit(() -> writeInstancesAndReservations(first, last)));
+         }
+
+         join("Customer", "CustomerID,FirstName,LastName,Gender,DOB,Address,Phone,Zip", customerParts, 0);
+         join("FlightInstance", "FlightInstanceID,FlightNumber,FlightDate,DepartedOnTime,ArrivedOnTime,SeatsTotal,SeatsSold,NumOfStops,TicketCost", flightParts, 0);
+         join("Reservation", "ReservationID,CustomerID,FlightInstanceID,Status", flightParts, 1);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   private void writePlanes() throws IOException {
+      Random random = random("Plane", 0);
+      Writer out = open(new File(this.outputDir, "Plane.csv"));
+      try {
+         out.write("PlaneID,Make,Model,Year,LastRepairDate\n");
+         for (int p = 0; p < this.planes; p++) {
+            String[] type = PLANE_TYPES[p % PLANE_TYPES.length];
+            out.write(planeID(p) + "," + type[0] + "," + type[1] + "," + (1995 + random.nextInt(30)) + ","
+               + START_DATE.plusDays(random.nextInt(DAYS)) + "\n");
+         }
+      } finally {
+         out.close();
+      }
+   }
+
+   /*
+    * Routes are skewed toward the first cities in the list, so a few city pairs get most of the flights
+    **/
+   private void writeFlightsAndSchedules() throws IOException {
+      Random random = random("Flight", 0);
+      Writer flightOut = open(new File(this.outputDir, "Flight.csv"));
+      Writer scheduleOut = open(new File(this.outputDir, "Schedule.csv"));
+      try {
+         flightOut.write("FlightNumber,PlaneID,DepartureCity,ArrivalCity\n");
+         scheduleOut.write("ScheduleID,FlightNumber,DayOfWeek,DepartureTime,ArrivalTime\n");
+         int scheduleID = 1;
+         for (int f = 0; f < this.flights; f++) {
+            int from = skewed(random, CITIES.length);
+            int to = skewed(random, CITIES.length - 1);
+            if (to >= from) {
+               to++;
+            }
+            flightOut.write(flightNumber(f) + "," + planeID(f % this.planes) + "," + CITIES[from] + "," + CITIES[to] + "\n");
+
+            int hours = 1 + random.nextInt(6);
+            for (String day : DAYS_OF_WEEK) {
+               int departure = 6 + random.nextInt(14);
+               scheduleOut.write(scheduleID++ + "," + flightNumber(f) + "," + day + "," + departure + ":00,"
+                  + (departure + hours) % 24 + ":00\n");
+            }
+         }
+      } finally {
+         flightOut.close();
+         scheduleOut.close();
+      }
+   }
+
+   private void writePeople(String table, String header, String prefix, int count) throws IOException {
+      Random random = random(table, 0);
+      Writer out = open(new File(this.outputDir, table + ".csv"));
+      try {
+         out.write(header + "\n");
+         for (int i = 0; i < count; i++) {
+            out.write(String.format("%s%04d,%s %s\n", prefix, i + 1,
+               FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], LAST_NAMES[random.nextInt(LAST_NAMES.length)]));
+         }
+      } finally {
+         out.close();
+      }
+   }
+
+   private void writeRepairsAndRequests() throws IOException {
+      Random random = random("Repair", 0);
+      Writer repairOut = open(new File(this.outputDir, "Repair.csv"));
+      Writer requestOut = open(new File(this.outputDir, "MaintenanceRequest.csv"));
+      try {
+         repairOut.write("RepairID,PlaneID,RepairCode,RepairDate,TechnicianID\n");
+         requestOut.write("RequestID,PlaneID,RepairCode,RequestDate,PilotID\n");
+         int repairID = 1;
+         int requestID = 1;
+         for (int p = 0; p < this.planes; p++) {
+            for (int i = 0; i < REQUESTS_PER_PLANE; i++) {
+               int day = random.nextInt(DAYS - 30);
+               String code = String.format("RC%03d", 1 + random.nextInt(20));
+               requestOut.write(requestID++ + "," + planeID(p) + "," + code + "," + START_DATE.plusDays(day) + ","
+                  + String.format("P%04d", 1 + random.nextInt(this.pilots)) + "\n");
+               // most requests are repaired within a month, the rest stay open
+               if (i < REPAIRS_PER_PLANE && random.nextInt(10) < 8) {
+                  repairOut.write(repairID++ + "," + planeID(p) + "," + code + "," + START_DATE.plusDays(day + 1 + random.nextInt(29)) + ","
+                     + String.format("T%04d", 1 + random.nextInt(this.technicians)) + "\n");
+               }
+            }
+         }
+      } finally {
+         repairOut.close();
+         requestOut.close();
+      }
+   }
+
+   private File writeCustomers(int first, int last) throws IOException {
+      Random random = random("Customer", first);
+      File part = new File(this.outputDir, "Customer.csv.part" + first);
+      Writer out = open(part);
+      try {
+         for (int c = first; c < last; c++) {
+            out.write((c + 1) + "," + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + "," + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + ","
+               + (random.nextBoolean() ? "M" : "F") + "," + LocalDate.of(1940, 1, 1).plusDays(random.nextInt(65 * 365)) + ","
+               + "\"" + (1 + random.nextInt(9999)) + " " + STREETS[random.nextInt(STREETS.length)] + ", "
+               + CITIES[random.nextInt(CITIES.length)] + ", " + STATES[random.nextInt(STATES.length)] + "\","
+               + String.format("%03d.%03d.%04d", 200 + random.nextInt(800), random.nextInt(1000), random.nextInt(10000)) + ","
+               + String.format("%05d", random.nextInt(100000)) + "\n");
+         }
+      } finally {
+         out.close();
+      }
+      return part;
+   }
+
+   /*
+    * Writes a year of daily instances for some flights and the reservations on them.
+    * SeatsSold is the number of reserved rows written, so the two tables agree.
+    * Low flight numbers are the hot routes: they sell out more often and cost more.
+    **/
+   private File[] writeInstancesAndReservations(int first, int last) throws IOException {
+      Random random = random("FlightInstance", first);
+      File instancePart = new File(this.outputDir, "FlightInstance.csv.part" + first);
+      File reservationPart = new File(this.outputDir, "Reservation.csv.part" + first);
+      Writer instanceOut = open(instancePart);
+      Writer reservationOut = open(reservationPart);
+      try {
+         for (int f = first; f < last; f++) {
+            int seatsTotal = PLANE_SEATS[(f % this.planes) % PLANE_TYPES.length];
+            double popularity = 1.0 - 0.5 * f / Math.max(1, this.flights - 1);
+            int stops = random.nextInt(3);
+            double baseCost = 100 + random.nextInt(400) + 200 * popularity;
+            for (int d = 0; d < DAYS; d++) {
+               int instanceID = f * DAYS + d + 1;
+               double load = Math.min(1.0, popularity * (0.6 + 0.5 * random.nextDouble()));
+               int seatsSold = (int) (seatsTotal * load);
+               int waitlist = seatsSold == seatsTotal ? random.nextInt(10) : 0;
+               instanceOut.write(instanceID + "," + flightNumber(f) + "," + START_DATE.plusDays(d) + ","
+                  + (random.nextInt(10) < 8 ? 1 : 0) + "," + (random.nextInt(10) < 8 ? 1 : 0) + ","
+                  + seatsTotal + "," + seatsSold + "," + stops + ","
+                  + cost(baseCost * (0.9 + 0.2 * random.nextDouble())) + "\n");
+
+               // ReservationIDs are R, the instance ID and the seat number, so they are unique without a shared counter
+               String status = d < DAYS / 2 ? "flown" : "reserved";
+               String prefix = "R" + instanceID + "-";
+               StringBuilder rows = new StringBuilder();
+               for (int r = 0; r < seatsSold + waitlist; r++) {
+                  rows.append(prefix).append(r).append(',').append(skewed(random, this.customers) + 1).append(',')
+                     .append(instanceID).append(',').append(r < seatsSold ? status : "waitlist").append('\n');
+               }
+               reservationOut.write(rows.toString());
+            }
+         }
+      } finally {
+         instanceOut.close();
+         reservationOut.close();
+      }
+      return new File[] {instancePart, reservationPart};
+   }
+
+   /*
+    * Writes the header and then copies the part files in order into one CSV file, deleting them after
+    **/
+   private void join(String table, String header, List<Future<File[]>> parts, int which) throws Exception {
+      File target = new File(this.outputDir, table + ".csv");
+      FileOutputStream out = new FileOutputStream(target);
+      try {
+         out.write((header + "\n").getBytes(StandardCharsets.UTF_8));
+         FileChannel channel = out.getChannel();
+         for (Future<File[]> future : parts) {
+            File part = future.get()[which];
+            FileInputStream in = new FileInputStream(part);
+            try {
+               FileChannel partChannel = in.getChannel();
+               long position = 0;
+               long size = partChannel.size();
+               while (position < size) {
+                  position += partChannel.transferTo(position, size - position, channel);
+               }
+            } finally {
+               in.close();
+            }
+            part.delete();
+         }
+      } finally {
+         out.close();
+      }
+      System.out.println("Wrote " + target.getPath());
+   }
+
+   /*
+    * Each table and piece gets its own Random from the seed, so the output doesn't depend on thread timing
+    **/
+   private Random random(String table, int piece) {
+      return new Random(this.seed * 31 + table.hashCode() * 1000003L + piece);
+   }
+
+   //picks 0..n-1 with low numbers much more likely (a power law), used for hot cities and frequent flyers
+   private static int skewed(Random random, int n) {
+      double u = random.nextDouble();
+      return Math.min(n - 1, (int) (n * u * u * u));
+   }
+
+   //formats a cost with two decimals without going through the locale
+   private static String cost(double value) {
+      long cents = Math.round(value * 100);
+      return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+   }
+
+   private static String planeID(int p) {
+      return String.format("PL%03d", p + 1);
+   }
+
+   private static String flightNumber(int f) {
+      return "F" + (100 + f);
+   }
+
+   private static Writer open(File file) throws IOException {
+      return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 20);
+   }
+
+} //end DataGenerator
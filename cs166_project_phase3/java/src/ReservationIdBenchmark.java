@@ -0,0 +1,106 @@
+/*
+ * ReservationID Benchmark
+ * =======================
+ *
+ * Compares the old random ReservationIDs ("R" + 8 characters of a UUID)
+ * with the time ordered ones from AirlineManagement.ReservationIdGenerator.
+ * Each scheme inserts the same number of rows into its own copy of the
+ * Reservation table, then the insert rate and the size of the primary key
+ * index are printed.  The copies are dropped at the end.
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+
+import java.sql.DriverManager;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+public class ReservationIdBenchmark {
+
+   // rows sent per batch and committed together
+   private static final int BATCH_SIZE = 1000;
+
+   /**
+    * The main execution method
+    *
+    * @param args the command line arguments: <dbname> <port> <user> [rows]
+    */
+   public static void main (String[] args) {
+      if (args.length < 3) {
+         System.err.println (
+            "Usage: " +
+            "java [-classpath <classpath>] " +
+            ReservationIdBenchmark.class.getName () +
+            " <dbname> <port> <user> [rows]");
+         return;
+      }//end if
+
+      int rows = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+      Connection conn = null;
+      try {
+         // use postgres JDBC driver, the bundled jar has to be loaded by name to register it
+         Class.forName ("org.postgresql.Driver");
+
+         String url = "jdbc:postgresql://localhost:" + args[1] + "/" + args[0];
+         conn = DriverManager.getConnection(url, args[2], "");
+
+         System.out.println("Inserting " + rows + " reservations with each ID scheme\n");
+         System.out.println("Scheme\tRows/sec\tIndex Size");
+         run(conn, "ReservationBenchRandom", rows, false);
+         run(conn, "ReservationBenchOrdered", rows, true);
+      } catch (Exception e) {
+         System.err.println(e.getMessage());
+      } finally {
+         try {
+            if (conn != null) {
+               conn.close();
+            }
+         } catch (SQLException e) {
+            // ignored.
+         }
+      }
+   }//end main
+
+   /*
+    * Creates a copy of the Reservation table, fills it with one ID scheme, prints the result, and drops it
+    **/
+   private static void run(Connection conn, String table, int rows, boolean ordered) throws SQLException {
+      Statement stmt = conn.createStatement();
+      stmt.executeUpdate("DROP TABLE IF EXISTS " + table + ";");
+      stmt.executeUpdate("CREATE TABLE " + table + " (" +
+         "ReservationID TEXT PRIMARY KEY, " +
+         "CustomerID INTEGER, " +
+         "FlightInstanceID INTEGER, " +
+         "Status TEXT);");
+
+      AirlineManagement.ReservationIdGenerator ids = new AirlineManagement.ReservationIdGenerator(0);
+      conn.setAutoCommit(false);
+      long start = System.nanoTime();
+      for (int i = 0; i < rows; i++) {
+         String id = ordered ? ids.next() : "R" + UUID.randomUUID().toString().substring(0, 8);
+         // ON CONFLICT skips the rare repeat of a random ID instead of failing the batch
+         stmt.addBatch(String.format(
+            "INSERT INTO %s VALUES ('%s', %d, %d, 'reserved') ON CONFLICT DO NOTHING;",
+            table, id, i % 500 + 1, i % 240 + 1));
+         if ((i + 1) % BATCH_SIZE == 0 || i == rows - 1) {
+            stmt.executeBatch();
+            conn.commit();
+         }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      conn.setAutoCommit(true);
+
+      ResultSet rs = stmt.executeQuery("SELECT pg_size_pretty(pg_relation_size('" + table.toLowerCase() + "_pkey'));");
+      String indexSize = rs.next() ? rs.getString(1) : "?";
+      System.out.println((ordered ? "ordered" : "random") + "\t" + Math.round(rows / seconds) + "\t" + indexSize);
+
+      stmt.executeUpdate("DROP TABLE " + table + ";");
+      stmt.close();
+   }
+
+} //end ReservationIdBenchmark
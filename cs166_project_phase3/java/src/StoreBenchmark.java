@@ -0,0 +1,162 @@
+/*
+ * Store Benchmark
+ * ===============
+ *
+ * Runs the booking (feature 14) and repair (feature 18) menu features on
+ * the in-memory store loaded from the CSV files of data/, typing their
+ * input the way a user would.  The first booking and repair are checked
+ * against the store's reports (the seats sold go up, the repair shows in
+ * the plane's history), then the features are timed and the bookings and
+ * repairs per second are printed.  Nothing is written to the CSV files.
+ *
+ * No DBMS needed.
+ *
+ */
+
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StoreBenchmark {
+
+   // the date the benchmark's repairs are recorded on
+   private static final String REPAIR_DATE = "2025-06-30";
+
+   /**
+    * The main execution method
+    *
+    * @param args the command line arguments: <data directory> [iterations]
+    */
+   public static void main (String[] args) {
+      if (args.length < 1) {
+         System.err.println (
+            "Usage: " +
+            "java [-classpath <classpath>] " +
+            StoreBenchmark.class.getName () +
+            " <data directory> [iterations]");
+         return;
+      }//end if
+
+      int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+      PrintStream console = System.out;
+      try {
+         File dir = new File(args[0]);
+         AirlineManagement.MemoryStore store = new AirlineManagement.MemoryStore(dir);
+         AirlineManagement esql = new AirlineManagement(store);
+         List<List<String>> instances = firstColumns(dir, "FlightInstance", 3);
+         List<List<String>> planes = firstColumns(dir, "Plane", 1);
+         List<List<String>> technicians = firstColumns(dir, "Technician", 1);
+         // the customers of Customer.csv are numbered from 1
+         int customers = store.nextCustomerID() - 1;
+         String customerID = Integer.toString(customers);
+
+         // the features print to the screen, which is kept for the checks instead
+         ByteArrayOutputStream screen = new ByteArrayOutputStream();
+         System.setOut(new PrintStream(screen, true));
+
+         List<String> instance = instances.get(0);
+         int soldBefore = seatsSold(store, instance);
+         int reservationsBefore = store.customerReservations(customerID).size();
+         book(esql, customerID, instance.get(0), 2);
+         String planeID = planes.get(0).get(0);
+         String technicianID = technicians.get(0).get(0);
+         int repairsBefore = store.technicianRepairs(technicianID).size();
+         repair(esql, planeID, "RC-BENCH", technicianID);
+         System.setOut(console);
+
+         String output = screen.toString();
+         check(output.contains("Your Reservation ID is"), "the booking was not confirmed: " + output);
+         check(store.customerReservations(customerID).size() == reservationsBefore + 2, "the customer does not have the 2 new reservations");
+         check(output.contains("waitlisted") || seatsSold(store, instance) == soldBefore + 2, "the seats sold did not go up by 2");
+         check(output.contains("The repair entry was added successfully"), "the repair was not added: " + output);
+         check(store.technicianRepairs(technicianID).size() == repairsBefore + 1, "the technician does not have the new repair");
+         check(store.planeRepairs(planeID, REPAIR_DATE, REPAIR_DATE).toString().contains("RC-BENCH"), "the repair is not in the plane's history");
+         System.out.println("Checks passed\n");
+
+         System.out.println("Feature\tRuns\tRuns/sec");
+         // only the time is measured from here
+         System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+         long start = System.nanoTime();
+         for (int i = 0; i < iterations; i++) {
+            book(esql, Integer.toString(i % customers + 1), instances.get(i % instances.size()).get(0), i % 6 + 1);
+         }
+         double bookSeconds = (System.nanoTime() - start) / 1e9;
+         start = System.nanoTime();
+         for (int i = 0; i < iterations; i++) {
+            repair(esql, planes.get(i % planes.size()).get(0), "RC" + (i % 1000),
+               technicians.get(i % technicians.size()).get(0));
+         }
+         double repairSeconds = (System.nanoTime() - start) / 1e9;
+         System.setOut(console);
+         System.out.println("book\t" + iterations + "\t" + Math.round(iterations / bookSeconds));
+         System.out.println("repair\t" + iterations + "\t" + Math.round(iterations / repairSeconds));
+      } catch (Exception e) {
+         System.setOut(console);
+         System.err.println(e.getMessage());
+      }
+   }//end main
+
+   /*
+    * Books a party on a flight instance through feature 14
+    **/
+   private static void book(AirlineManagement esql, String customerID, String flightInstanceID, int partySize) {
+      AirlineManagement.in = new BufferedReader(new StringReader(
+         customerID + "\n" + flightInstanceID + "\n" + partySize + "\n"));
+      AirlineManagement.feature14(esql);
+   }
+
+   /*
+    * Records a repair through feature 18
+    **/
+   private static void repair(AirlineManagement esql, String planeID, String repairCode, String technicianID) {
+      AirlineManagement.in = new BufferedReader(new StringReader(
+         planeID + "\n" + repairCode + "\n" + REPAIR_DATE + "\n" + technicianID + "\n"));
+      AirlineManagement.feature18(esql);
+   }
+
+   /*
+    * SeatsSold of a flight instance (FlightInstanceID, FlightNumber, FlightDate) from feature 2's report
+    **/
+   private static int seatsSold(AirlineManagement.MemoryStore store, List<String> instance) throws Exception {
+      return Integer.parseInt(store.seats(instance.get(1), instance.get(2)).get(0).get(1));
+   }
+
+   private static void check(boolean passed, String message) {
+      if (!passed) {
+         throw new IllegalStateException("Check failed: " + message);
+      }
+   }
+
+   /*
+    * The first columns of each row of a table's CSV file, after the header
+    **/
+   private static List<List<String>> firstColumns(File dir, String table, int columns) throws IOException {
+      List<List<String>> rows = new ArrayList<List<String>>();
+      BufferedReader reader = new BufferedReader(new FileReader(new File(dir, table + ".csv")));
+      try {
+         String line = reader.readLine();
+         while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(",", columns + 1);
+            if (fields.length >= columns) {
+               List<String> row = new ArrayList<String>();
+               for (int i = 0; i < columns; i++) {
+                  row.add(fields[i]);
+               }
+               rows.add(row);
+            }
+         }
+      } finally {
+         reader.close();
+      }
+      return rows;
+   }
+
+} //end StoreBenchmark
@@ -0,0 +1,246 @@
+/*
+ * Store Test
+ * ==========
+ *
+ * Runs the menu features on the in-memory store loaded from the CSV files
+ * of data/, typing their input the way a user would, and checks what they
+ * change: a booking raises the seats sold, the popular flights and the
+ * customer's reservations, a repair moves the plane's LastRepairDate
+ * forward (never back), a user name can't be taken twice, the board, fare
+ * calendar and maintenance backlog come from the store, and the features
+ * that need the database say so without touching their files.
+ *
+ * No DBMS needed.
+ *
+ */
+
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+public class StoreTest {
+
+   private static int passed = 0;
+   private static int failed = 0;
+
+   /**
+    * The main execution method
+    *
+    * @param args the command line arguments: <data directory>
+    */
+   public static void main (String[] args) {
+      if (args.length < 1) {
+         System.err.println (
+            "Usage: " +
+            "java [-classpath <classpath>] " +
+            StoreTest.class.getName () +
+            " <data directory>");
+         return;
+      }//end if
+
+      PrintStream console = System.out;
+      try {
+         // the customer directory of feature 24 goes to a file of its own, which must be left alone
+         File directoryFile = File.createTempFile("customers", ".dir");
+         directoryFile.deleteOnExit();
+         System.setProperty("airline.customerdir", directoryFile.getPath());
+
+         File dir = new File(args[0]);
+         AirlineManagement.MemoryStore store = new AirlineManagement.MemoryStore(dir);
+         AirlineManagement esql = new AirlineManagement(store);
+
+         testBooking(esql, store);
+         testRepair(esql, store);
+         testDuplicateUserName(esql, store);
+         testBoard(esql, store);
+         testFareCalendar(esql);
+         testBacklog(esql);
+         testNeedsDatabase(esql, directoryFile);
+      } catch (Exception e) {
+         System.setOut(console);
+         System.err.println(e.getMessage());
+         failed++;
+      }
+      System.setOut(console);
+      System.out.println(passed + " passed, " + failed + " failed");
+      if (failed > 0) {
+         System.exit(1);
+      }
+   }//end main
+
+   /*
+    * Feature 14 books 3 seats on F100 of 5/5/25 (instance 1) for customer 1
+    **/
+   private static void testBooking(AirlineManagement esql, AirlineManagement.MemoryStore store) throws Exception {
+      int soldBefore = seatsSold(store, "F100", "2025-05-05");
+      int reservationsBefore = store.customerReservations("1").size();
+      int popularBefore = reservationsOf(store.popularFlights(1000), "F100");
+
+      String output = run("1\n1\n3\n", () -> AirlineManagement.feature14(esql));
+      check(output.contains("Your Reservation ID is"), "feature 14 confirms the booking");
+      check(seatsSold(store, "F100", "2025-05-05") == soldBefore + 3, "feature 14 raises the seats sold by the party size");
+      check(reservationsOf(store.popularFlights(1000), "F100") == popularBefore + 3, "feature 14 counts the reservations in the popular flights");
+      check(store.customerReservations("1").size() == reservationsBefore + 3, "feature 14 adds the reservations to the customer's");
+
+      output = run("1\n", () -> AirlineManagement.feature19(esql));
+      check(count(output, "F100") >= 3, "feature 19 lists the new reservations");
+
+      output = run("999999\n1\n1\n", () -> AirlineManagement.feature14(esql));
+      check(!output.contains("Your Reservation ID is"), "feature 14 turns away an unknown customer");
+   }
+
+   /*
+    * Feature 18 records repairs on PL001, whose LastRepairDate is 2025-05-01 in Plane.csv
+    **/
+   private static void testRepair(AirlineManagement esql, AirlineManagement.MemoryStore store) throws Exception {
+      String output = run("PL001\nRC-TEST\n2025-07-15\nT001\n", () -> AirlineManagement.feature18(esql));
+      check(output.contains("The repair entry was added successfully"), "feature 18 adds the repair");
+      check("2025-07-15".equals(lastRepairDate(store, "PL001")), "feature 18 moves LastRepairDate forward");
+
+      run("PL001\nRC-TEST\n2025-06-01\nT001\n", () -> AirlineManagement.feature18(esql));
+      check("2025-07-15".equals(lastRepairDate(store, "PL001")), "an older repair leaves LastRepairDate where it is");
+      check(store.technicianRepairs("T001").toString().contains("2025-06-01"), "the older repair is still recorded");
+
+      output = run("PL999\nRC-TEST\n2025-07-15\nT001\n", () -> AirlineManagement.feature18(esql));
+      check(!output.contains("The repair entry was added successfully"), "feature 18 turns away an unknown plane");
+   }
+
+   /*
+    * CreateUser asks again for a user name that is taken
+    **/
+   private static void testDuplicateUserName(AirlineManagement esql, AirlineManagement.MemoryStore store) throws Exception {
+      String output = run("Pilot\nstoretest\nSecret!1\nP001\n", () -> AirlineManagement.CreateUser(esql));
+      check(store.userNameTaken("storetest"), "CreateUser adds the user");
+      check(!output.contains("already taken"), "a new user name is accepted");
+
+      output = run("Pilot\nstoretest\nstoretest2\nSecret!1\nP001\n", () -> AirlineManagement.CreateUser(esql));
+      check(output.contains("This username is already taken."), "CreateUser rejects a user name that is taken");
+      check(store.userNameTaken("storetest2"), "CreateUser takes the next user name typed");
+   }
+
+   /*
+    * Feature 4 shows the flights of 5/5/25 from the store, with the seats booked above
+    **/
+   private static void testBoard(AirlineManagement esql, AirlineManagement.MemoryStore store) throws Exception {
+      List<List<String>> board = store.board(LocalDate.of(2025, 5, 5));
+      check(!board.isEmpty(), "the board has the flights of the day");
+      List<String> f100 = null;
+      for (List<String> row : board) {
+         if ("F100".equals(row.get(0))) {
+            f100 = row;
+         }
+      }
+      check(f100 != null, "the board has F100");
+      if (f100 != null) {
+         // 152 seats of 180 in FlightInstance.csv, and the 3 booked
+         check("86.1%".equals(f100.get(8)), "the board's load factor counts the new booking, was " + f100.get(8));
+         check("Boeing 737".equals(f100.get(5)), "the board has the plane, was " + f100.get(5));
+      }
+
+      String output = run("5/5/25\n", () -> AirlineManagement.feature4(esql));
+      check(output.contains("F100") && !output.contains("database"), "feature 4 runs on the store");
+   }
+
+   /*
+    * Feature 26 finds the cheapest flight of each day around 5/5/25
+    **/
+   private static void testFareCalendar(AirlineManagement esql) throws Exception {
+      String output = run("New York\nMiami\n5/5/25\nM\n", () -> AirlineManagement.feature26(esql));
+      check(output.contains("F100") && !output.contains("database"), "feature 26 runs on the store");
+   }
+
+   /*
+    * Feature 27 lists the open requests of all planes, of a plane and of a technician, and says so for an unknown ID
+    **/
+   private static void testBacklog(AirlineManagement esql) throws Exception {
+      String output = run("\n", () -> AirlineManagement.feature27(esql));
+      check(!output.contains("database"), "feature 27 runs on the store");
+      output = run("PL001\n", () -> AirlineManagement.feature27(esql));
+      check(output.contains("Open requests on this plane"), "feature 27 lists a plane's open requests");
+      // T002 has no repairs in Repair.csv, so no planes
+      output = run("T002\n", () -> AirlineManagement.feature27(esql));
+      check(output.contains("Open requests on this technician's planes: 0"), "feature 27 knows a technician without repairs");
+      output = run("XX999\n", () -> AirlineManagement.feature27(esql));
+      check(output.contains("There is no plane or technician with this ID."), "feature 27 turns away an unknown ID");
+   }
+
+   /*
+    * Features 24, 25, 28 and 29 need the database and leave the customer directory file as it was
+    **/
+   private static void testNeedsDatabase(AirlineManagement esql, File directoryFile) throws Exception {
+      FileWriter writer = new FileWriter(directoryFile);
+      writer.write("kept");
+      writer.close();
+
+      String output = run("4\n", () -> AirlineManagement.feature24(esql));
+      check(output.contains("database"), "feature 24 says it needs the database");
+      check("kept".equals(new String(Files.readAllBytes(directoryFile.toPath()))), "feature 24 leaves the directory file alone");
+      output = run("1\n", () -> AirlineManagement.feature25(esql));
+      check(output.contains("database"), "feature 25 says it needs the database");
+      output = run("2025-06-01\n7\n", () -> AirlineManagement.feature28(esql));
+      check(output.contains("database"), "feature 28 says it needs the database");
+      output = run("\n", () -> AirlineManagement.feature29(esql));
+      check(output.contains("database"), "feature 29 says it needs the database");
+   }
+
+   /*
+    * Runs a feature with the given input typed, returns what it printed (errors included)
+    **/
+   private static String run(String input, Runnable feature) {
+      PrintStream out = System.out;
+      PrintStream err = System.err;
+      ByteArrayOutputStream screen = new ByteArrayOutputStream();
+      AirlineManagement.in = new BufferedReader(new StringReader(input));
+      System.setOut(new PrintStream(screen, true));
+      System.setErr(new PrintStream(screen, true));
+      try {
+         feature.run();
+      } finally {
+         System.setOut(out);
+         System.setErr(err);
+      }
+      return screen.toString();
+   }
+
+   private static int seatsSold(AirlineManagement.MemoryStore store, String flightNumber, String flightDate) throws Exception {
+      return Integer.parseInt(store.seats(flightNumber, flightDate).get(0).get(1));
+   }
+
+   private static String lastRepairDate(AirlineManagement.MemoryStore store, String planeID) {
+      return store.plane(planeID).get(0).get(3);
+   }
+
+   private static int reservationsOf(List<List<String>> popular, String flightNumber) {
+      for (List<String> row : popular) {
+         if (flightNumber.equals(row.get(0))) {
+            return Integer.parseInt(row.get(1));
+         }
+      }
+      return 0;
+   }
+
+   private static int count(String text, String part) {
+      int count = 0;
+      for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+         count++;
+      }
+      return count;
+   }
+
+   private static void check(boolean ok, String description) {
+      if (ok) {
+         passed++;
+      } else {
+         failed++;
+         System.out.println("FAILED: " + description);
+      }
+   }
+
+} //end StoreTest
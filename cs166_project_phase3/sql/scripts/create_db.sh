@@ -5,7 +5,16 @@ cs166_db_status
 DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
 echo $DIR 
 cs166_createdb $USER"_project_phase_3_DB"
+# PARTITIONED=1 splits FlightInstance and Reservation into monthly partitions by FlightDate
+if [ "$PARTITIONED" = "1" ]; then
+cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/create_partitioned_tables.sql
+else
 cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/create_tables.sql
+fi
 cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/create_indexes.sql
 cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/load_data.sql
+# the loaded rows went into the default partitions, this moves them into partitions of their months
+if [ "$PARTITIONED" = "1" ]; then
+cs166_psql -p $PGPORT $USER"_project_phase_3_DB" -c "SELECT split_default_partitions();"
+fi
 
@@ -0,0 +1,16 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+echo $DIR
+# creates <number of shards> booking shard databases next to the main one, ex: source sql/scripts/create_shards.sh 3
+SHARDS=${1:-2}
+SHARD_LIST=""
+for (( i=0; i<$SHARDS; i++ )); do
+SHARD_DB=$USER"_project_phase_3_DB_shard"$i
+cs166_createdb $SHARD_DB
+cs166_psql -p $PGPORT $SHARD_DB < $DIR/../src/create_tables.sql
+cs166_psql -p $PGPORT $SHARD_DB < $DIR/../src/create_indexes.sql
+cs166_psql -p $PGPORT $SHARD_DB < $DIR/../src/load_data.sql
+cs166_psql -p $PGPORT -v shard=$i -v shards=$SHARDS $SHARD_DB < $DIR/../src/shard_data.sql
+SHARD_LIST=$SHARD_LIST${SHARD_LIST:+,}$SHARD_DB
+done
+echo "Run the program with: JAVA_OPTS=\"-Dairline.shards=$SHARD_LIST\" source java/scripts/compile.sh"
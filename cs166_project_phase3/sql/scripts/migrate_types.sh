@@ -0,0 +1,14 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+echo $DIR
+# prints the sizes and query times, migrates the column types, then prints them again to compare
+echo "---------- Before ----------"
+cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/size_report.sql
+cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/migrate_types.sql
+# the booking shards made by create_shards.sh have the same tables, so they are migrated too
+for SHARD_DB in $(cs166_psql -p $PGPORT -At -c "SELECT datname FROM pg_database WHERE datname LIKE '"$USER"_project_phase_3_DB_shard%' ORDER BY datname;" $USER"_project_phase_3_DB"); do
+echo "---------- Migrating $SHARD_DB ----------"
+cs166_psql -p $PGPORT $SHARD_DB < $DIR/../src/migrate_types.sql
+done
+echo "---------- After ----------"
+cs166_psql -p $PGPORT $USER"_project_phase_3_DB" < $DIR/../src/size_report.sql
@@ -0,0 +1,70 @@
+-- logs every change to the tables the program caches, so programs run with -Dairline.listen=true can drop what went stale
+-- run after load_data.sql (loading with the triggers on would log every loaded row), on the main database and on each shard
+
+-- one row per changed row: the table, the row's key, I/U/D, and the application_name of the connection that changed it
+-- (the program names its connections, so it can skip the changes it made itself)
+CREATE TABLE IF NOT EXISTS AirlineChange (
+    ChangeID BIGSERIAL PRIMARY KEY,
+    TableName TEXT NOT NULL,
+    KeyValue TEXT,
+    Op CHAR(1) NOT NULL,
+    Origin TEXT,
+    ChangedAt TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- the table name and the key column are passed in, TG_TABLE_NAME would be the partition's name on partitioned tables
+-- NOTIFY has no payload because the program's driver can't read one, the listeners read the new AirlineChange rows instead
+-- (the notifications of one transaction are sent once, when it commits)
+CREATE OR REPLACE FUNCTION log_airline_change() RETURNS TRIGGER AS $$
+DECLARE
+    changed RECORD;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+    INSERT INTO AirlineChange (TableName, KeyValue, Op, Origin)
+    VALUES (TG_ARGV[0], to_jsonb(changed) ->> TG_ARGV[1], left(TG_OP, 1), current_setting('application_name'));
+    NOTIFY airline_changes;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- this is dropping the triggers first just to make sure that there are no duplicates when they are created again
+DROP TRIGGER IF EXISTS plane_changes ON Plane;
+DROP TRIGGER IF EXISTS flight_changes ON Flight;
+DROP TRIGGER IF EXISTS schedule_changes ON Schedule;
+DROP TRIGGER IF EXISTS flightinstance_changes ON FlightInstance;
+DROP TRIGGER IF EXISTS reservation_changes ON Reservation;
+DROP TRIGGER IF EXISTS customer_changes ON Customer;
+DROP TRIGGER IF EXISTS login_changes ON Login;
+DROP TRIGGER IF EXISTS pilot_changes ON Pilot;
+DROP TRIGGER IF EXISTS technician_changes ON Technician;
+DROP TRIGGER IF EXISTS repair_changes ON Repair;
+DROP TRIGGER IF EXISTS maintenancerequest_changes ON MaintenanceRequest;
+
+-- the keys are written in lower case, the way to_jsonb names the columns
+CREATE TRIGGER plane_changes AFTER INSERT OR UPDATE OR DELETE ON Plane
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Plane', 'planeid');
+CREATE TRIGGER flight_changes AFTER INSERT OR UPDATE OR DELETE ON Flight
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Flight', 'flightnumber');
+CREATE TRIGGER schedule_changes AFTER INSERT OR UPDATE OR DELETE ON Schedule
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Schedule', 'flightnumber');
+CREATE TRIGGER flightinstance_changes AFTER INSERT OR UPDATE OR DELETE ON FlightInstance
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('FlightInstance', 'flightinstanceid');
+-- a reservation is logged under its flight instance, whose seats it changes
+CREATE TRIGGER reservation_changes AFTER INSERT OR UPDATE OR DELETE ON Reservation
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Reservation', 'flightinstanceid');
+CREATE TRIGGER customer_changes AFTER INSERT OR UPDATE OR DELETE ON Customer
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Customer', 'customerid');
+CREATE TRIGGER login_changes AFTER INSERT OR UPDATE OR DELETE ON Login
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Login', 'userid');
+CREATE TRIGGER pilot_changes AFTER INSERT OR UPDATE OR DELETE ON Pilot
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Pilot', 'pilotid');
+CREATE TRIGGER technician_changes AFTER INSERT OR UPDATE OR DELETE ON Technician
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Technician', 'technicianid');
+CREATE TRIGGER repair_changes AFTER INSERT OR UPDATE OR DELETE ON Repair
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('Repair', 'repairid');
+CREATE TRIGGER maintenancerequest_changes AFTER INSERT OR UPDATE OR DELETE ON MaintenanceRequest
+    FOR EACH ROW EXECUTE PROCEDURE log_airline_change('MaintenanceRequest', 'requestid');
@@ -5,8 +5,10 @@ DROP INDEX IF EXISTS idx_flightnumber_flight;
 DROP INDEX IF EXISTS idx_flightnumber_schedule;
 DROP INDEX IF EXISTS idx_flightnumber_flightinstance;
 DROP INDEX IF EXISTS idx_flightdate_flightinstance;
+DROP INDEX IF EXISTS idx_flightnumber_flightdate_flightinstance;
 DROP INDEX IF EXISTS idx_reservationid_reservation;
 DROP INDEX IF EXISTS idx_customerid_reservation;
+DROP INDEX IF EXISTS idx_seat_reservation;
 DROP INDEX IF EXISTS idx_customerid_customer;
 DROP INDEX IF EXISTS idx_technicianid_repair;
 DROP INDEX IF EXISTS idx_planeid_repair;
@@ -24,12 +26,16 @@ CREATE INDEX idx_flightnumber_schedule ON Schedule(FlightNumber);
 CREATE INDEX idx_flightnumber_flightinstance ON FlightInstance(FlightNumber);
 -- If there are any queries that index by date, this will allow put an index for finding all the flights scheduled on that day 
 CREATE INDEX idx_flightdate_flightinstance ON FlightInstance(FlightDate);
+-- The fare calendar reads a range of dates for each flight on a route, this index keeps each flight's dates together in order
+CREATE INDEX idx_flightnumber_flightdate_flightinstance ON FlightInstance(FlightNumber, FlightDate);
 
 -- For Customer and Reservation Tables
 -- To find the reservation details from ReservationID, this index helps for faster lookup
 CREATE INDEX idx_reservationid_reservation ON Reservation(ReservationID);
 -- To find all the reservations made by a specifc customer, using CustomerID, this index speeds up the process to find those reservation details
 CREATE INDEX idx_customerid_reservation ON Reservation(CustomerID);
+-- A seat can only be given out once on a flight, this also stops two programs booking the same seat at the same time
+CREATE UNIQUE INDEX idx_seat_reservation ON Reservation(FlightInstanceID, FlightDate, SeatNumber);
 -- If there is a need to search for a customer given their ID, this index allows for this to be faster process
 CREATE INDEX idx_customerid_customer ON Customer(CustomerID);
 
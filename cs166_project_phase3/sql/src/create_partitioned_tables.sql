@@ -0,0 +1,225 @@
+-- Same tables as create_tables.sql, except FlightInstance and Reservation are split into monthly partitions by FlightDate.
+-- Queries that filter on FlightDate only read the partitions for those months, and old months can be archived.
+-- Drop existing tables
+DROP TABLE IF EXISTS MaintenanceRequest;
+DROP TABLE IF EXISTS Repair;
+DROP TABLE IF EXISTS Technician;
+DROP TABLE IF EXISTS Reservation;
+DROP TABLE IF EXISTS Customer;
+DROP TABLE IF EXISTS FlightInstance;
+DROP TABLE IF EXISTS Schedule;
+DROP TABLE IF EXISTS Flight;
+DROP TABLE IF EXISTS Plane;
+DROP TABLE IF EXISTS Pilot;
+DROP TABLE IF EXISTS Login;
+DROP SEQUENCE IF EXISTS FlightInstanceID_seq;
+
+-- Login Table
+CREATE TABLE Login (
+    userID TEXT PRIMARY KEY,
+    userName TEXT UNIQUE NOT NULL, 
+    password TEXT NOT NULL, 
+    role TEXT CHECK (role IN ('Manager', 'Customer', 'Pilot', 'Technician'))
+);
+-- Plane Table
+CREATE TABLE Plane (
+    PlaneID TEXT PRIMARY KEY,
+    Make TEXT,
+    Model TEXT,
+    Year INTEGER,
+    LastRepairDate DATE
+);
+
+-- Flight Table
+CREATE TABLE Flight (
+    FlightNumber TEXT PRIMARY KEY,
+    PlaneID TEXT,
+    DepartureCity TEXT,
+    ArrivalCity TEXT,
+    FOREIGN KEY (PlaneID) REFERENCES Plane(PlaneID)
+);
+
+-- Schedule Table
+CREATE TABLE Schedule (
+    ScheduleID INTEGER PRIMARY KEY,
+    FlightNumber TEXT,
+    DayOfWeek TEXT,
+    DepartureTime TIME,
+    ArrivalTime TIME,
+    FOREIGN KEY (FlightNumber) REFERENCES Flight(FlightNumber)
+);
+
+-- FlightInstance Table, one partition per month of FlightDate
+-- the partition key has to be part of the primary key, so it is (FlightInstanceID, FlightDate)
+CREATE TABLE FlightInstance (
+    FlightInstanceID INTEGER,
+    FlightNumber TEXT,
+    FlightDate DATE NOT NULL,
+    DepartedOnTime BOOLEAN,
+    ArrivedOnTime BOOLEAN,
+    SeatsTotal INTEGER,
+    SeatsSold INTEGER,
+    NumOfStops INTEGER,
+    TicketCost DECIMAL(10,2),
+    PRIMARY KEY (FlightInstanceID, FlightDate),
+    UNIQUE (FlightNumber, FlightDate),
+    FOREIGN KEY (FlightNumber) REFERENCES Flight(FlightNumber)
+) PARTITION BY RANGE (FlightDate);
+
+-- new FlightInstanceIDs (generated instances), load_data.sql moves it past the loaded rows
+CREATE SEQUENCE FlightInstanceID_seq;
+
+-- rows of a month that has no partition yet go here instead of failing the insert
+CREATE TABLE flightinstance_default PARTITION OF FlightInstance DEFAULT;
+
+-- Customer Table
+CREATE TABLE Customer (
+    CustomerID INTEGER PRIMARY KEY,
+    FirstName TEXT,
+    LastName TEXT,
+    Gender TEXT,
+    DOB DATE,
+    Address TEXT,
+    Phone TEXT,
+    Zip TEXT
+);
+
+-- Reservation Table, one partition per month of the FlightDate of its FlightInstance
+CREATE TABLE Reservation (
+    ReservationID TEXT,
+    CustomerID INTEGER,
+    FlightInstanceID INTEGER,
+    Status TEXT CHECK(Status IN ('reserved', 'waitlist', 'flown')),
+    FlightDate DATE NOT NULL,
+    SeatNumber INTEGER,
+    PRIMARY KEY (ReservationID, FlightDate),
+    FOREIGN KEY (CustomerID) REFERENCES Customer(CustomerID),
+    FOREIGN KEY (FlightInstanceID, FlightDate) REFERENCES FlightInstance(FlightInstanceID, FlightDate)
+) PARTITION BY RANGE (FlightDate);
+
+CREATE TABLE reservation_default PARTITION OF Reservation DEFAULT;
+
+-- Technician Table
+CREATE TABLE Technician (
+    TechnicianID TEXT PRIMARY KEY,
+    Name TEXT
+);
+
+-- Repair Table
+CREATE TABLE Repair (
+    RepairID INTEGER PRIMARY KEY,
+    PlaneID TEXT,
+    RepairCode TEXT,
+    RepairDate DATE,
+    TechnicianID TEXT,
+    FOREIGN KEY (PlaneID) REFERENCES Plane(PlaneID),
+    FOREIGN KEY (TechnicianID) REFERENCES Technician(TechnicianID)
+);
+
+-- Pilot Table
+CREATE TABLE Pilot (
+    PilotID TEXT PRIMARY KEY,
+    Name TEXT
+);
+
+-- MaintenanceRequest Table
+CREATE TABLE MaintenanceRequest (
+    RequestID INTEGER PRIMARY KEY,
+    PlaneID TEXT,
+    RepairCode TEXT,
+    RequestDate DATE,
+    PilotID TEXT,
+    FOREIGN KEY (PlaneID) REFERENCES Plane(PlaneID),
+    FOREIGN KEY (PilotID) REFERENCES Pilot(PilotID)
+);
+
+-- creates the monthly partitions of FlightInstance and Reservation for the months from start_month on (skips ones that exist)
+-- partitions are named like flightinstance_y2025m05 and reservation_y2025m05
+-- a new partition is filled with the rows of its month from the default partition before it is attached, the
+-- reservations are taken out first so the flight instances they point to can follow them
+CREATE OR REPLACE FUNCTION create_flight_partitions(start_month DATE, months INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    month_end DATE;
+    part_name TEXT;
+    tbl TEXT;
+    pending TEXT[];
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0 .. months - 1 LOOP
+        month_start := (date_trunc('month', start_month) + make_interval(months => i))::date;
+        month_end := (month_start + interval '1 month')::date;
+        pending := ARRAY[]::TEXT[];
+        FOREACH tbl IN ARRAY ARRAY['reservation', 'flightinstance'] LOOP
+            part_name := tbl || '_' || to_char(month_start, '"y"YYYY"m"MM');
+            IF to_regclass(part_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part_name, tbl);
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE FlightDate >= %L AND FlightDate < %L RETURNING *) '
+                    'INSERT INTO %I SELECT * FROM moved', tbl || '_default', month_start, month_end, part_name);
+                pending := pending || tbl;
+            END IF;
+        END LOOP;
+        FOREACH tbl IN ARRAY ARRAY['flightinstance', 'reservation'] LOOP
+            IF tbl = ANY (pending) THEN
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    tbl, tbl || '_' || to_char(month_start, '"y"YYYY"m"MM'), month_start, month_end);
+                created := created + 1;
+            END IF;
+        END LOOP;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- creates the partitions of every month that has rows in the default partitions, run after loading (ex: load_data.sql,
+-- or the files of DataGenerator, which can cover any dates)
+CREATE OR REPLACE FUNCTION split_default_partitions() RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    created INTEGER := 0;
+BEGIN
+    FOR month_start IN
+        SELECT date_trunc('month', FlightDate)::date FROM flightinstance_default
+        UNION
+        SELECT date_trunc('month', FlightDate)::date FROM reservation_default
+        ORDER BY 1
+    LOOP
+        created := created + create_flight_partitions(month_start, 1);
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- archives the monthly partitions whose whole month is before the cutoff: the rows are flown (or never left the waitlist)
+-- and won't change again, so the partition is filled to 100%, autovacuum is turned off for it, and it is moved to the
+-- airline_archive tablespace if one was made (ex: on a compressed filesystem)
+-- returns the partitions it archived so the caller can VACUUM FULL them, which can't be run inside a function
+CREATE OR REPLACE FUNCTION archive_flight_partitions(cutoff DATE) RETURNS SETOF TEXT AS $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname IN ('flightinstance', 'reservation')
+          AND c.relname ~ '_y[0-9]{4}m[0-9]{2}$'
+          AND COALESCE(obj_description(c.oid, 'pg_class'), '') <> 'archived'
+        ORDER BY c.relname
+    LOOP
+        IF (to_date(right(part.relname, 8), '"y"YYYY"m"MM') + interval '1 month')::date <= cutoff THEN
+            EXECUTE format('ALTER TABLE %I SET (fillfactor = 100, autovacuum_enabled = false)', part.relname);
+            IF EXISTS (SELECT 1 FROM pg_tablespace WHERE spcname = 'airline_archive') THEN
+                EXECUTE format('ALTER TABLE %I SET TABLESPACE airline_archive', part.relname);
+            END IF;
+            EXECUTE format('COMMENT ON TABLE %I IS %L', part.relname, 'archived');
+            RETURN NEXT part.relname;
+        END IF;
+    END LOOP;
+    RETURN;
+END;
+$$ LANGUAGE plpgsql;
+
+-- partitions for this month and the next two, the months of the loaded data are made by split_default_partitions()
+SELECT create_flight_partitions(date_trunc('month', CURRENT_DATE)::date, 3);
@@ -10,6 +10,7 @@ DROP TABLE IF EXISTS Flight;
 DROP TABLE IF EXISTS Plane;
 DROP TABLE IF EXISTS Pilot;
 DROP TABLE IF EXISTS Login;
+DROP SEQUENCE IF EXISTS FlightInstanceID_seq;
 
 -- Login Table
 CREATE TABLE Login (
@@ -57,9 +58,13 @@ CREATE TABLE FlightInstance (
     SeatsSold INTEGER,
     NumOfStops INTEGER,
     TicketCost DECIMAL(10,2),
+    UNIQUE (FlightNumber, FlightDate),
     FOREIGN KEY (FlightNumber) REFERENCES Flight(FlightNumber)
 );
 
+-- new FlightInstanceIDs (generated instances), load_data.sql moves it past the loaded rows
+CREATE SEQUENCE FlightInstanceID_seq;
+
 -- Customer Table
 CREATE TABLE Customer (
     CustomerID INTEGER PRIMARY KEY,
@@ -78,6 +83,8 @@ CREATE TABLE Reservation (
     CustomerID INTEGER,
     FlightInstanceID INTEGER,
     Status TEXT CHECK(Status IN ('reserved', 'waitlist', 'flown')),
+    FlightDate DATE, -- copied from the FlightInstance so both tables can be split up by date
+    SeatNumber INTEGER, -- seat given out by the program's seat map (row by row, 6 to a row), NULL when waitlisted
     FOREIGN KEY (CustomerID) REFERENCES Customer(CustomerID),
     FOREIGN KEY (FlightInstanceID) REFERENCES FlightInstance(FlightInstanceID)
 );
@@ -1,5 +1,8 @@
 /* Replace the location to where you saved the data files*/
 
+/* FlightInstance.csv has dates like 5/5/25 and the other files use 2025-04-09, so read month/day/year explicitly */
+SET DateStyle = 'ISO, MDY';
+
 \copy Plane FROM '../../data/Plane.csv' WITH DELIMITER ',' CSV HEADER; 
 
 \copy Flight FROM '../../data/Flight.csv' WITH DELIMITER ',' CSV HEADER; 
@@ -8,9 +11,18 @@
 
 \copy FlightInstance FROM '../../data/FlightInstance.csv' WITH DELIMITER ',' CSV HEADER; 
 
+SELECT setval('FlightInstanceID_seq', (SELECT MAX(FlightInstanceID) FROM FlightInstance));
+
 \copy Customer FROM '../../data/Customer.csv' WITH DELIMITER ',' CSV HEADER; 
 
-\copy Reservation FROM '../../data/Reservation.csv' WITH DELIMITER ',' CSV HEADER; 
+/* Reservation.csv has no FlightDate, so it is loaded into a temporary table and copied over with the date of its FlightInstance */
+CREATE TEMP TABLE ReservationLoad (ReservationID TEXT, CustomerID INTEGER, FlightInstanceID INTEGER, Status TEXT);
+
+\copy ReservationLoad FROM '../../data/Reservation.csv' WITH DELIMITER ',' CSV HEADER; 
+
+INSERT INTO Reservation (ReservationID, CustomerID, FlightInstanceID, Status, FlightDate)
+SELECT L.ReservationID, L.CustomerID, L.FlightInstanceID, L.Status, FI.FlightDate
+FROM ReservationLoad L JOIN FlightInstance FI ON L.FlightInstanceID = FI.FlightInstanceID;
 
 \copy Technician FROM '../../data/Technician.csv' WITH DELIMITER ',' CSV HEADER; 
 
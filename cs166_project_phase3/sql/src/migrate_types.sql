@@ -0,0 +1,94 @@
+-- migrates the hot tables from unbounded TEXT to compact types
+-- the app keeps working because string literals like 'reserved' or 'Manager' are read as the enum value and
+-- getString() returns the label, so none of the queries in AirlineManagement.java have to change
+
+-- the ID and code columns become VARCHAR(n) wide enough for the data and for DataGenerator's larger sets (PL1000,
+-- F10099, P0001, 14 character ReservationIDs). Postgres stores VARCHAR(n) like TEXT, so these don't make the rows smaller,
+-- they bound the columns: a bad value is turned away instead of stored. VARCHAR and not CHAR(n), whose padding would come
+-- back from getString() and break the comparisons the program makes on IDs it reads back
+-- kept as TEXT: names, addresses, cities, Make, Model, userName and password, free text the program puts no limit on
+
+-- runs the same on a database made with create_tables.sql or create_partitioned_tables.sql (an ALTER on the partitioned
+-- FlightInstance and Reservation changes every partition, and new partitions copy the types), and on each booking shard
+-- (migrate_types.sh runs it on the shard databases create_shards.sh made)
+
+BEGIN;
+
+-- enum types are created only if they don't exist yet, so the script can be run again
+DO $$
+BEGIN
+   IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = 'reservation_status') THEN
+      CREATE TYPE reservation_status AS ENUM ('reserved', 'waitlist', 'flown');
+   END IF;
+   IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = 'customer_gender') THEN
+      CREATE TYPE customer_gender AS ENUM ('M', 'F');
+   END IF;
+   IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = 'user_role') THEN
+      CREATE TYPE user_role AS ENUM ('Manager', 'Customer', 'Pilot', 'Technician');
+   END IF;
+END $$;
+
+-- Reservation Status: the CHECK constraint is replaced by the enum (4 bytes instead of a 9-10 byte string)
+ALTER TABLE Reservation DROP CONSTRAINT IF EXISTS reservation_status_check;
+ALTER TABLE Reservation ALTER COLUMN Status TYPE reservation_status USING Status::reservation_status;
+
+-- Customer Gender
+ALTER TABLE Customer ALTER COLUMN Gender TYPE customer_gender USING Gender::customer_gender;
+
+-- Login role: the CHECK constraint is replaced by the enum
+ALTER TABLE Login DROP CONSTRAINT IF EXISTS login_role_check;
+ALTER TABLE Login ALTER COLUMN role TYPE user_role USING role::user_role;
+
+-- counters that never go past a few hundred fit in a SMALLINT
+ALTER TABLE FlightInstance
+   ALTER COLUMN SeatsTotal TYPE SMALLINT,
+   ALTER COLUMN SeatsSold TYPE SMALLINT,
+   ALTER COLUMN NumOfStops TYPE SMALLINT;
+
+ALTER TABLE Plane ALTER COLUMN Year TYPE SMALLINT;
+
+-- IDs and codes; a referenced key and the columns that reference it are changed in the same transaction
+ALTER TABLE Login ALTER COLUMN userID TYPE VARCHAR(16);
+
+ALTER TABLE Plane ALTER COLUMN PlaneID TYPE VARCHAR(10);
+ALTER TABLE Flight
+   ALTER COLUMN FlightNumber TYPE VARCHAR(10),
+   ALTER COLUMN PlaneID TYPE VARCHAR(10);
+ALTER TABLE Schedule
+   ALTER COLUMN FlightNumber TYPE VARCHAR(10),
+   ALTER COLUMN DayOfWeek TYPE VARCHAR(9);
+ALTER TABLE FlightInstance ALTER COLUMN FlightNumber TYPE VARCHAR(10);
+
+ALTER TABLE Reservation ALTER COLUMN ReservationID TYPE VARCHAR(20);
+
+-- the program only takes 5 digit zip codes and 7-30 character phone numbers; every zip code is 5 characters, so CHAR(5) has no padding
+ALTER TABLE Customer
+   ALTER COLUMN Zip TYPE CHAR(5),
+   ALTER COLUMN Phone TYPE VARCHAR(30);
+
+ALTER TABLE Pilot ALTER COLUMN PilotID TYPE VARCHAR(10);
+ALTER TABLE Technician ALTER COLUMN TechnicianID TYPE VARCHAR(10);
+-- RepairCode is typed in by technicians (feature 18), a longer one is turned away with the database's error
+ALTER TABLE Repair
+   ALTER COLUMN PlaneID TYPE VARCHAR(10),
+   ALTER COLUMN RepairCode TYPE VARCHAR(16),
+   ALTER COLUMN TechnicianID TYPE VARCHAR(10);
+ALTER TABLE MaintenanceRequest
+   ALTER COLUMN PlaneID TYPE VARCHAR(10),
+   ALTER COLUMN RepairCode TYPE VARCHAR(16),
+   ALTER COLUMN PilotID TYPE VARCHAR(10);
+
+COMMIT;
+
+-- rewrites the tables and indexes without the dead rows left by the ALTERs and updates the planner statistics
+VACUUM FULL ANALYZE Reservation;
+VACUUM FULL ANALYZE Customer;
+VACUUM FULL ANALYZE Login;
+VACUUM FULL ANALYZE FlightInstance;
+VACUUM FULL ANALYZE Plane;
+VACUUM FULL ANALYZE Flight;
+VACUUM FULL ANALYZE Schedule;
+VACUUM FULL ANALYZE Pilot;
+VACUUM FULL ANALYZE Technician;
+VACUUM FULL ANALYZE Repair;
+VACUUM FULL ANALYZE MaintenanceRequest;
@@ -0,0 +1,33 @@
+-- turns a fully loaded database into one booking shard: only the FlightInstance and Reservation rows of the flights
+-- that hash to this shard are kept, everything else (Flight, Schedule, Plane, ...) stays as a read only copy for joins
+-- run after load_data.sql with: -v shard=<this shard> -v shards=<number of shards>
+
+-- the shard of a flight, the same as AirlineManagement.shardOf(): Java's String.hashCode() modulo the number of shards
+CREATE OR REPLACE FUNCTION flight_shard(flight TEXT, shards INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    h BIGINT := 0;
+BEGIN
+    FOR i IN 1 .. length(flight) LOOP
+        h := (h * 31 + ascii(substr(flight, i, 1))) % 4294967296;
+    END LOOP;
+    -- read the low 32 bits as a signed int, like Java does
+    IF h >= 2147483648 THEN
+        h := h - 4294967296;
+    END IF;
+    RETURN ((h % shards) + shards) % shards;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+DELETE FROM Reservation R
+USING FlightInstance FI
+WHERE R.FlightInstanceID = FI.FlightInstanceID
+  AND flight_shard(FI.FlightNumber, :shards) <> :shard;
+
+DELETE FROM FlightInstance
+WHERE flight_shard(FlightNumber, :shards) <> :shard;
+
+-- new customers are created in the main database, so a shard can't check them
+ALTER TABLE Reservation DROP CONSTRAINT IF EXISTS reservation_customerid_fkey;
+
+VACUUM ANALYZE Reservation;
+VACUUM ANALYZE FlightInstance;
@@ -0,0 +1,32 @@
+-- prints the size of each table and its indexes, then times the feature11 and feature19 queries
+
+SELECT relname AS TableName,
+       pg_size_pretty(pg_relation_size(relid)) AS TableSize,
+       pg_size_pretty(pg_indexes_size(relid)) AS IndexSize,
+       pg_size_pretty(pg_total_relation_size(relid)) AS TotalSize
+FROM pg_catalog.pg_statio_user_tables
+ORDER BY pg_total_relation_size(relid) DESC;
+
+-- feature11: New York to Miami on 5/5/25
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT S.DepartureTime, S.ArrivalTime, FI.NumOfStops,
+ROUND(100.0 *
+(SELECT COUNT(*) FROM FlightInstance FI2
+ WHERE FI2.FlightNumber = F.FlightNumber
+ AND FI2.DepartedOnTime = TRUE AND FI2.ArrivedOnTime = TRUE) /
+(SELECT COUNT(*) FROM FlightInstance FI3
+ WHERE FI3.FlightNumber = F.FlightNumber), 2) AS OnTimePercentage
+FROM Flight F
+JOIN FlightInstance FI ON F.FlightNumber = FI.FlightNumber
+JOIN Schedule S ON F.FlightNumber = S.FlightNumber
+WHERE F.DepartureCity = 'New York' AND F.ArrivalCity = 'Miami'
+AND FI.FlightDate = '5/5/25';
+
+-- feature19: reservation history of customer 113
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT R.ReservationID, FI.FlightNumber, FI.FlightDate, F.DepartureCity, F.ArrivalCity, R.Status
+FROM Reservation R
+JOIN FlightInstance FI ON R.FlightInstanceID = FI.FlightInstanceID AND R.FlightDate = FI.FlightDate
+JOIN Flight F ON FI.FlightNumber = F.FlightNumber
+WHERE R.CustomerID = '113'
+ORDER BY FI.FlightDate ASC;